@@ -0,0 +1,41 @@
+package cmuoh.ticketService.dataAccess;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+/**
+ * Every slot is closed while a hold is cancelled
+ */
+@JCStressTest
+@Description("Closing a block races with the cancellation of a hold in it: the released slots never go back on sale")
+@Outcome(id = "2, 1, 1", expect = Expect.ACCEPTABLE, desc = "Closed first, the held slots were parked on cancel")
+@Outcome(id = "3, 1, 1", expect = Expect.ACCEPTABLE_INTERESTING, desc = "Cancelled while the block was closing")
+@Outcome(id = "4, 1, 1", expect = Expect.ACCEPTABLE, desc = "Cancelled first, every slot was parked on close")
+@Outcome(expect = Expect.FORBIDDEN, desc = "A closed slot is on sale or the counts are inconsistent")
+@State
+public class CloseCancelStress {
+    final ReservationManager resource = StressResources.create(4, StressResources.clock());
+    final int holdId = resource.requestHold(2, null).getReservationId();
+
+    @Actor
+    public void close(III_Result r) {
+        r.r1 = resource.closeSlots(0, 4);
+    }
+
+    @Actor
+    public void cancel(III_Result r) {
+        r.r2 = resource.cancelHold(holdId) ? 1 : 0;
+    }
+
+    @Arbiter
+    public void check(III_Result r) {
+        r.r3 = resource.countAvailableSlots() == 0 && resource.countClosedSlots() == 4
+                ? StressResources.check(resource) : 0;
+    }
+}
@@ -0,0 +1,48 @@
+package cmuoh.ticketService.dataAccess;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IIII_Result;
+
+/**
+ * Holds and a confirm applied by the combiner of a resource in combining mode
+ */
+@JCStressTest
+@Description("Combining mode: two holds of 2 slots on the 2 free slots of 4 while the other hold is confirmed")
+@Outcome(id = {"1, 0, 1, 1", "0, 1, 1, 1"}, expect = Expect.ACCEPTABLE,
+        desc = "One hold is granted and the confirm succeeds")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Oversold, a request was lost or the counts are inconsistent")
+@State
+public class CombiningStress {
+    final ReservationManager resource = StressResources.create(4, StressResources.clock());
+    final int holdId = resource.requestHold(2, null).getReservationId();
+
+    public CombiningStress() {
+        resource.setCombining(true);
+    }
+
+    @Actor
+    public void first(IIII_Result r) {
+        r.r1 = resource.requestHold(2, null) != null ? 1 : 0;
+    }
+
+    @Actor
+    public void second(IIII_Result r) {
+        r.r2 = resource.requestHold(2, null) != null ? 1 : 0;
+    }
+
+    @Actor
+    public void confirm(IIII_Result r) {
+        r.r3 = resource.confirmHold(holdId) ? 1 : 0;
+    }
+
+    @Arbiter
+    public void check(IIII_Result r) {
+        r.r4 = StressResources.check(resource);
+    }
+}
@@ -0,0 +1,39 @@
+package cmuoh.ticketService.dataAccess;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+/**
+ * A hold is confirmed while it is cancelled
+ */
+@JCStressTest
+@Description("Confirming a hold races with its cancellation: the cancel always wins in the end")
+@Outcome(id = "1, 1, 1", expect = Expect.ACCEPTABLE, desc = "Confirmed, then cancelled")
+@Outcome(id = "0, 1, 1", expect = Expect.ACCEPTABLE, desc = "Cancelled before it was confirmed")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The cancel was lost or the counts are inconsistent")
+@State
+public class ConfirmCancelStress {
+    final ReservationManager resource = StressResources.create(4, StressResources.clock());
+    final int holdId = resource.requestHold(2, null).getReservationId();
+
+    @Actor
+    public void confirm(III_Result r) {
+        r.r1 = resource.confirmHold(holdId) ? 1 : 0;
+    }
+
+    @Actor
+    public void cancel(III_Result r) {
+        r.r2 = resource.cancelHold(holdId) ? 1 : 0;
+    }
+
+    @Arbiter
+    public void check(III_Result r) {
+        r.r3 = resource.getReservation(holdId) == null ? StressResources.check(resource) : 0;
+    }
+}
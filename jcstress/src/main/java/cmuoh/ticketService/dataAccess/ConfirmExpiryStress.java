@@ -0,0 +1,44 @@
+package cmuoh.ticketService.dataAccess;
+
+import cmuoh.ticketService.util.VirtualClock;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+/**
+ * A hold is confirmed while it expires and is collected
+ */
+@JCStressTest
+@Description("Confirming a hold races with its expiry: a confirmed hold is never reclaimed")
+@Outcome(id = "1, 1, 1", expect = Expect.ACCEPTABLE, desc = "Confirmed before it was collected, the hold is kept")
+@Outcome(id = "0, 0, 1", expect = Expect.ACCEPTABLE, desc = "Collected before it was confirmed, the confirm fails")
+@Outcome(id = "1, 0, .*", expect = Expect.FORBIDDEN, desc = "A confirmed hold was reclaimed")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Inconsistent counts")
+@State
+public class ConfirmExpiryStress {
+    final VirtualClock clock = StressResources.clock();
+    final ReservationManager resource = StressResources.create(4, clock);
+    final int holdId = resource.requestHold(2, null).getReservationId();
+
+    @Actor
+    public void confirm(III_Result r) {
+        r.r1 = resource.confirmHold(holdId) ? 1 : 0;
+    }
+
+    @Actor
+    public void expire() {
+        StressResources.expireHolds(clock);
+        resource.countAvailableSlots();
+    }
+
+    @Arbiter
+    public void check(III_Result r) {
+        r.r2 = resource.getReservation(holdId) != null ? 1 : 0;
+        r.r3 = StressResources.check(resource);
+    }
+}
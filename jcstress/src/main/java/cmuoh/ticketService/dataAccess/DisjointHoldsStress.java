@@ -0,0 +1,37 @@
+package cmuoh.ticketService.dataAccess;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+/**
+ * Two holds that together take every slot
+ */
+@JCStressTest
+@Description("Two holds of 2 slots on 4 slots: both are granted with different slots")
+@Outcome(id = "1, 1, 1", expect = Expect.ACCEPTABLE, desc = "Both holds are granted")
+@Outcome(expect = Expect.FORBIDDEN, desc = "A hold was turned away, a slot was allocated twice or counts differ")
+@State
+public class DisjointHoldsStress {
+    final ReservationManager resource = StressResources.create(4, StressResources.clock());
+
+    @Actor
+    public void first(III_Result r) {
+        r.r1 = resource.requestHold(2, null) != null ? 1 : 0;
+    }
+
+    @Actor
+    public void second(III_Result r) {
+        r.r2 = resource.requestHold(2, null) != null ? 1 : 0;
+    }
+
+    @Arbiter
+    public void check(III_Result r) {
+        r.r3 = StressResources.check(resource);
+    }
+}
@@ -0,0 +1,45 @@
+package cmuoh.ticketService.dataAccess;
+
+import cmuoh.ticketService.util.VirtualClock;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+/**
+ * Two holds race to reclaim the slots of the same expired hold
+ */
+@JCStressTest
+@Description("Two holds of 2 slots when the only 2 slots are in an expired hold: exactly one reclaims them")
+@Outcome(id = {"1, 0, 1", "0, 1, 1"}, expect = Expect.ACCEPTABLE, desc = "One hold reclaims the expired slots")
+@Outcome(id = "0, 0, .*", expect = Expect.FORBIDDEN, desc = "The expired slots were lost")
+@Outcome(expect = Expect.FORBIDDEN, desc = "The slots were reclaimed twice or the counts are inconsistent")
+@State
+public class ExpiredHoldReclaimStress {
+    final VirtualClock clock = StressResources.clock();
+    final ReservationManager resource = StressResources.create(2, clock);
+
+    public ExpiredHoldReclaimStress() {
+        resource.requestHold(2, null);
+        StressResources.expireHolds(clock);
+    }
+
+    @Actor
+    public void first(III_Result r) {
+        r.r1 = resource.requestHold(2, null) != null ? 1 : 0;
+    }
+
+    @Actor
+    public void second(III_Result r) {
+        r.r2 = resource.requestHold(2, null) != null ? 1 : 0;
+    }
+
+    @Arbiter
+    public void check(III_Result r) {
+        r.r3 = StressResources.check(resource);
+    }
+}
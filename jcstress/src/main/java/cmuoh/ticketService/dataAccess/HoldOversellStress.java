@@ -0,0 +1,39 @@
+package cmuoh.ticketService.dataAccess;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.Expect;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+/**
+ * Two holds that together ask for more slots than there are
+ */
+@JCStressTest
+@Description("Two holds of 2 slots on 3 slots: at most one is granted")
+@Outcome(id = {"1, 0, 1", "0, 1, 1"}, expect = Expect.ACCEPTABLE, desc = "One hold is granted")
+@Outcome(id = "0, 0, 1", expect = Expect.ACCEPTABLE_INTERESTING,
+        desc = "Both are turned away while each had part of the slots drained")
+@Outcome(expect = Expect.FORBIDDEN, desc = "Oversold or inconsistent counts")
+@State
+public class HoldOversellStress {
+    final ReservationManager resource = StressResources.create(3, StressResources.clock());
+
+    @Actor
+    public void first(III_Result r) {
+        r.r1 = resource.requestHold(2, null) != null ? 1 : 0;
+    }
+
+    @Actor
+    public void second(III_Result r) {
+        r.r2 = resource.requestHold(2, null) != null ? 1 : 0;
+    }
+
+    @Arbiter
+    public void check(III_Result r) {
+        r.r3 = StressResources.check(resource);
+    }
+}
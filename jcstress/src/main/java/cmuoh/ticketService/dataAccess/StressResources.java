@@ -0,0 +1,82 @@
+package cmuoh.ticketService.dataAccess;
+
+import cmuoh.ticketService.util.HoldTimeStampProvider;
+import cmuoh.ticketService.util.VirtualClock;
+
+import java.time.Instant;
+import java.util.BitSet;
+
+/**
+ * Resources and the invariant check shared by the stress tests.
+ *
+ * Holds are timed by a {@link VirtualClock} so that a test decides exactly when they expire.
+ */
+final class StressResources {
+    static final int TTL_SECONDS = 30;
+    static final Instant START = Instant.EPOCH;
+
+    private StressResources() {
+    }
+
+    static VirtualClock clock() {
+        return new VirtualClock(START);
+    }
+
+    static ReservationManager create(int capacity, VirtualClock clock) {
+        try {
+            return new ReservationManager(0, capacity, new HoldTimeStampProvider(TTL_SECONDS, clock), "stress");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Moves the clock so that the holds placed so far have expired, holds placed after this do not
+     */
+    static void expireHolds(VirtualClock clock) {
+        clock.advanceTo(START.plusSeconds(TTL_SECONDS));
+    }
+
+    /**
+     * Checks the resource once all the actors are done:
+     * no slot is in more than one hold, held, parked and available slots add up to the capacity (nothing is
+     * oversold or lost), every slot's state matches its hold, a slot outside of the holds is parked when it is closed
+     * and free otherwise, and the confirmed hold count matches the confirmed holds
+     *
+     * @param resource
+     * @return 1 if every invariant holds else 0
+     */
+    static int check(ReservationManager resource) {
+        BitSet held = new BitSet(resource.maxCapacity());
+        int confirmedHolds = 0;
+
+        for (ReservationHold hold : resource.getAllReservations()) {
+            int state = hold.isConfirmed() ? SlotStateMap.CONFIRMED : SlotStateMap.HELD;
+            for (int slot : hold.getSlots()) {
+                if (slot < 0 || slot >= resource.maxCapacity() || held.get(slot)) {
+                    return 0;
+                }
+                if (resource.getSlotStates().stateOf(slot) != state) {
+                    return 0;
+                }
+                held.set(slot);
+            }
+            confirmedHolds += hold.isConfirmed() ? 1 : 0;
+        }
+
+        int parked = 0;
+        for (int slot = held.nextClearBit(0); slot < resource.maxCapacity(); slot = held.nextClearBit(slot + 1)) {
+            boolean closed = resource.isSlotClosed(slot);
+            int state = closed ? SlotStateMap.HELD : SlotStateMap.FREE;
+            if (resource.getSlotStates().stateOf(slot) != state || closed == resource.availableSlots.contains(slot)) {
+                return 0;
+            }
+            parked += closed ? 1 : 0;
+        }
+
+        if (held.cardinality() + parked + resource.countAvailableSlots() != resource.maxCapacity()) {
+            return 0;
+        }
+        return confirmedHolds == resource.countConfirmedHolds() ? 1 : 0;
+    }
+}
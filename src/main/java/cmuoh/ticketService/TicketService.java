@@ -1,25 +1,58 @@
 package cmuoh.ticketService;
 
+import cmuoh.ticketService.capture.ReplayCommand;
+import cmuoh.ticketService.capture.TrafficCapture;
+import cmuoh.ticketService.dataAccess.ReservationEvents;
+import cmuoh.ticketService.entities.AvailabilityStreamConfiguration;
+import cmuoh.ticketService.entities.ReadinessConfiguration;
+import cmuoh.ticketService.entities.TrafficCaptureConfiguration;
 import cmuoh.ticketService.exception.mapper.InvalidSeatHoldRequestExceptionMapper;
 import cmuoh.ticketService.exception.mapper.NoSeatsAvailableExceptionMapper;
+import cmuoh.ticketService.exception.mapper.RequestInProgressExceptionMapper;
 import cmuoh.ticketService.exception.mapper.ReservationNotFoundExceptionMapper;
+import cmuoh.ticketService.exception.mapper.SeatHoldQueuedExceptionMapper;
+import cmuoh.ticketService.exception.mapper.ServiceOverloadedExceptionMapper;
+import cmuoh.ticketService.exception.mapper.TooManyRequestsExceptionMapper;
 import cmuoh.ticketService.exception.mapper.VenueLevelNotFoundExceptionMapper;
+import cmuoh.ticketService.exception.mapper.WaitlistTicketNotFoundExceptionMapper;
+import cmuoh.ticketService.healthCheck.ExpiryLagHealthCheck;
+import cmuoh.ticketService.healthCheck.HoldLatencyHealthCheck;
 import cmuoh.ticketService.healthCheck.OkHealthCheck;
+import cmuoh.ticketService.healthCheck.QueueDepthHealthCheck;
+import cmuoh.ticketService.healthCheck.StartupHealthCheck;
+import cmuoh.ticketService.loadTest.LoadTestCommand;
+import cmuoh.ticketService.resource.AvailabilityStreamResource;
+import cmuoh.ticketService.resource.ConfirmationCodeResource;
 import cmuoh.ticketService.resource.VenueTicketManager;
+import cmuoh.ticketService.stream.AvailabilityBroadcaster;
+import cmuoh.ticketService.task.FlightRecordingTask;
+import cmuoh.ticketService.task.VenueSeatingTask;
+import cmuoh.ticketService.util.ConcurrencyLimiter;
+import cmuoh.ticketService.util.RateLimiter;
+import cmuoh.ticketService.util.StartupProgress;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.dropwizard.Application;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import org.glassfish.jersey.media.sse.SseFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Ticket service application
  */
 public class TicketService extends Application<TicketServiceConfiguration> {
+    private static final Logger LOG = LoggerFactory.getLogger(TicketService.class);
 
     public static void main(String[] args) throws Exception {
         new TicketService().run(args);
@@ -28,6 +61,8 @@ public class TicketService extends Application<TicketServiceConfiguration> {
     @Override
     public void initialize(Bootstrap bootstrap) {
         super.initialize(bootstrap);
+        bootstrap.addCommand(new LoadTestCommand());
+        bootstrap.addCommand(new ReplayCommand());
     }
 
     @Override
@@ -48,8 +83,123 @@ public class TicketService extends Application<TicketServiceConfiguration> {
         environment.jersey().register(new NoSeatsAvailableExceptionMapper());
         environment.jersey().register(new VenueLevelNotFoundExceptionMapper());
         environment.jersey().register(new ReservationNotFoundExceptionMapper());
+        environment.jersey().register(new SeatHoldQueuedExceptionMapper());
+        environment.jersey().register(new WaitlistTicketNotFoundExceptionMapper());
+        environment.jersey().register(new RequestInProgressExceptionMapper());
+        environment.jersey().register(new ServiceOverloadedExceptionMapper());
+        environment.jersey().register(new TooManyRequestsExceptionMapper());
+
+        // flight recorder events on the reservation managers, recordings are started from the admin port
+        // NOTE: the recording task links against jdk.jfr, it is only registered on a runtime that has it
+        boolean flightRecorder = configuration.getVenueSeatingConfiguration().getFlightRecorder().isEnabled();
+        ReservationEvents.setEnabled(flightRecorder);
+        if (ReservationEvents.isAvailable()) {
+            environment.admin().addTask(new FlightRecordingTask());
+        } else if (flightRecorder) {
+            LOG.warn("flight recorder events are enabled but the runtime has no flight recorder (needs 8u262+)");
+        }
 
         // register the venue ticket manager resource
-        environment.jersey().register(new VenueTicketManager(configuration.getVenueSeatingConfiguration()));
+        VenueTicketManager venueTicketManager = new VenueTicketManager(configuration.getVenueSeatingConfiguration());
+        environment.jersey().register(venueTicketManager);
+        environment.jersey().register(new ConfirmationCodeResource(venueTicketManager.getCodeSigner()));
+        environment.admin().addTask(new VenueSeatingTask(venueTicketManager));
+
+        // keep the availability snapshots that the read endpoints are served from fresh
+        venueTicketManager.startSnapshotPublisher(environment.lifecycle()
+                .scheduledExecutorService("availability-snapshot-%d")
+                .threads(1)
+                .build());
+        environment.metrics().register(MetricRegistry.name(VenueTicketManager.class, "snapshotStalenessMillis"),
+                (Gauge<Long>) () -> venueTicketManager.getSnapshotStaleness(TimeUnit.MILLISECONDS));
+
+        // keep the customer dictionary bounded
+        venueTicketManager.startCustomerEviction(environment.lifecycle()
+                .scheduledExecutorService("customer-eviction-%d")
+                .threads(1)
+                .build());
+
+        // capture the traffic for replays
+        TrafficCaptureConfiguration captureConfiguration =
+                configuration.getVenueSeatingConfiguration().getTrafficCapture();
+        if (captureConfiguration.isEnabled()) {
+            TrafficCapture capture = new TrafficCapture(Paths.get(captureConfiguration.getFile()),
+                    captureConfiguration.getQueueSize());
+            environment.lifecycle().manage(capture);
+            venueTicketManager.setTrafficCapture(capture);
+            environment.metrics().register(MetricRegistry.name(TrafficCapture.class, "dropped"),
+                    (Gauge<Long>) capture::getDropped);
+        }
+
+        // report ready once warmed up and while the levels keep up with expiry, queued requests and hold latency
+        ReadinessConfiguration readiness = configuration.getVenueSeatingConfiguration().getReadiness();
+        StartupProgress startupProgress = new StartupProgress();
+        if (readiness.getWarmUpIterations() > 0) {
+            StartupProgress.Phase warmUp = startupProgress.register("warm-up", readiness.getWarmUpIterations());
+            environment.lifecycle().executorService("warm-up-%d").build().execute(() -> {
+                try {
+                    venueTicketManager.warmUp(readiness.getWarmUpIterations(), warmUp);
+                    LOG.info("warm-up finished after {} rounds", warmUp.getDone());
+                } catch (Exception e) {
+                    LOG.warn("warm-up failed after {} rounds", warmUp.getDone(), e);
+                }
+            });
+        }
+        environment.healthChecks().register("startup", new StartupHealthCheck(startupProgress));
+        environment.healthChecks().register("expiryLag", new ExpiryLagHealthCheck(
+                venueTicketManager.getSeatLevelResources(), readiness.getMaxExpiryLag()));
+        environment.healthChecks().register("queueDepth", new QueueDepthHealthCheck(
+                venueTicketManager.getSeatLevelResources(), readiness.getMaxQueueDepth()));
+
+        // NOTE: the timed resource method picks up the timer registered under its name, this happens before Jersey
+        // instruments the resource methods on start up
+        Timer holdTimer = environment.metrics().register(MetricRegistry.name(VenueTicketManager.class,
+                "findAndHoldSeats"), HoldLatencyHealthCheck.windowedTimer(readiness.getHoldLatencyWindow(),
+                TimeUnit.SECONDS));
+        environment.healthChecks().register("holdLatency", new HoldLatencyHealthCheck(holdTimer,
+                readiness.getHoldLatencyPercentile(), readiness.getMaxHoldLatency()));
+
+        // shed hold and reserve requests above the adaptive concurrency limit
+        ConcurrencyLimiter limiter = venueTicketManager.getConcurrencyLimiter();
+        if (limiter != null) {
+            environment.metrics().register(MetricRegistry.name(ConcurrencyLimiter.class, "limit"),
+                    (Gauge<Integer>) limiter::getLimit);
+            environment.metrics().register(MetricRegistry.name(ConcurrencyLimiter.class, "inFlight"),
+                    (Gauge<Integer>) limiter::getInFlight);
+            environment.metrics().register(MetricRegistry.name(ConcurrencyLimiter.class, "rejectedReserves"),
+                    (Gauge<Long>) () -> limiter.getRejected(ConcurrencyLimiter.Priority.HIGH));
+            environment.metrics().register(MetricRegistry.name(ConcurrencyLimiter.class, "rejectedHolds"),
+                    (Gauge<Long>) () -> limiter.getRejected(ConcurrencyLimiter.Priority.LOW));
+        }
+
+        // reject hold requests from customers and client addresses over their rate
+        RateLimiter customerRateLimiter = venueTicketManager.getCustomerRateLimiter();
+        if (customerRateLimiter != null) {
+            environment.metrics().register(MetricRegistry.name(RateLimiter.class, "rejectedCustomers"),
+                    (Gauge<Long>) customerRateLimiter::getRejected);
+        }
+        RateLimiter addressRateLimiter = venueTicketManager.getAddressRateLimiter();
+        if (addressRateLimiter != null) {
+            environment.metrics().register(MetricRegistry.name(RateLimiter.class, "rejectedAddresses"),
+                    (Gauge<Long>) addressRateLimiter::getRejected);
+        }
+
+        // stream coalesced availability changes to seat map clients
+        AvailabilityStreamConfiguration streamConfiguration =
+                configuration.getVenueSeatingConfiguration().getAvailabilityStream();
+        AvailabilityBroadcaster broadcaster = new AvailabilityBroadcaster(venueTicketManager.getSeatLevelResources(),
+                streamConfiguration, environment.getObjectMapper(),
+                environment.lifecycle().executorService("availability-writer-%d")
+                        .minThreads(streamConfiguration.getWriterThreads())
+                        .maxThreads(streamConfiguration.getWriterThreads())
+                        .build());
+        venueTicketManager.addSeatLevelListener(broadcaster);
+        broadcaster.start(environment.lifecycle().scheduledExecutorService("availability-flush-%d")
+                .threads(1)
+                .build());
+        environment.jersey().register(SseFeature.class);
+        environment.jersey().register(new AvailabilityStreamResource(broadcaster));
+        environment.metrics().register(MetricRegistry.name(AvailabilityBroadcaster.class, "subscribers"),
+                (Gauge<Integer>) broadcaster::countSubscribers);
     }
 }
\ No newline at end of file
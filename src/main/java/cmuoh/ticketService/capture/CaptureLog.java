@@ -0,0 +1,288 @@
+package cmuoh.ticketService.capture;
+
+import cmuoh.ticketService.entities.ReservationResult;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary format of the capture log.
+ *
+ * The log starts with a header (magic, version, capture start as epoch millis) followed by the calls in the order
+ * they completed, which keeps every reserve after the hold it confirms. Each call is written as its type, the
+ * zigzag varint delta of its arrival from the previous call's, its outcome and then the fields of its type.
+ * Integers are varints, nullable integers are shifted by one so that 0 is NULL. Strings are interned in a table that
+ * is rebuilt by the reader: a string is written in full the first time and as a varint reference after that.
+ */
+final class CaptureLog {
+    static final int MAGIC = 0x54534350;
+    static final byte VERSION = 1;
+
+    static final byte HOLD = 1;
+    static final byte RESERVE = 2;
+    static final byte RESERVE_BATCH = 3;
+    static final byte AVAILABILITY = 4;
+
+    static final int OK = 0;
+    static final int SOLD_OUT = 1;
+    static final int QUEUED = 2;
+    static final int REJECTED = 3;
+    static final int INVALID = 4;
+    static final int NOT_FOUND = 5;
+    static final int IN_PROGRESS = 6;
+    static final int FAILED = 7;
+
+    static final String[] OUTCOME_NAMES = new String[] {
+            "ok", "sold out", "queued", "rejected", "invalid", "not found", "in progress", "failed"
+    };
+
+    // string references: 0 is NULL, 1 is an inline string, 2 is a new table entry, the table starts at 3
+    static final int NULL_STRING = 0;
+    static final int INLINE_STRING = 1;
+    static final int NEW_STRING = 2;
+    static final int FIRST_STRING_REF = 3;
+    static final int MAX_STRINGS = 1 << 20;
+
+    private CaptureLog() {
+    }
+
+    /**
+     * Encodes calls into a stream, it is only used by the capture's writer thread
+     */
+    static final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private long previousArrivalNanos;
+
+        Writer(DataOutputStream out, long startEpochMillis) throws IOException {
+            this.out = out;
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(startEpochMillis);
+        }
+
+        void write(CapturedCall call) throws IOException {
+            out.writeByte(call.type);
+            writeVarLong(zigzag(call.arrivalNanos - previousArrivalNanos));
+            previousArrivalNanos = call.arrivalNanos;
+            out.writeByte(call.outcome);
+
+            switch (call.type) {
+                case HOLD:
+                    writeVarLong(call.numSeats);
+                    writeNullable(call.minLevel);
+                    writeNullable(call.maxLevel);
+                    out.writeByte(call.allowSplit == null ? 0 : call.allowSplit ? 2 : 1);
+                    writeString(call.channel);
+                    writeString(call.section);
+                    writeVarLong(call.attributes != null ? call.attributes.size() : 0);
+                    if (call.attributes != null) {
+                        for (String attribute : call.attributes) {
+                            writeString(attribute);
+                        }
+                    }
+                    writeString(call.idempotencyKey);
+                    writeString(call.remoteAddress);
+                    writeString(call.customerEmail);
+                    writeNullable(call.seatHoldId);
+                    break;
+                case RESERVE:
+                    writeNullable(call.seatHoldId);
+                    writeString(call.idempotencyKey);
+                    writeString(call.customerEmail);
+                    break;
+                case RESERVE_BATCH:
+                    writeVarLong(call.batchHoldIds.length);
+                    for (int i = 0; i < call.batchHoldIds.length; ++i) {
+                        writeNullable(call.batchHoldIds[i]);
+                        writeString(call.batchEmails[i]);
+                        ReservationResult.Status status = call.batchStatuses != null ? call.batchStatuses[i] : null;
+                        out.writeByte(status != null ? status.ordinal() + 1 : 0);
+                    }
+                    break;
+                case AVAILABILITY:
+                    writeNullable(call.venueLevel);
+                    writeNullable(call.together);
+                    break;
+                default:
+                    throw new IllegalArgumentException("type");
+            }
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(NULL_STRING);
+                return;
+            }
+
+            Integer ref = strings.get(value);
+            if (ref != null) {
+                writeVarLong(ref);
+            } else if (strings.size() < MAX_STRINGS) {
+                strings.put(value, FIRST_STRING_REF + strings.size());
+                writeVarLong(NEW_STRING);
+                out.writeUTF(value);
+            } else {
+                writeVarLong(INLINE_STRING);
+                out.writeUTF(value);
+            }
+        }
+
+        private void writeNullable(Integer value) throws IOException {
+            writeVarLong(value == null ? 0 : zigzag(value) + 1);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    /**
+     * Decodes the calls of a log
+     */
+    static final class Reader {
+        private final DataInputStream in;
+        private final long startEpochMillis;
+        private final List<String> strings = new ArrayList<>();
+        private long previousArrivalNanos;
+
+        Reader(DataInputStream in) throws IOException {
+            this.in = in;
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a capture log");
+            }
+            if (in.readByte() != VERSION) {
+                throw new IOException("unsupported capture log version");
+            }
+            this.startEpochMillis = in.readLong();
+        }
+
+        long getStartEpochMillis() {
+            return startEpochMillis;
+        }
+
+        /**
+         *
+         * @return the next call or NULL at the end of the log
+         * @throws IOException
+         */
+        CapturedCall read() throws IOException {
+            int type = in.read();
+            if (type < 0) {
+                return null;
+            }
+
+            try {
+                long arrivalNanos = previousArrivalNanos + unzigzag(readVarLong());
+                previousArrivalNanos = arrivalNanos;
+
+                CapturedCall call = new CapturedCall((byte) type, arrivalNanos);
+                call.outcome = in.readUnsignedByte();
+                switch (call.type) {
+                    case HOLD:
+                        call.numSeats = (int) readVarLong();
+                        call.minLevel = readNullable();
+                        call.maxLevel = readNullable();
+                        int allowSplit = in.readUnsignedByte();
+                        call.allowSplit = allowSplit == 0 ? null : allowSplit == 2;
+                        call.channel = readString();
+                        call.section = readString();
+                        int attributeCount = (int) readVarLong();
+                        if (attributeCount > 0) {
+                            call.attributes = new ArrayList<>(attributeCount);
+                            for (int i = 0; i < attributeCount; ++i) {
+                                call.attributes.add(readString());
+                            }
+                        }
+                        call.idempotencyKey = readString();
+                        call.remoteAddress = readString();
+                        call.customerEmail = readString();
+                        call.seatHoldId = readNullable();
+                        break;
+                    case RESERVE:
+                        call.seatHoldId = readNullable();
+                        call.idempotencyKey = readString();
+                        call.customerEmail = readString();
+                        break;
+                    case RESERVE_BATCH:
+                        int size = (int) readVarLong();
+                        call.batchHoldIds = new Integer[size];
+                        call.batchEmails = new String[size];
+                        call.batchStatuses = new ReservationResult.Status[size];
+                        for (int i = 0; i < size; ++i) {
+                            call.batchHoldIds[i] = readNullable();
+                            call.batchEmails[i] = readString();
+                            int status = in.readUnsignedByte();
+                            call.batchStatuses[i] = status == 0 ? null : ReservationResult.Status.values()[status - 1];
+                        }
+                        break;
+                    case AVAILABILITY:
+                        call.venueLevel = readNullable();
+                        call.together = readNullable();
+                        break;
+                    default:
+                        throw new IOException(String.format("unknown call type %d", type));
+                }
+                return call;
+            } catch (EOFException e) {
+                // NOTE: the last call can be cut short when the service was not stopped cleanly
+                return null;
+            }
+        }
+
+        private String readString() throws IOException {
+            int ref = (int) readVarLong();
+            switch (ref) {
+                case NULL_STRING:
+                    return null;
+                case INLINE_STRING:
+                    return in.readUTF();
+                case NEW_STRING:
+                    String value = in.readUTF();
+                    strings.add(value);
+                    return value;
+                default:
+                    return strings.get(ref - FIRST_STRING_REF);
+            }
+        }
+
+        private Integer readNullable() throws IOException {
+            long value = readVarLong();
+            return value == 0 ? null : (int) unzigzag(value - 1);
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("malformed varint");
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
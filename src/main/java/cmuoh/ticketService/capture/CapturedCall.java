@@ -0,0 +1,43 @@
+package cmuoh.ticketService.capture;
+
+import cmuoh.ticketService.entities.ReservationResult;
+
+import java.util.List;
+
+/**
+ * A single captured {@link cmuoh.ticketService.resource.VenueTicketManager} call, only the fields of its type are set
+ */
+final class CapturedCall {
+    final byte type;
+    final long arrivalNanos;
+    int outcome;
+
+    // findAndHoldSeats
+    int numSeats;
+    Integer minLevel;
+    Integer maxLevel;
+    Boolean allowSplit;
+    String channel;
+    String section;
+    List<String> attributes;
+    String remoteAddress;
+
+    // findAndHoldSeats and reserveSeats
+    String idempotencyKey;
+    String customerEmail;
+    Integer seatHoldId;
+
+    // reserveSeats/batch, the statuses are NULL when the whole batch failed
+    Integer[] batchHoldIds;
+    String[] batchEmails;
+    ReservationResult.Status[] batchStatuses;
+
+    // numSeatsAvailable
+    Integer venueLevel;
+    Integer together;
+
+    CapturedCall(byte type, long arrivalNanos) {
+        this.type = type;
+        this.arrivalNanos = arrivalNanos;
+    }
+}
@@ -0,0 +1,62 @@
+package cmuoh.ticketService.capture;
+
+import cmuoh.ticketService.TicketServiceConfiguration;
+import cmuoh.ticketService.entities.VenueSeatingConfiguration;
+import cmuoh.ticketService.resource.VenueTicketManager;
+import cmuoh.ticketService.util.VirtualClock;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a traffic capture against a fresh venue built from the configuration file:
+ *
+ * <pre>
+ *     java -jar ticket-service.jar replay --capture ticket-service.capture --speed max ticket-service.yaml
+ * </pre>
+ */
+public class ReplayCommand extends ConfiguredCommand<TicketServiceConfiguration> {
+
+    public ReplayCommand() {
+        super("replay", "Replays a traffic capture and compares the outcomes and latencies");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+
+        subparser.addArgument("--capture")
+                .dest("capture")
+                .setDefault("ticket-service.capture")
+                .help("the capture log to replay");
+        subparser.addArgument("--speed")
+                .dest("speed")
+                .choices("1x", "max")
+                .setDefault("max")
+                .help("replay at the captured pace or as fast as possible");
+    }
+
+    @Override
+    protected void run(Bootstrap<TicketServiceConfiguration> bootstrap, Namespace namespace,
+                       TicketServiceConfiguration configuration) throws Exception {
+        boolean realTime = "1x".equals(namespace.getString("speed"));
+
+        VenueSeatingConfiguration venueSeating = configuration.getVenueSeatingConfiguration();
+        if (!realTime) {
+            // NOTE: the rate limits run on the wall clock, they would reject calls that were spread out when captured
+            venueSeating.getRateLimit().setEnabled(false);
+        }
+
+        VirtualClock clock = new VirtualClock(Instant.EPOCH);
+        TrafficReplayer replayer = new TrafficReplayer(new VenueTicketManager(venueSeating, clock), clock, realTime,
+                venueSeating.getAvailabilitySnapshots().getPublishInterval(), TimeUnit.MILLISECONDS);
+
+        TrafficReplayer.Result result = replayer.replay(Paths.get(namespace.getString("capture")));
+        result.print(System.out);
+    }
+}
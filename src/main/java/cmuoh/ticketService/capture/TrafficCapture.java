@@ -0,0 +1,199 @@
+package cmuoh.ticketService.capture;
+
+import cmuoh.ticketService.entities.ReservationRequest;
+import cmuoh.ticketService.entities.ReservationResult;
+import cmuoh.ticketService.entities.SeatHold;
+import cmuoh.ticketService.exception.InvalidSeatHoldRequestException;
+import cmuoh.ticketService.exception.NoSeatsAvailableException;
+import cmuoh.ticketService.exception.RequestInProgressException;
+import cmuoh.ticketService.exception.ReservationNotFoundException;
+import cmuoh.ticketService.exception.SeatHoldQueuedException;
+import cmuoh.ticketService.exception.ServiceOverloadedException;
+import cmuoh.ticketService.exception.TooManyRequestsException;
+import cmuoh.ticketService.exception.VenueLevelNotFoundException;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Captures the hold, reserve and availability calls of the {@link cmuoh.ticketService.resource.VenueTicketManager}
+ * into a {@link CaptureLog} for {@link TrafficReplayer}.
+ *
+ * Request threads only queue the call, a background thread encodes and writes it. When the writer falls behind calls
+ * are dropped from the capture instead of blocking the requests.
+ *
+ * @implNote This object is thread safe
+ */
+public class TrafficCapture implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(TrafficCapture.class);
+
+    static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final ArrayBlockingQueue<CapturedCall> pending;
+    private final AtomicLong dropped = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private final long startEpochMillis = System.currentTimeMillis();
+    private volatile boolean running;
+    private Thread writer;
+
+    public TrafficCapture(Path file, int queueSize) {
+        this.file = file;
+        this.pending = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    @Override
+    public void start() throws Exception {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                WRITE_BUFFER_SIZE));
+        CaptureLog.Writer log = new CaptureLog.Writer(out, startEpochMillis);
+
+        running = true;
+        writer = new Thread(() -> write(log, out), "traffic-capture");
+        writer.setDaemon(true);
+        writer.start();
+        LOG.info("capturing traffic to {}", file);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        running = false;
+        if (writer != null) {
+            writer.join();
+        }
+        LOG.info("stopped capturing traffic to {}, {} calls were dropped", file, dropped.get());
+    }
+
+    /**
+     *
+     * @return number of calls that were not captured because the writer fell behind
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     *
+     * @return the arrival time of a call being captured
+     */
+    public long arrival() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public void recordHold(long arrivalNanos, int numSeats, Integer minLevel, Integer maxLevel, Boolean allowSplit,
+                           String channel, String section, List<String> attributes, String idempotencyKey,
+                           String remoteAddress, String customerEmail, SeatHold seatHold, Exception failure) {
+        CapturedCall call = new CapturedCall(CaptureLog.HOLD, arrivalNanos);
+        call.outcome = outcomeOf(seatHold, failure);
+        call.numSeats = numSeats;
+        call.minLevel = minLevel;
+        call.maxLevel = maxLevel;
+        call.allowSplit = allowSplit;
+        call.channel = channel;
+        call.section = section;
+        call.attributes = attributes;
+        call.idempotencyKey = idempotencyKey;
+        call.remoteAddress = remoteAddress;
+        call.customerEmail = customerEmail;
+        call.seatHoldId = seatHold != null ? seatHold.getReservationId() : null;
+        offer(call);
+    }
+
+    public void recordReserve(long arrivalNanos, Integer seatHoldId, String idempotencyKey, String customerEmail,
+                              String reservationCode, Exception failure) {
+        CapturedCall call = new CapturedCall(CaptureLog.RESERVE, arrivalNanos);
+        call.outcome = outcomeOf(reservationCode, failure);
+        call.seatHoldId = seatHoldId;
+        call.idempotencyKey = idempotencyKey;
+        call.customerEmail = customerEmail;
+        offer(call);
+    }
+
+    public void recordBatch(long arrivalNanos, List<ReservationRequest> requests, List<ReservationResult> results,
+                            Exception failure) {
+        CapturedCall call = new CapturedCall(CaptureLog.RESERVE_BATCH, arrivalNanos);
+        call.outcome = outcomeOf(results, failure);
+        call.batchHoldIds = new Integer[requests.size()];
+        call.batchEmails = new String[requests.size()];
+        call.batchStatuses = results != null ? new ReservationResult.Status[requests.size()] : null;
+        for (int i = 0; i < requests.size(); ++i) {
+            call.batchHoldIds[i] = requests.get(i).getSeatHoldId();
+            call.batchEmails[i] = requests.get(i).getCustomerEmail();
+            if (results != null) {
+                call.batchStatuses[i] = results.get(i).getStatus();
+            }
+        }
+        offer(call);
+    }
+
+    public void recordAvailability(long arrivalNanos, Integer venueLevel, Integer together, Object availability,
+                                   Exception failure) {
+        CapturedCall call = new CapturedCall(CaptureLog.AVAILABILITY, arrivalNanos);
+        call.outcome = outcomeOf(availability, failure);
+        call.venueLevel = venueLevel;
+        call.together = together;
+        offer(call);
+    }
+
+    private void offer(CapturedCall call) {
+        if (!running || !pending.offer(call)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void write(CaptureLog.Writer log, DataOutputStream out) {
+        try (DataOutputStream stream = out) {
+            while (running || !pending.isEmpty()) {
+                CapturedCall call = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (call == null) {
+                    log.flush();
+                    continue;
+                }
+                log.write(call);
+            }
+        } catch (IOException | RuntimeException e) {
+            running = false;
+            LOG.error("failed to write the traffic capture, capturing stopped", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The outcome of a call from its result or the exception it failed with
+     */
+    static int outcomeOf(Object result, Exception failure) {
+        if (failure == null) {
+            return result != null ? CaptureLog.OK : CaptureLog.FAILED;
+        }
+        if (failure instanceof NoSeatsAvailableException) {
+            return CaptureLog.SOLD_OUT;
+        }
+        if (failure instanceof SeatHoldQueuedException) {
+            return CaptureLog.QUEUED;
+        }
+        if (failure instanceof ServiceOverloadedException || failure instanceof TooManyRequestsException) {
+            return CaptureLog.REJECTED;
+        }
+        if (failure instanceof InvalidSeatHoldRequestException) {
+            return CaptureLog.INVALID;
+        }
+        if (failure instanceof ReservationNotFoundException || failure instanceof VenueLevelNotFoundException) {
+            return CaptureLog.NOT_FOUND;
+        }
+        if (failure instanceof RequestInProgressException) {
+            return CaptureLog.IN_PROGRESS;
+        }
+        return CaptureLog.FAILED;
+    }
+}
@@ -0,0 +1,231 @@
+package cmuoh.ticketService.capture;
+
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.entities.ReservationRequest;
+import cmuoh.ticketService.entities.ReservationResult;
+import cmuoh.ticketService.entities.SeatHold;
+import cmuoh.ticketService.resource.VenueTicketManager;
+import cmuoh.ticketService.util.VirtualClock;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-executes a {@link CaptureLog} against a fresh {@link VenueTicketManager}, one call at a time in the order they
+ * completed, either at the captured pace or as fast as possible.
+ *
+ * The venue's holds are timed by a {@link VirtualClock} that is moved to each call's captured arrival, so holds expire
+ * at the same point of the workload at any speed and the snapshots are refreshed on the captured publish interval.
+ * Seat hold IDs handed out by the replay are mapped back to the captured ones for the reserves that follow.
+ *
+ * @implNote {@link #replay(Path)} must only be called by a single thread at a time
+ */
+public class TrafficReplayer {
+    static final int HISTOGRAM_DIGITS = 3;
+
+    private final VenueTicketManager venueTicketManager;
+    private final VirtualClock clock;
+    private final boolean realTime;
+    private final long snapshotIntervalNanos;
+    private final Map<Integer, Integer> seatHoldIds = new HashMap<>();
+
+    /**
+     *
+     * @param venueTicketManager a venue that has not taken any traffic, its holds must be timed by the clock
+     * @param clock
+     * @param realTime replay at the captured pace instead of as fast as possible
+     * @param snapshotInterval how often the availability snapshots are refreshed, in captured time
+     * @param unit
+     */
+    public TrafficReplayer(VenueTicketManager venueTicketManager, VirtualClock clock, boolean realTime,
+                           long snapshotInterval, TimeUnit unit) {
+        this.venueTicketManager = venueTicketManager;
+        this.clock = clock;
+        this.realTime = realTime;
+        this.snapshotIntervalNanos = unit.toNanos(snapshotInterval);
+    }
+
+    /**
+     * Replays the whole log
+     *
+     * @param file
+     * @return how the replayed outcomes and latencies compare to the capture
+     * @throws IOException
+     */
+    public Result replay(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            CaptureLog.Reader log = new CaptureLog.Reader(new DataInputStream(in));
+            Instant captureStart = Instant.ofEpochMilli(log.getStartEpochMillis());
+            Result result = new Result();
+
+            long replayStart = System.nanoTime();
+            long nextSnapshotNanos = snapshotIntervalNanos;
+            CapturedCall call;
+            while ((call = log.read()) != null) {
+                if (realTime) {
+                    long wait;
+                    while ((wait = replayStart + call.arrivalNanos - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+
+                clock.advanceTo(captureStart.plusNanos(call.arrivalNanos));
+                if (snapshotIntervalNanos > 0 && call.arrivalNanos >= nextSnapshotNanos) {
+                    for (ReservationManager level : venueTicketManager.getSeatLevelResources()) {
+                        level.refreshSnapshot();
+                    }
+                    nextSnapshotNanos = call.arrivalNanos + snapshotIntervalNanos;
+                }
+
+                long started = System.nanoTime();
+                int outcome = execute(call);
+                result.record(call, outcome, System.nanoTime() - started);
+            }
+
+            result.elapsedNanos = System.nanoTime() - replayStart;
+            return result;
+        }
+    }
+
+    private int execute(CapturedCall call) {
+        try {
+            switch (call.type) {
+                case CaptureLog.HOLD:
+                    SeatHold seatHold = venueTicketManager.findAndHoldSeatsFrom(call.numSeats, call.minLevel,
+                            call.maxLevel, call.allowSplit, call.channel, call.section, call.attributes,
+                            call.idempotencyKey, call.remoteAddress, call.customerEmail);
+                    if (call.seatHoldId != null && seatHold != null) {
+                        seatHoldIds.put(call.seatHoldId, seatHold.getReservationId());
+                    }
+                    return TrafficCapture.outcomeOf(seatHold, null);
+                case CaptureLog.RESERVE:
+                    return TrafficCapture.outcomeOf(venueTicketManager.reserveSeats(replayedId(call.seatHoldId),
+                            call.idempotencyKey, call.customerEmail), null);
+                case CaptureLog.RESERVE_BATCH:
+                    List<ReservationRequest> requests = new ArrayList<>(call.batchHoldIds.length);
+                    for (int i = 0; i < call.batchHoldIds.length; ++i) {
+                        requests.add(new ReservationRequest(replayedId(call.batchHoldIds[i]), call.batchEmails[i]));
+                    }
+                    List<ReservationResult> results = venueTicketManager.reserveSeatsBatch(requests);
+                    if (results == null) {
+                        return TrafficCapture.outcomeOf(null, null);
+                    }
+                    for (int i = 0; i < results.size(); ++i) {
+                        if (call.outcome == CaptureLog.OK && call.batchStatuses[i] != results.get(i).getStatus()) {
+                            return CaptureLog.FAILED;
+                        }
+                    }
+                    return CaptureLog.OK;
+                case CaptureLog.AVAILABILITY:
+                    Object availability = call.together != null ?
+                            venueTicketManager.contiguousSeatsAvailable(call.venueLevel, call.together) :
+                            venueTicketManager.numSeatsAvailable(call.venueLevel);
+                    return TrafficCapture.outcomeOf(availability, null);
+                default:
+                    return CaptureLog.FAILED;
+            }
+        } catch (Exception e) {
+            return TrafficCapture.outcomeOf(null, e);
+        }
+    }
+
+    private Integer replayedId(Integer capturedId) {
+        if (capturedId == null) {
+            return null;
+        }
+
+        Integer replayedId = seatHoldIds.get(capturedId);
+        return replayedId != null ? replayedId : capturedId;
+    }
+
+    /**
+     * Per call type counts, latencies and the calls whose outcome differed from the capture
+     */
+    public static final class Result {
+        static final String[] TYPE_NAMES = new String[] { null, "hold", "reserve", "reserve batch", "availability" };
+
+        final long[] calls = new long[TYPE_NAMES.length];
+        final long[] mismatches = new long[TYPE_NAMES.length];
+        final long[][] outcomes = new long[TYPE_NAMES.length][CaptureLog.OUTCOME_NAMES.length];
+        final Histogram[] latencies = new Histogram[TYPE_NAMES.length];
+        long elapsedNanos;
+
+        Result() {
+            for (int type = 1; type < TYPE_NAMES.length; ++type) {
+                latencies[type] = new Histogram(HISTOGRAM_DIGITS);
+            }
+        }
+
+        void record(CapturedCall call, int outcome, long latencyNanos) {
+            ++calls[call.type];
+            ++outcomes[call.type][outcome];
+            if (outcome != call.outcome) {
+                ++mismatches[call.type];
+            }
+            latencies[call.type].recordValue(latencyNanos);
+        }
+
+        /**
+         *
+         * @return number of replayed calls whose outcome differed from the captured one
+         */
+        public long getMismatches() {
+            long total = 0;
+            for (long count : mismatches) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getCalls() {
+            long total = 0;
+            for (long count : calls) {
+                total += count;
+            }
+            return total;
+        }
+
+        public void print(PrintStream out) {
+            double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+            out.printf("replayed %d calls in %.1fs (%.0f/s), %d outcomes differ from the capture%n",
+                    getCalls(), seconds, getCalls() / seconds, getMismatches());
+
+            for (int type = 1; type < TYPE_NAMES.length; ++type) {
+                if (calls[type] == 0) {
+                    continue;
+                }
+
+                Histogram latency = latencies[type];
+                out.printf("%-14s %d calls, %d differ, p50 %.1fus, p99 %.1fus, p99.9 %.1fus, max %.1fus%n",
+                        TYPE_NAMES[type] + ":", calls[type], mismatches[type],
+                        latency.getValueAtPercentile(50) / 1000.0,
+                        latency.getValueAtPercentile(99) / 1000.0,
+                        latency.getValueAtPercentile(99.9) / 1000.0,
+                        latency.getMaxValue() / 1000.0);
+
+                StringBuilder breakdown = new StringBuilder();
+                for (int outcome = 0; outcome < CaptureLog.OUTCOME_NAMES.length; ++outcome) {
+                    if (outcomes[type][outcome] > 0) {
+                        breakdown.append(breakdown.length() > 0 ? ", " : "")
+                                .append(CaptureLog.OUTCOME_NAMES[outcome]).append(' ')
+                                .append(outcomes[type][outcome]);
+                    }
+                }
+                out.printf("%-14s %s%n", "", breakdown);
+            }
+        }
+    }
+}
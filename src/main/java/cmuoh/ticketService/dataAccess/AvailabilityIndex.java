@@ -0,0 +1,342 @@
+package cmuoh.ticketService.dataAccess;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hierarchical index of the free slots of a resource laid out in rows: resource > section > row.
+ *
+ * Each row keeps its number of free slots and its longest run of contiguous free slots, each section the sum of the
+ * free slots of its rows, and a segment tree over the sections keeps the maximum so that a search can prune every
+ * section that can't serve a request in O(log sections). A histogram of the lengths of every free run on the
+ * resource answers how many blocks of contiguous free slots there are without visiting the rows. The index is derived
+ * from the {@link SlotStateMap} and is refreshed for the rows touched by each state change.
+ *
+ * @implNote This object is thread safe; the section and tree values are hints that can briefly lag behind the rows
+ */
+public final class AvailabilityIndex {
+    static final int RUN_BITS = 16;
+    static final int RUN_MASK = (1 << RUN_BITS) - 1;
+
+    final SlotStateMap slotStates;
+    final int rows;
+    final int rowLength;
+    final AtomicIntegerArray rowState;
+    final AtomicReferenceArray<int[]> rowRuns;
+    final AtomicIntegerArray runHistogram;
+    final int[] rowSection;
+    final AtomicIntegerArray sectionFree;
+    final int treeSize;
+    final AtomicIntegerArray treeFree;
+    private final ThreadLocal<int[]> scratchRuns;
+
+    /**
+     * Initialize the index
+     *
+     * @param slotStates the slot states the index is derived from
+     * @param rows number of rows
+     * @param rowLength number of slots in each row
+     * @param sections row ranges ({first row, row count}) of the sections
+     */
+    AvailabilityIndex(SlotStateMap slotStates, int rows, int rowLength, List<int[]> sections) {
+        if (rowLength > RUN_MASK) {
+            throw new IllegalArgumentException("rowLength");
+        }
+
+        this.slotStates = slotStates;
+        this.rows = rows;
+        this.rowLength = rowLength;
+        this.rowState = new AtomicIntegerArray(rows);
+        this.rowRuns = new AtomicReferenceArray<>(rows);
+        this.runHistogram = new AtomicIntegerArray(rowLength + 1);
+        this.rowSection = new int[rows];
+        this.sectionFree = new AtomicIntegerArray(sections.size());
+
+        int size = 1;
+        while (size < sections.size()) {
+            size <<= 1;
+        }
+        this.treeSize = size;
+        this.treeFree = new AtomicIntegerArray(2 * size);
+        this.scratchRuns = ThreadLocal.withInitial(() -> new int[(rowLength + 1) / 2]);
+
+        Arrays.fill(rowSection, -1);
+        for (int section = 0; section < sections.size(); ++section) {
+            int firstRow = sections.get(section)[0];
+            for (int row = firstRow; row < firstRow + sections.get(section)[1]; ++row) {
+                rowSection[row] = section;
+            }
+        }
+
+        for (int row = 0; row < rows; ++row) {
+            refreshRow(row);
+        }
+    }
+
+    /**
+     *
+     * @return number of sections
+     */
+    public int countSections() {
+        return sectionFree.length();
+    }
+
+    /**
+     *
+     * @param row
+     * @return number of free slots in a row
+     */
+    public int countFree(int row) {
+        return rowState.get(row) >>> RUN_BITS;
+    }
+
+    /**
+     *
+     * @param row
+     * @return the longest run of contiguous free slots in a row
+     */
+    public int maxRun(int row) {
+        return rowState.get(row) & RUN_MASK;
+    }
+
+    /**
+     *
+     * @param section
+     * @return number of free slots in a section
+     */
+    public int countSectionFree(int section) {
+        return sectionFree.get(section);
+    }
+
+    /**
+     * The number of disjoint blocks of contiguous free slots of a given size, a run of free slots within a row holds
+     * as many blocks as fit in it
+     *
+     * @param blockSize
+     * @return number of blocks
+     */
+    public int countBlocks(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize");
+        }
+
+        int blocks = 0;
+        for (int length = blockSize; length <= rowLength; ++length) {
+            blocks += runHistogram.get(length) * (length / blockSize);
+        }
+        return blocks;
+    }
+
+    /**
+     *
+     * @return the longest run of contiguous free slots on the resource
+     */
+    public int largestBlock() {
+        for (int length = rowLength; length > 0; --length) {
+            if (runHistogram.get(length) > 0) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Find the first section with at least the given number of free slots
+     *
+     * @param slotCount
+     * @return the section or -1 if no section has enough free slots
+     */
+    public int findSection(int slotCount) {
+        return findFirst(slotCount, 0);
+    }
+
+    /**
+     * Find the first section with at least the given number of free slots starting from a given section, wrapping
+     * around to the first section
+     *
+     * @param slotCount
+     * @param from
+     * @return the section or -1 if no section has enough free slots
+     */
+    public int findSection(int slotCount, int from) {
+        return findFirst(slotCount, from);
+    }
+
+    /**
+     * Refresh the rows of the given slots after their state changed
+     *
+     * @param slots
+     */
+    void update(Collection<Integer> slots) {
+        int lastRow = -1;
+        for (Integer slot : slots) {
+            int row = slot / rowLength;
+            if (row != lastRow) {
+                refreshRow(row);
+                lastRow = row;
+            }
+        }
+    }
+
+    void refreshRow(int row) {
+        // NOTE: recompute until the stored runs match the slot states, so that a slower thread that stores older
+        // runs is always followed by a refresh; the histogram follows the chain of swapped values so it stays exact
+        int[] scratch = scratchRuns.get();
+        int count = computeRuns(row, scratch);
+        int[] runs;
+        do {
+            runs = rowRuns.get(row);
+            if (runs == null || !sameRuns(runs, scratch, count)) {
+                // NOTE: the runs are computed into the per thread scratch buffer, a row only gets a new array once
+                // its runs actually changed
+                runs = Arrays.copyOf(scratch, count);
+                int[] previous = rowRuns.getAndSet(row, runs);
+                if (previous == null || !Arrays.equals(previous, runs)) {
+                    if (previous != null) {
+                        for (int run : previous) {
+                            runHistogram.decrementAndGet(run);
+                        }
+                    }
+                    for (int run : runs) {
+                        runHistogram.incrementAndGet(run);
+                    }
+                }
+            }
+
+            int state = pack(runs);
+            int previousState = rowState.getAndSet(row, state);
+            if ((previousState >>> RUN_BITS) != (state >>> RUN_BITS)) {
+                rowChanged(row, previousState, state);
+            }
+
+            count = computeRuns(row, scratch);
+        } while (!sameRuns(runs, scratch, count));
+    }
+
+    private void rowChanged(int row, int previous, int state) {
+        int section = rowSection[row];
+        if (section < 0) {
+            return;
+        }
+
+        sectionFree.addAndGet(section, (state >>> RUN_BITS) - (previous >>> RUN_BITS));
+        updateTree(section);
+    }
+
+    private void updateTree(int section) {
+        int node = treeSize + section;
+        setIfChanged(node, sectionFree.get(section));
+
+        for (node >>>= 1; node > 0; node >>>= 1) {
+            if (!setIfChanged(node, Math.max(treeFree.get(2 * node), treeFree.get(2 * node + 1)))) {
+                break;
+            }
+        }
+    }
+
+    private boolean setIfChanged(int node, int value) {
+        // NOTE: the upper nodes are shared by every section, only write them when the value actually changes
+        if (treeFree.get(node) == value) {
+            return false;
+        }
+        treeFree.set(node, value);
+        return true;
+    }
+
+    private int findFirst(int slotCount, int from) {
+        if (countSections() == 0 || treeFree.get(1) < slotCount) {
+            return -1;
+        }
+
+        int section = findFirst(slotCount, from, 1, 0, treeSize);
+        if (section < 0 && from > 0) {
+            section = findFirst(slotCount, 0, 1, 0, treeSize);
+        }
+        return section < countSections() ? section : -1;
+    }
+
+    /**
+     * Descends into the leftmost subtree of [lo, hi) that overlaps [from, ..) and has enough free slots
+     */
+    private int findFirst(int slotCount, int from, int node, int lo, int hi) {
+        if (hi <= from || treeFree.get(node) < slotCount) {
+            return -1;
+        }
+
+        if (node >= treeSize) {
+            return lo;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        int section = findFirst(slotCount, from, 2 * node, lo, mid);
+        return section >= 0 ? section : findFirst(slotCount, from, 2 * node + 1, mid, hi);
+    }
+
+    private static int pack(int[] runs) {
+        int free = 0;
+        int maxRun = 0;
+        for (int run : runs) {
+            free += run;
+            maxRun = Math.max(maxRun, run);
+        }
+        return (free << RUN_BITS) | maxRun;
+    }
+
+    private static boolean sameRuns(int[] runs, int[] scratch, int count) {
+        if (runs.length != count) {
+            return false;
+        }
+        for (int i = 0; i < count; ++i) {
+            if (runs[i] != scratch[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The lengths of the runs of free slots in a row, a word (64 slots) at a time
+     *
+     * @param runs receives the lengths, it must have room for (rowLength + 1) / 2 runs
+     * @return the number of runs
+     */
+    private int computeRuns(int row, int[] runs) {
+        int start = row * rowLength;
+        int end = start + rowLength;
+
+        int count = 0;
+        int run = 0;
+
+        for (int slot = start; slot < end; ) {
+            int word = slot >>> 6;
+            int offset = slot & 63;
+            int slots = Math.min(64 - offset, end - slot);
+            long bits = ~(slotStates.held.get(word) | slotStates.confirmed.get(word)) >>> offset;
+
+            for (int bit = 0; bit < slots; ) {
+                long rest = bits >>> bit;
+                if ((rest & 1) != 0) {
+                    int ones = Math.min(Long.numberOfTrailingZeros(~rest), slots - bit);
+                    run += ones;
+                    bit += ones;
+                } else {
+                    if (run > 0) {
+                        runs[count++] = run;
+                        run = 0;
+                    }
+                    bit += Math.min(Long.numberOfTrailingZeros(rest), slots - bit);
+                }
+            }
+
+            slot += slots;
+        }
+
+        if (run > 0) {
+            runs[count++] = run;
+        }
+        return count;
+    }
+}
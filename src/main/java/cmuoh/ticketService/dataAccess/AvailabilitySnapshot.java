@@ -0,0 +1,90 @@
+package cmuoh.ticketService.dataAccess;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time view of the availability on a resource.
+ *
+ * Snapshots are published by the {@link ReservationManager} so that readers never have to take any of its locks.
+ *
+ * @implNote This object is immutable
+ */
+public final class AvailabilitySnapshot {
+    final int resourceId;
+    final long version;
+    final int availableSlots;
+    final int holds;
+    final int confirmedHolds;
+    final long publishedAtNanos;
+
+    AvailabilitySnapshot(int resourceId, long version, int availableSlots, int holds, int confirmedHolds,
+                         long publishedAtNanos) {
+        this.resourceId = resourceId;
+        this.version = version;
+        this.availableSlots = availableSlots;
+        this.holds = holds;
+        this.confirmedHolds = confirmedHolds;
+        this.publishedAtNanos = publishedAtNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[resourceId=%d, version=%d, available=%d, holds=%d, confirmed=%d]",
+                this.getClass().getName(),
+                resourceId,
+                version,
+                availableSlots,
+                holds,
+                confirmedHolds);
+    }
+
+    /**
+     *
+     * @return identifier for the resource the snapshot was taken from
+     */
+    public int getResourceId() {
+        return resourceId;
+    }
+
+    /**
+     *
+     * @return change version of the resource when the snapshot was taken
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     *
+     * @return number of available slots that were not being held
+     */
+    public int getAvailableSlots() {
+        return availableSlots;
+    }
+
+    /**
+     *
+     * @return number of holds (confirmed or not) on the resource
+     */
+    public int getHolds() {
+        return holds;
+    }
+
+    /**
+     *
+     * @return number of reserved holds that won't expire
+     */
+    public int getConfirmedHolds() {
+        return confirmedHolds;
+    }
+
+    /**
+     * How long ago the snapshot was published, this bounds how stale it can be
+     *
+     * @param unit
+     * @return
+     */
+    public long getAge(TimeUnit unit) {
+        return unit.convert(System.nanoTime() - publishedAtNanos, TimeUnit.NANOSECONDS);
+    }
+}
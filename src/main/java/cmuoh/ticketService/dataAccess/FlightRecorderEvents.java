@@ -0,0 +1,168 @@
+package cmuoh.ticketService.dataAccess;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder event types behind {@link ReservationEvents}. This is the only class of the service that
+ * links against jdk.jfr, it is only loaded once the events are enabled on a runtime that has the flight recorder.
+ */
+final class FlightRecorderEvents {
+    static final String CATEGORY = "Ticket Service";
+
+    private FlightRecorderEvents() {
+    }
+
+    static Object beginHold() {
+        HoldRequested event = new HoldRequested();
+        event.begin();
+        return event;
+    }
+
+    static void commitHold(Object token, ReservationManager resource, int slotCount, String partition,
+                           ReservationHold hold) {
+        HoldRequested event = (HoldRequested) token;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = resource.resourceId;
+            event.seats = slotCount;
+            event.partition = partition;
+            event.held = hold != null;
+            event.holdId = hold != null ? hold.getReservationId() : 0;
+            event.commit();
+        }
+    }
+
+    static Object beginConfirm() {
+        HoldConfirmed event = new HoldConfirmed();
+        event.begin();
+        return event;
+    }
+
+    static void commitConfirm(Object token, ReservationManager resource, int holdId, boolean confirmed) {
+        HoldConfirmed event = (HoldConfirmed) token;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = resource.resourceId;
+            event.holdId = holdId;
+            event.confirmed = confirmed;
+            event.commit();
+        }
+    }
+
+    static Object beginSweep() {
+        HoldsExpired event = new HoldsExpired();
+        event.begin();
+        return event;
+    }
+
+    static void commitSweep(Object token, ReservationManager resource, int holds, int slots, long lagMillis) {
+        HoldsExpired event = (HoldsExpired) token;
+
+        event.end();
+        if (holds > 0 && event.shouldCommit()) {
+            event.level = resource.resourceId;
+            event.holds = holds;
+            event.seats = slots;
+            event.lag = lagMillis;
+            event.commit();
+        }
+    }
+
+    static Object beginLockWait() {
+        LockWait event = new LockWait();
+        event.begin();
+        return event;
+    }
+
+    static void commitLockWait(Object token, ReservationManager resource, String lock) {
+        LockWait event = (LockWait) token;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.level = resource.resourceId;
+            event.lock = lock;
+            event.commit();
+        }
+    }
+
+    @Name("cmuoh.ticketService.HoldRequested")
+    @Label("Hold Requested")
+    @Category(CATEGORY)
+    @Description("A request to hold seats on a level")
+    @StackTrace(false)
+    public static final class HoldRequested extends Event {
+        @Label("Level")
+        int level;
+
+        @Label("Seats")
+        int seats;
+
+        @Label("Partition")
+        String partition;
+
+        @Label("Held")
+        boolean held;
+
+        @Label("Hold ID")
+        int holdId;
+    }
+
+    @Name("cmuoh.ticketService.HoldConfirmed")
+    @Label("Hold Confirmed")
+    @Category(CATEGORY)
+    @Description("A request to confirm a hold")
+    @StackTrace(false)
+    public static final class HoldConfirmed extends Event {
+        @Label("Level")
+        int level;
+
+        @Label("Hold ID")
+        int holdId;
+
+        @Label("Confirmed")
+        boolean confirmed;
+    }
+
+    @Name("cmuoh.ticketService.HoldsExpired")
+    @Label("Holds Expired")
+    @Category(CATEGORY)
+    @Description("A sweep that reclaimed the seats of expired holds")
+    @StackTrace(false)
+    public static final class HoldsExpired extends Event {
+        @Label("Level")
+        int level;
+
+        @Label("Holds")
+        int holds;
+
+        @Label("Seats")
+        int seats;
+
+        @Label("Lag")
+        @Description("How long after its expiry the oldest reclaimed hold was collected")
+        @Timespan(Timespan.MILLISECONDS)
+        long lag;
+    }
+
+    @Name("cmuoh.ticketService.LockWait")
+    @Label("Reservation Lock Wait")
+    @Category(CATEGORY)
+    @Description("Time a thread waited for a lock of a level")
+    @Threshold("1 ms")
+    public static final class LockWait extends Event {
+        @Label("Level")
+        int level;
+
+        @Label("Lock")
+        String lock;
+    }
+}
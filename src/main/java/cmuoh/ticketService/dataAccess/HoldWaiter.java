@@ -0,0 +1,190 @@
+package cmuoh.ticketService.dataAccess;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A queued hold request that is waiting for slots to be reclaimed on one or more resources.
+ *
+ * The same waiter can be registered with several {@link ReservationManager}s; the first one that has enough slots to
+ * satisfy the request claims it and the others simply drop it from their queues.
+ *
+ * @implNote This object is thread safe
+ */
+public final class HoldWaiter {
+    static final int WAITING = 0;
+    static final int FULFILLED = 1;
+    static final int EXPIRED = 2;
+
+    final int ticketId;
+    final int slotCount;
+    final int ownerId;
+    final Object data;
+    final long expiresAtNanos;
+    final Consumer<ReservationHold> onFulfilled;
+    final AtomicInteger state = new AtomicInteger(WAITING);
+    final CountDownLatch done = new CountDownLatch(1);
+
+    volatile ReservationHold hold;
+
+    /**
+     * Initialize the waiter
+     *
+     * @param ticketId identifier handed out to the client for polling
+     * @param slotCount the number of slots to hold
+     * @param data data to store for the reservation once it is held
+     * @param waitFor how long the waiter stays in line before it expires
+     * @param unit unit for waitFor
+     * @param onFulfilled callback invoked (on the fulfilling thread) once a hold has been placed, can be NULL
+     */
+    public HoldWaiter(int ticketId, int slotCount, Object data, long waitFor, TimeUnit unit,
+                      Consumer<ReservationHold> onFulfilled) {
+        this(ticketId, slotCount, ReservationHold.NO_OWNER, data, waitFor, unit, onFulfilled);
+    }
+
+    /**
+     * Initialize the waiter for an owner
+     *
+     * @param ticketId identifier handed out to the client for polling
+     * @param slotCount the number of slots to hold
+     * @param ownerId identifier of the owner the hold is placed for, see {@link ReservationHold#getOwnerId()}
+     * @param data data to store for the reservation once it is held
+     * @param waitFor how long the waiter stays in line before it expires
+     * @param unit unit for waitFor
+     * @param onFulfilled callback invoked (on the fulfilling thread) once a hold has been placed, can be NULL
+     */
+    public HoldWaiter(int ticketId, int slotCount, int ownerId, Object data, long waitFor, TimeUnit unit,
+                      Consumer<ReservationHold> onFulfilled) {
+        if (slotCount < 1) {
+            throw new IllegalArgumentException("slotCount");
+        }
+
+        this.ticketId = ticketId;
+        this.slotCount = slotCount;
+        this.ownerId = ownerId;
+        this.data = data;
+        this.expiresAtNanos = System.nanoTime() + unit.toNanos(waitFor);
+        this.onFulfilled = onFulfilled;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[ticketId=%d, slotCount=%d, waiting=%s, fulfilled=%s]",
+                this.getClass().getName(),
+                ticketId,
+                slotCount,
+                isWaiting(),
+                isFulfilled());
+    }
+
+    /**
+     *
+     * @return identifier of the waitlist ticket
+     */
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    /**
+     *
+     * @return the number of slots being waited for
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * The hold that was placed for this waiter
+     *
+     * @return the reservation hold iff the waiter was fulfilled else NULL
+     */
+    public ReservationHold getHold() {
+        return hold;
+    }
+
+    /**
+     * Is the waiter still in line for slots
+     *
+     * @return
+     */
+    public boolean isWaiting() {
+        expireIfDue();
+        return state.get() == WAITING;
+    }
+
+    /**
+     * Has a hold been placed for the waiter
+     *
+     * @return
+     */
+    public boolean isFulfilled() {
+        return state.get() == FULFILLED;
+    }
+
+    /**
+     * Did the waiter leave the line without being fulfilled
+     *
+     * @return
+     */
+    public boolean isExpired() {
+        expireIfDue();
+        return state.get() == EXPIRED;
+    }
+
+    /**
+     * Remove the waiter from line, it won't be fulfilled after this returns TRUE
+     *
+     * @return TRUE if the waiter was still waiting else FALSE
+     */
+    public boolean cancel() {
+        if (state.compareAndSet(WAITING, EXPIRED)) {
+            done.countDown();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Block until the waiter is either fulfilled or expired
+     *
+     * @param timeout
+     * @param unit
+     * @return TRUE if the waiter was either fulfilled or expired
+     * @throws InterruptedException
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = Math.min(unit.toNanos(timeout), expiresAtNanos - System.nanoTime());
+        if (remaining > 0 && done.await(remaining, TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        return isExpired() || hold != null;
+    }
+
+    /**
+     * Claims the waiter for fulfilment, only one resource can win the claim
+     */
+    boolean tryClaim() {
+        return !expireIfDue() && state.compareAndSet(WAITING, FULFILLED);
+    }
+
+    /**
+     * Publishes the hold for a waiter that was successfully claimed
+     */
+    void fulfil(ReservationHold hold) {
+        this.hold = hold;
+        if (onFulfilled != null) {
+            onFulfilled.accept(hold);
+        }
+        done.countDown();
+    }
+
+    private boolean expireIfDue() {
+        if (state.get() == WAITING && System.nanoTime() - expiresAtNanos >= 0) {
+            return cancel();
+        }
+        return false;
+    }
+}
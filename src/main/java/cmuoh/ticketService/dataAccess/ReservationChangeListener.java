@@ -0,0 +1,15 @@
+package cmuoh.ticketService.dataAccess;
+
+/**
+ * Notified after the state of a {@link ReservationManager} changes.
+ *
+ * @implNote Listeners are invoked synchronously on the thread that made the change so they must be cheap and must
+ * not call back into the resource
+ */
+public interface ReservationChangeListener {
+    /**
+     * @param resource the resource that changed
+     * @param version the change version of the resource after the change
+     */
+    void onChange(ReservationManager resource, long version);
+}
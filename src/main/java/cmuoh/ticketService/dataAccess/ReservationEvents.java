@@ -0,0 +1,96 @@
+package cmuoh.ticketService.dataAccess;
+
+/**
+ * JDK Flight Recorder events for the {@link ReservationManager}: hold requests, confirmations, expiry sweeps and the
+ * time spent waiting on its locks.
+ *
+ * Events are only created when they are switched on with {@link #setEnabled(boolean)}; otherwise every hook is a
+ * single volatile read and returns NULL. Recordings still decide which of the created events are committed.
+ *
+ * The event types live in {@link FlightRecorderEvents}, which is only loaded once the events are enabled, so the
+ * service still runs on a Java 8 runtime without the flight recorder (before 8u262); the events just can't be
+ * enabled there.
+ */
+public final class ReservationEvents {
+    static final boolean AVAILABLE = isFlightRecorderPresent();
+
+    static volatile boolean enabled;
+
+    private ReservationEvents() {
+    }
+
+    /**
+     *
+     * @return does the runtime have the flight recorder
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     *
+     * @return are the events being created
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switch the events on or off, they stay off on a runtime without the flight recorder
+     *
+     * @param enabled
+     */
+    public static void setEnabled(boolean enabled) {
+        ReservationEvents.enabled = enabled && AVAILABLE;
+    }
+
+    static Object beginHold() {
+        return enabled ? FlightRecorderEvents.beginHold() : null;
+    }
+
+    static void commitHold(Object event, ReservationManager resource, int slotCount, String partition,
+                           ReservationHold hold) {
+        if (event != null) {
+            FlightRecorderEvents.commitHold(event, resource, slotCount, partition, hold);
+        }
+    }
+
+    static Object beginConfirm() {
+        return enabled ? FlightRecorderEvents.beginConfirm() : null;
+    }
+
+    static void commitConfirm(Object event, ReservationManager resource, int holdId, boolean confirmed) {
+        if (event != null) {
+            FlightRecorderEvents.commitConfirm(event, resource, holdId, confirmed);
+        }
+    }
+
+    static Object beginSweep() {
+        return enabled ? FlightRecorderEvents.beginSweep() : null;
+    }
+
+    static void commitSweep(Object event, ReservationManager resource, int holds, int slots, long lagMillis) {
+        if (event != null) {
+            FlightRecorderEvents.commitSweep(event, resource, holds, slots, lagMillis);
+        }
+    }
+
+    static Object beginLockWait() {
+        return enabled ? FlightRecorderEvents.beginLockWait() : null;
+    }
+
+    static void commitLockWait(Object event, ReservationManager resource, String lock) {
+        if (event != null) {
+            FlightRecorderEvents.commitLockWait(event, resource, lock);
+        }
+    }
+
+    private static boolean isFlightRecorderPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, ReservationEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
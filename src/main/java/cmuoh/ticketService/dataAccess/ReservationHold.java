@@ -17,8 +17,11 @@ import java.util.stream.Collectors;
  * @implNote This object is thread safe
  */
 public final class ReservationHold implements Comparable<ReservationHold> {
+    public static final int NO_OWNER = -1;
+
     final int reservationId;
     final int resourceId;
+    final int ownerId;
     final Collection<Integer> slots;
     final AtomicBoolean confirmed = new AtomicBoolean();
     final AtomicReference<Object> data = new AtomicReference<>();
@@ -27,10 +30,12 @@ public final class ReservationHold implements Comparable<ReservationHold> {
     /**
      * Initialize the reservation hold object
      */
-    ReservationHold(int reservationId, int resourceId, List<Integer> slots, Object data, OffsetDateTime timeStamp) {
+    ReservationHold(int reservationId, int resourceId, List<Integer> slots, int ownerId, Object data,
+                    OffsetDateTime timeStamp) {
         this.timeStamp = timeStamp;
         this.reservationId = reservationId;
         this.resourceId = resourceId;
+        this.ownerId = ownerId;
         this.data.set(data);
         this.slots = Collections.unmodifiableCollection(slots);
     }
@@ -85,6 +90,15 @@ public final class ReservationHold implements Comparable<ReservationHold> {
         return slots;
     }
 
+    /**
+     * Identifier of the owner the reservation was placed for
+     *
+     * @return the owner ID or {@link #NO_OWNER}
+     */
+    public int getOwnerId() {
+        return ownerId;
+    }
+
     /**
      * Is the reservation confirmed or not
      *
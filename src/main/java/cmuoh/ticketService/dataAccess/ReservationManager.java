@@ -4,38 +4,101 @@ import cmuoh.ticketService.util.HoldTimeStampProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 /**
  * Manages reservation claims on a resource.
  *
  * Managed resources have limited number of capacity slots; each slot can be in either of two states available or held.
+ * Available slots are kept in a striped {@link SlotPool} so that concurrent holds are mostly served from different
+ * stripes.
  * Held slots expired (lazily) after a given TTL unless they are specifically marked as reserved.
+ * Slots reclaimed from expired holds are handed directly to queued {@link HoldWaiter}s (in FIFO order) before they
+ * are returned to the available list. A waiter is only queued if the resource could ever hand it enough slots, and
+ * the line is served first whenever the free shared slots are enough for the waiter at its head.
+ *
+ * Every state change bumps a version counter; readers that can tolerate a bounded amount of staleness should use the
+ * published {@link AvailabilitySnapshot} which does not take any locks.
+ *
+ * A resource laid out in rows can be split into sections (open {@link SlotPartition}s), each with its own pool; the
+ * {@link AvailabilityIndex} keeps the free counts and longest free runs per row and section so that a request skips
+ * the sections that can't serve it.
+ *
+ * In combining mode hold and confirm requests are published to a pending list instead of each caller taking the
+ * locks; whichever caller gets the combiner lock applies the whole batch in one pass (flat combining).
+ *
+ * Blocks of slots can be closed (taken off sale) and opened again at runtime. Free slots of a closed block are parked
+ * instead of being pooled, held slots are parked once their hold expires or is cancelled. A slot is moved between its
+ * pool and the parked bitmap with a CAS and both sides re-check the closed bitmap after a move, so a release racing
+ * with a close or an open never strands a slot on the wrong side.
  *
  * @implNote The public API of this object is thread safe
  */
 public final class ReservationManager {
     private static final Logger LOG = LoggerFactory.getLogger(ReservationManager.class);
 
+    static final int CONFIRM_REJECTED = 0;
+    static final int CONFIRM_UNCHANGED = 1;
+    static final int CONFIRM_APPLIED = 2;
+
+    static final int MAX_COMBINED_BATCH = 256;
+    static final int MAX_COMBINING_PASSES = 4;
+    static final int COMBINER_SPINS = 16;
+    static final long COMBINER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
     final int resourceId;
     final int maxCapacity;
+    final int rowLength;
 
-    final ArrayBlockingQueue<Integer> availableSlots;
+    final SlotPool availableSlots;
+    final SlotPartition[] partitions;
+    final SlotPool[] partitionPools;
+    final Map<String, Integer> partitionIndex;
+    final int[] sectionPartitions;
+    final AvailabilityIndex availabilityIndex;
     final PriorityBlockingQueue<ReservationHold> expirationQueue;
     final ConcurrentHashMap<Integer, ReservationHold> holdReservations;
+    final SlotStateMap slotStates;
+    final AtomicLongArray closedSlots;
+    final AtomicLongArray parkedSlots;
+    final ConcurrentLinkedQueue<HoldWaiter> waiters = new ConcurrentLinkedQueue<>();
     final AtomicInteger countConfirmedHolds = new AtomicInteger();
+    final AtomicLong version = new AtomicLong();
+    final AtomicReference<AvailabilitySnapshot> snapshot = new AtomicReference<>();
+    final CopyOnWriteArrayList<ReservationChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    final ConcurrentLinkedQueue<CombinedRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+    final ReentrantLock combinerLock = new ReentrantLock();
 
     protected AtomicInteger reservationIdCounter = new AtomicInteger(215);
     protected HoldTimeStampProvider holdTimeStampProvider;
     protected String tag;
+    protected volatile boolean publishOnChange;
+    protected volatile boolean combining;
+    protected volatile Map<String, long[]> slotAttributes = Collections.emptyMap();
 
     /**
      * Initialize the resource object
@@ -47,10 +110,47 @@ public final class ReservationManager {
      */
     public ReservationManager(int resourceId, int capacity, HoldTimeStampProvider holdTimeStampProvider, String tag)
             throws Exception {
-        if (capacity <= 0) {
+        this(resourceId, capacity, Collections.emptyList(), holdTimeStampProvider, tag);
+    }
+
+    /**
+     * Initialize the resource object with some of its slots set aside in partitions
+     *
+     * @param resourceId
+     * @param capacity
+     * @param partitions non overlapping slot ranges, the slots outside of them are shared
+     * @param holdTimeStampProvider
+     * @param tag
+     */
+    public ReservationManager(int resourceId, int capacity, List<SlotPartition> partitions,
+                              HoldTimeStampProvider holdTimeStampProvider, String tag) throws Exception {
+        this(resourceId, 1, capacity, partitions, holdTimeStampProvider, tag, false);
+    }
+
+    /**
+     * Initialize the resource object laid out in rows, open partitions (sections) must span whole rows
+     *
+     * @param resourceId
+     * @param rows number of rows
+     * @param rowLength number of slots in each row
+     * @param partitions non overlapping slot ranges, the slots outside of them are shared
+     * @param holdTimeStampProvider
+     * @param tag
+     */
+    public ReservationManager(int resourceId, int rows, int rowLength, List<SlotPartition> partitions,
+                              HoldTimeStampProvider holdTimeStampProvider, String tag) throws Exception {
+        this(resourceId, rows, rowLength, partitions, holdTimeStampProvider, tag, true);
+    }
+
+    private ReservationManager(int resourceId, int rows, int rowLength, List<SlotPartition> partitions,
+                               HoldTimeStampProvider holdTimeStampProvider, String tag, boolean indexed)
+            throws Exception {
+        if (rows <= 0 || rowLength <= 0) {
             throw new IllegalArgumentException("capacity");
         }
 
+        int capacity = rows * rowLength;
+
         if (holdTimeStampProvider == null) {
             throw new NullPointerException("holdTimeStampProvider");
         }
@@ -58,18 +158,64 @@ public final class ReservationManager {
         this.holdTimeStampProvider = holdTimeStampProvider;
         this.resourceId = resourceId;
         this.maxCapacity = capacity;
+        this.rowLength = rowLength;
         this.tag = tag;
 
+        this.partitions = partitions.stream()
+                .sorted(Comparator.comparingInt(SlotPartition::getFirstSlot))
+                .toArray(SlotPartition[]::new);
+        this.partitionPools = new SlotPool[this.partitions.length];
+        this.partitionIndex = new HashMap<>();
+
+        int stripes = Runtime.getRuntime().availableProcessors();
+        List<int[]> partitionedRanges = new ArrayList<>();
+        List<Integer> sections = new ArrayList<>();
+        List<int[]> sectionRows = new ArrayList<>();
+        for (int i = 0; i < this.partitions.length; ++i) {
+            SlotPartition partition = this.partitions[i];
+            int end = partition.firstSlot + partition.slotCount;
+            if (end > capacity || (i > 0 && partition.firstSlot < partitionedRanges.get(i - 1)[1])) {
+                throw new IllegalArgumentException(String.format("partition %s is out of range or overlaps",
+                        partition.name));
+            }
+
+            if (partitionIndex.put(partition.name, i) != null) {
+                throw new IllegalArgumentException(String.format("duplicate partition %s", partition.name));
+            }
+
+            if (partition.open) {
+                if (partition.firstSlot % rowLength != 0 || partition.slotCount % rowLength != 0) {
+                    throw new IllegalArgumentException(String.format("section %s does not span whole rows",
+                            partition.name));
+                }
+                sections.add(i);
+                sectionRows.add(new int[] { partition.firstSlot / rowLength, partition.slotCount / rowLength });
+            }
+
+            partitionPools[i] = new SlotPool(partition.firstSlot, partition.slotCount, stripes);
+            partitionedRanges.add(new int[] { partition.firstSlot, end });
+        }
+        this.sectionPartitions = sections.stream().mapToInt(Integer::intValue).toArray();
+
         // ensure that reallocation don't happen
-        availableSlots = new ArrayBlockingQueue<Integer>(capacity);
+        availableSlots = new SlotPool(0, capacity, stripes, partitionedRanges.stream()
+                .map(range -> new int[] { range[0], range[1] - range[0] })
+                .collect(Collectors.toList()));
         holdReservations = new ConcurrentHashMap<>(capacity);
-        expirationQueue = new PriorityBlockingQueue<>(capacity, Comparator.reverseOrder());
+        // NOTE: the oldest hold is at the head of the queue, it is the first one to expire
+        expirationQueue = new PriorityBlockingQueue<>(capacity, Comparator.naturalOrder());
+        slotStates = new SlotStateMap(capacity);
+        closedSlots = new AtomicLongArray(SlotStateMap.wordCount(capacity));
+        parkedSlots = new AtomicLongArray(SlotStateMap.wordCount(capacity));
 
-        for (int i = 0, slotNum = availableSlots.size(); i < capacity; ++i) {
-            availableSlots.add(slotNum++);
-        }
+        // NOTE: a resource that is not laid out in rows is only indexed for its sections
+        availabilityIndex = indexed || !sections.isEmpty()
+                ? new AvailabilityIndex(slotStates, rows, rowLength, sectionRows)
+                : null;
 
-        LOG.debug("{} initialized with capacity[{}]", tag, capacity);
+        publishSnapshot();
+
+        LOG.debug("{} initialized with capacity[{}] and {} partitions", tag, capacity, this.partitions.length);
     }
 
     @Override
@@ -80,7 +226,7 @@ public final class ReservationManager {
                 tag,
                 holdReservations.size(),
                 countConfirmedHolds.get(),
-                availableSlots.size());
+                countFreeSlots());
     }
 
     /**
@@ -121,6 +267,127 @@ public final class ReservationManager {
         this.reservationIdCounter = reservationIdCounter;
     }
 
+    /**
+     * Publish a new availability snapshot after every state change instead of waiting for {@link #refreshSnapshot()}
+     *
+     * @return
+     */
+    public boolean isPublishOnChange() {
+        return publishOnChange;
+    }
+
+    public void setPublishOnChange(boolean publishOnChange) {
+        this.publishOnChange = publishOnChange;
+    }
+
+    /**
+     * Combine concurrent hold and confirm requests: the thread that gets the combiner lock applies every pending
+     * request in one pass while the other callers wait for their result
+     *
+     * @return
+     */
+    public boolean isCombining() {
+        return combining;
+    }
+
+    public void setCombining(boolean combining) {
+        this.combining = combining;
+    }
+
+    /**
+     * Attribute tags (e.g. aisle, accessible) of the slots, hold requests can ask for slots with given attributes
+     *
+     * @return the attribute names
+     */
+    public Set<String> getSlotAttributes() {
+        return slotAttributes.keySet();
+    }
+
+    public void setSlotAttributes(Map<String, BitSet> slotAttributes) {
+        int words = SlotStateMap.wordCount(maxCapacity);
+
+        Map<String, long[]> masks = new HashMap<>();
+        for (Map.Entry<String, BitSet> attribute : slotAttributes.entrySet()) {
+            if (attribute.getValue().length() > maxCapacity) {
+                throw new IllegalArgumentException(String.format("attribute %s is out of range", attribute.getKey()));
+            }
+            masks.put(attribute.getKey(), Arrays.copyOf(attribute.getValue().toLongArray(), words));
+        }
+
+        this.slotAttributes = Collections.unmodifiableMap(masks);
+    }
+
+    /**
+     *
+     * @return number of slots in each row
+     */
+    public int getRowLength() {
+        return rowLength;
+    }
+
+    /**
+     * Free counts and longest free runs per row and section
+     *
+     * @return the index or NULL if the resource is neither laid out in rows nor has sections
+     */
+    public AvailabilityIndex getAvailabilityIndex() {
+        return availabilityIndex;
+    }
+
+    /**
+     * The change version, it is bumped each time a hold is placed, confirmed or expired
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Per slot state (free, held or confirmed) of the resource
+     *
+     * @return
+     */
+    public SlotStateMap getSlotStates() {
+        return slotStates;
+    }
+
+    /**
+     * Register a listener that is notified after every state change
+     *
+     * @param listener
+     */
+    public void addChangeListener(ReservationChangeListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener");
+        }
+
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ReservationChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * The latest published availability snapshot, reading it does not take any locks
+     *
+     * @return
+     */
+    public AvailabilitySnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Collects expired holds and publishes a fresh availability snapshot
+     *
+     * @return the published snapshot
+     */
+    public AvailabilitySnapshot refreshSnapshot() {
+        collectExpiredHolds();
+        return publishSnapshot();
+    }
+
     /**
      * The maximum number reservation slots that can either be available or held
      *
@@ -148,163 +415,1164 @@ public final class ReservationManager {
     }
 
     /**
+     * Calls the action with the owner of every hold and of every queued waiter
      *
-     * @return number of available slots that are not being held
+     * @param action
      */
-    public int countAvailableSlots() {
+    public void forEachOwner(IntConsumer action) {
         collectExpiredHolds();
-        return availableSlots.size();
+        for (ReservationHold hold : holdReservations.values()) {
+            action.accept(hold.getOwnerId());
+        }
+        for (HoldWaiter waiter : waiters) {
+            if (waiter.isWaiting()) {
+                action.accept(waiter.ownerId);
+            }
+        }
     }
 
     /**
-     * Find and return a reservation by ID
      *
-     * @param holdId
-     * @return existing reservation hold else NULL if not found
+     * @return number of available slots that are not being held
      */
-    public ReservationHold getReservation(int holdId) {
-        collectExpiredHolds(); // make sure it is expired yet
-        return holdReservations.get(holdId);
+    public int countAvailableSlots() {
+        collectExpiredHolds();
+        return countFreeSlots();
     }
 
     /**
-     * Confirms an existing hold so that it won't expire
+     * The number of available slots a request for a partition can be served from
      *
-     * @param holdId
-     * @return TRUE if the reservation hold was successfully confirmed else FALSE
+     * @param partition the partition name, NULL or an unknown partition only counts the shared slots and sections
+     * @return number of available slots that are not being held
      */
-    public boolean confirmHold(int holdId) {
-        ReservationHold hold = getReservation(holdId);
-        if (hold == null) {
-            LOG.debug("{} reservation #{} was not found or has expired", tag, holdId);
-            return false;
-        }
-
-        if (!hold.isConfirmed()) {
-            hold.confirmed.set(true);
-
-            // ** RACE CONDITION CHECK **
-            // Verify that the reservation hold wasn't collected in between
-            if (!holdReservations.containsKey(holdId)) {
-                return false;
-            }
+    public int countAvailableSlots(String partition) {
+        collectExpiredHolds();
 
-            countConfirmedHolds.incrementAndGet();
-            LOG.info("{} confirmed {} slots for reservation hold #{}",
-                    tag, hold.slots.size(), holdId);
+        Integer idx = partition != null ? partitionIndex.get(partition) : null;
+        if (idx == null) {
+            return countSharedFreeSlots();
         }
 
-        return true;
+        return partitionPools[idx].size() + (partitions[idx].borrowsShared ? availableSlots.size() : 0);
     }
 
     /**
-     * Holds a number of reservation slots
+     * The number of available slots with all the given attributes a request for a partition can be served from
      *
-     * @param slotCount the number of slots to hold
-     * @param data data to store for the reservation
-     * @return reservation hold details iff successfully held else NULL
+     * @param partition the partition name, NULL or an unknown partition only counts the shared slots and sections
+     * @param attributes the required slot attributes, NULL or empty for any slot
+     * @return number of available slots that are not being held
      */
-    public ReservationHold requestHold(int slotCount, Object data) {
-        if (slotCount < 1) {
-            LOG.warn("{} invalid number of hold slot ({}) requested", tag, slotCount);
-            return null;
+    public int countAvailableSlots(String partition, Collection<String> attributes) {
+        long[] mask = attributeMask(attributes);
+        if (mask == null) {
+            return countAvailableSlots(partition);
         }
 
-        final List<Integer> claimedSlots = new ArrayList<>(slotCount);
-        ReservationHold hold = null;
-        try {
-            // try to drain desired number of slots from the queue
-            availableSlots.drainTo(claimedSlots, slotCount);
-            if (claimedSlots.size() < slotCount) {
-                collectExpiredHolds(claimedSlots, slotCount);
-            }
+        collectExpiredHolds();
 
-            if (claimedSlots.size() < slotCount) {
-                LOG.warn("{} unable to satisfy reservation request for {} slot", tag, slotCount);
-                return null;
+        Integer idx = partition != null ? partitionIndex.get(partition) : null;
+        if (idx == null) {
+            int free = availableSlots.countMatching(mask);
+            for (int section : sectionPartitions) {
+                free += partitionPools[section].countMatching(mask);
             }
+            return free;
+        }
 
-            hold = buildReservationHold(data, claimedSlots);
-            holdReservations.put(hold.getReservationId(), hold);
-            expirationQueue.offer(hold);
+        return partitionPools[idx].countMatching(mask)
+                + (partitions[idx].borrowsShared ? availableSlots.countMatching(mask) : 0);
+    }
 
-            if (LOG.isInfoEnabled()) {
-                LOG.info("{} hold #{} claimed slot [{}]", tag,
-                        hold.getReservationId(),
-                        hold.getSlots().stream()
-                                .map(Object::toString)
-                                .collect(Collectors.joining(", ")));
-            }
+    /**
+     * The number of disjoint blocks of the given number of free slots next to each other in a row
+     *
+     * @param blockSize
+     * @return number of blocks or -1 if the resource is not indexed, see {@link #getAvailabilityIndex()}
+     */
+    public int countContiguousBlocks(int blockSize) {
+        return availabilityIndex != null ? availabilityIndex.countBlocks(blockSize) : -1;
+    }
 
-            return hold;
+    /**
+     *
+     * @return the largest number of free slots next to each other in a row or -1 if the resource is not indexed
+     */
+    public int largestContiguousBlock() {
+        return availabilityIndex != null ? availabilityIndex.largestBlock() : -1;
+    }
 
-        } finally {
-            // TODO: adding to holdReservation/expirationQueue could also fail
-            if (hold == null) {
-                availableSlots.addAll(claimedSlots);
-            }
+    /**
+     *
+     * @return the slot partitions of the resource, ordered by slot
+     */
+    public List<SlotPartition> getPartitions() {
+        return Collections.unmodifiableList(Arrays.asList(partitions));
+    }
+
+    /**
+     * Free slots of the shared pool and the sections, the slots a waiter is served from
+     */
+    private int countSharedFreeSlots() {
+        int free = availableSlots.size();
+        for (int section : sectionPartitions) {
+            free += partitionPools[section].size();
         }
+        return free;
     }
 
-    private ReservationHold buildReservationHold(Object data, List<Integer> claimedSlots) {
-        return new ReservationHold(reservationIdCounter.incrementAndGet(), resourceId, claimedSlots, data,
-                holdTimeStampProvider.getTimeStamp());
+    private int countFreeSlots() {
+        int free = availableSlots.size();
+        for (SlotPool pool : partitionPools) {
+            free += pool.size();
+        }
+        return free;
     }
 
     /**
-     * Processes and removes expired hold reservations and returns their held slots to the available list
+     *
+     * @return number of waiters that are queued for reclaimed slots
      */
-    protected void collectExpiredHolds() {
-        collectExpiredHolds(availableSlots, 0);
+    public int countWaiters() {
+        // NOTE: a waiter queued on several resources stays in the queues of the ones that did not fulfil it
+        waiters.removeIf(waiter -> !waiter.isWaiting());
+        return waiters.size();
     }
 
     /**
-     * Processes and removes expired hold reservations. The held slots are returned in a caller specified drain queue
      *
-     * @param drainSlotsTo
-     * @param desiredSlotCount Stop processing holds after given them of slots are collected
-     * @return
+     * @return number of hold and confirm requests waiting for the combiner
      */
-    protected void collectExpiredHolds(Collection<Integer> drainSlotsTo, int desiredSlotCount) {
-        while (holdIsExpired(expirationQueue.peek())) {
-            // remove the hold from the queue
-            ReservationHold hold = expirationQueue.poll();
+    public int countPendingRequests() {
+        return pendingRequests.size();
+    }
 
-            // ** RACE CONDITION CHECK **
-            // the hold was removed from the top of the queue might not be the same one that we checked at the start
-            // of the while loop so need to verify that we didn't remove a hold that has not yet expired
-            if (!holdIsExpired(hold)) {
-                if (hold != null) {
-                    expirationQueue.offer(hold);
-                }
-                break;
+    /**
+     * How long the oldest unconfirmed hold has been expired without being collected, expired holds are collected
+     * lazily so a growing lag means that nothing is sweeping the resource
+     *
+     * @param unit
+     * @return the lag or 0 if no hold is past its expiry
+     */
+    public long getExpiryLag(TimeUnit unit) {
+        // NOTE: confirmed holds stay queued until a sweep drops them, they are never collected so they are dropped
+        // here rather than counted as lag
+        ReservationHold oldest;
+        while ((oldest = expirationQueue.peek()) != null && oldest.isConfirmed()) {
+            ReservationHold head = expirationQueue.poll();
+            if (head != null && !head.isConfirmed()) {
+                expirationQueue.offer(head);
             }
+        }
+        if (oldest == null) {
+            return 0;
+        }
 
-            // NOTE: confirmed holds are not drained
-            if (!hold.isConfirmed()) {
-                if (holdReservations.remove(hold.getReservationId()) != null) {
-                    for (Integer slot : hold.getSlots()) {
-                        if (desiredSlotCount == 0 || drainSlotsTo.size() < desiredSlotCount) {
-                            drainSlotsTo.add(slot);
-                        } else {
-                            availableSlots.add(slot);
-                        }
-                    }
-                    if (desiredSlotCount > 0 && drainSlotsTo.size() >= desiredSlotCount) {
-                        break;
-                    }
-                }
+        OffsetDateTime expiredAt = oldest.getTimeStamp().plusSeconds(holdTimeStampProvider.getHoldTtl());
+        long lagMillis = Duration.between(expiredAt, holdTimeStampProvider.getTimeStamp()).toMillis();
+        return lagMillis > 0 ? unit.convert(lagMillis, TimeUnit.MILLISECONDS) : 0;
+    }
 
-                LOG.info("{} hold #{} (created: {}) with {} slots has expired",
-                        tag, hold.getReservationId(), hold.getTimeStamp(), hold.getSlots().size());
+    /**
+     * Queue a waiter that will be handed slots as soon as they are reclaimed. The waiter is fulfilled immediately if
+     * enough slots are already available.
+     *
+     * @param waiter
+     * @return FALSE if the waiter was not queued because the resource can never free up that many slots
+     */
+    public boolean addWaiter(HoldWaiter waiter) {
+        if (waiter == null) {
+            throw new NullPointerException("waiter");
+        }
+
+        if (!couldEverHold(waiter.getSlotCount())) {
+            LOG.debug("{} ticket #{} not queued, {} slots can never be freed", tag, waiter.getTicketId(),
+                    waiter.getSlotCount());
+            return false;
+        }
+
+        waiters.offer(waiter);
+        LOG.debug("{} ticket #{} queued for {} slots", tag, waiter.getTicketId(), waiter.getSlotCount());
+
+        // slots might have been released between the failed hold request and queueing the waiter
+        List<Integer> slots = new ArrayList<>();
+        collectExpiredHolds(slots, 0);
+        returnPartitionSlots(slots);
+        handOffToWaiters(slots);
+        returnSlots(slots);
+        return true;
+    }
+
+    /**
+     * Could the shared slots ever satisfy a request of the given size: sold slots and the slots set aside for a
+     * closed partition are never handed to a waiter, slots taken off sale can still be put back on sale
+     */
+    private boolean couldEverHold(int slotCount) {
+        int shareable = 0;
+        for (int slot = 0; slot < maxCapacity && shareable < slotCount; ++slot) {
+            int idx = partitionOf(slot);
+            if ((idx < 0 || partitions[idx].open) && slotStates.stateOf(slot) != SlotStateMap.CONFIRMED) {
+                ++shareable;
             }
         }
+        return shareable >= slotCount;
     }
 
-    private boolean holdIsExpired(ReservationHold hold) {
-        if (hold == null) {
-            return false;
+    /**
+     * Find and return a reservation by ID
+     *
+     * @param holdId
+     * @return existing reservation hold else NULL if not found
+     */
+    public ReservationHold getReservation(int holdId) {
+        collectExpiredHolds(); // make sure it is expired yet
+        return holdReservations.get(holdId);
+    }
+
+    /**
+     * Confirms an existing hold so that it won't expire
+     *
+     * @param holdId
+     * @return TRUE if the reservation hold was successfully confirmed else FALSE
+     */
+    public boolean confirmHold(int holdId) {
+        Object event = ReservationEvents.beginConfirm();
+        boolean confirmed = false;
+        try {
+            confirmed = confirm(holdId);
+            return confirmed;
+        } finally {
+            ReservationEvents.commitConfirm(event, this, holdId, confirmed);
+        }
+    }
+
+    private boolean confirm(int holdId) {
+        if (combining) {
+            return (Boolean) combine(new CombinedRequest(holdId));
+        }
+
+        ReservationHold hold = getReservation(holdId);
+        int outcome = applyConfirm(hold, holdId);
+        if (outcome == CONFIRM_APPLIED) {
+            changed();
+        }
+
+        return outcome != CONFIRM_REJECTED;
+    }
+
+    /**
+     * Confirms a batch of holds with a single expiry collection and a single change notification
+     *
+     * @param holdIds
+     * @param ownerIds the expected owner of each hold, holds owned by anyone else are left as they are
+     * @return the hold found for each ID or NULL if it was not found or has expired
+     */
+    public ReservationHold[] confirmHolds(int[] holdIds, int[] ownerIds) {
+        if (holdIds == null || ownerIds == null || holdIds.length != ownerIds.length) {
+            throw new IllegalArgumentException("ownerIds");
+        }
+
+        if (combining) {
+            return (ReservationHold[]) combine(new CombinedRequest(holdIds, ownerIds));
+        }
+
+        collectExpiredHolds();
+
+        ReservationHold[] holds = new ReservationHold[holdIds.length];
+        if (applyConfirms(holdIds, ownerIds, holds)) {
+            changed();
+        }
+
+        return holds;
+    }
+
+    /**
+     * Confirms each hold that belongs to its expected owner, expired holds must have been collected already
+     *
+     * @return TRUE if any hold was confirmed
+     */
+    private boolean applyConfirms(int[] holdIds, int[] ownerIds, ReservationHold[] holds) {
+        boolean changes = false;
+        for (int i = 0; i < holdIds.length; ++i) {
+            Object event = ReservationEvents.beginConfirm();
+            ReservationHold hold = holdReservations.get(holdIds[i]);
+            if (hold == null || hold.getOwnerId() != ownerIds[i]) {
+                holds[i] = hold;
+                ReservationEvents.commitConfirm(event, this, holdIds[i], false);
+                continue;
+            }
+
+            int outcome = applyConfirm(hold, holdIds[i]);
+            changes |= outcome == CONFIRM_APPLIED;
+            holds[i] = outcome != CONFIRM_REJECTED ? hold : null;
+            ReservationEvents.commitConfirm(event, this, holdIds[i], outcome != CONFIRM_REJECTED);
+        }
+
+        return changes;
+    }
+
+    private int applyConfirm(ReservationHold hold, int holdId) {
+        if (hold == null) {
+            LOG.debug("{} reservation #{} was not found or has expired", tag, holdId);
+            return CONFIRM_REJECTED;
+        }
+
+        // NOTE: confirming and cancelling the same hold are serialized on the hold
+        Object lockWait = ReservationEvents.beginLockWait();
+        synchronized (hold) {
+            ReservationEvents.commitLockWait(lockWait, this, "hold");
+            if (hold.isConfirmed()) {
+                return CONFIRM_UNCHANGED;
+            }
+
+            // ** RACE CONDITION CHECK **
+            // Verify that the reservation hold wasn't collected in between, the collector removes holds under the
+            // same lock so it can't collect the hold once it is confirmed
+            if (!holdReservations.containsKey(holdId)) {
+                return CONFIRM_REJECTED;
+            }
+
+            hold.confirmed.set(true);
+            countConfirmedHolds.incrementAndGet();
+            slotStates.markConfirmed(hold.getSlots());
+        }
+
+        LOG.info("{} confirmed {} slots for reservation hold #{}",
+                tag, hold.slots.size(), holdId);
+
+        return CONFIRM_APPLIED;
+    }
+
+    /**
+     * Cancels a hold (confirmed or not) and returns its slots to the available list right away
+     *
+     * @param holdId
+     * @return TRUE if the reservation hold was cancelled else FALSE if it was not found or has expired
+     */
+    public boolean cancelHold(int holdId) {
+        ReservationHold hold = holdReservations.get(holdId);
+        if (hold == null) {
+            return false;
+        }
+
+        Object lockWait = ReservationEvents.beginLockWait();
+        synchronized (hold) {
+            ReservationEvents.commitLockWait(lockWait, this, "hold");
+            if (!holdReservations.remove(holdId, hold)) {
+                return false;
+            }
+
+            if (hold.isConfirmed()) {
+                countConfirmedHolds.decrementAndGet();
+            }
+            markFree(hold.getSlots());
+        }
+
+        expirationQueue.remove(hold);
+        releaseSlots(new ArrayList<>(hold.getSlots()));
+
+        LOG.info("{} hold #{} with {} slots was cancelled", tag, holdId, hold.getSlots().size());
+        return true;
+    }
+
+    /**
+     * Takes a block of slots off sale. Free slots of the block are parked right away, held slots are parked once their
+     * hold expires or is cancelled and confirmed slots stay sold.
+     *
+     * @param firstSlot
+     * @param slotCount
+     * @return number of free slots that were taken off sale
+     */
+    public int closeSlots(int firstSlot, int slotCount) {
+        checkSlotRange(firstSlot, slotCount);
+
+        int parked = 0;
+        for (int slot = firstSlot; slot < firstSlot + slotCount; ++slot) {
+            closedSlots.accumulateAndGet(slot >>> 6, 1L << slot, (word, bit) -> word | bit);
+            if (reclaim(slot)) {
+                ++parked;
+            }
+        }
+        changed();
+
+        LOG.info("{} closed slots [{}, {}), {} free slots were taken off sale", tag, firstSlot,
+                firstSlot + slotCount, parked);
+        return parked;
+    }
+
+    /**
+     * Puts a block of closed slots back on sale, the parked slots are handed to queued waiters first
+     *
+     * @param firstSlot
+     * @param slotCount
+     * @return number of parked slots that were put back on sale
+     */
+    public int openSlots(int firstSlot, int slotCount) {
+        checkSlotRange(firstSlot, slotCount);
+
+        List<Integer> opened = new ArrayList<>();
+        for (int slot = firstSlot; slot < firstSlot + slotCount; ++slot) {
+            closedSlots.accumulateAndGet(slot >>> 6, ~(1L << slot), (word, mask) -> word & mask);
+            if (unpark(slot)) {
+                opened.add(slot);
+            }
+        }
+
+        int count = opened.size();
+        returnSlots(opened);
+        changed();
+
+        LOG.info("{} opened slots [{}, {}), {} slots were put back on sale", tag, firstSlot,
+                firstSlot + slotCount, count);
+        return count;
+    }
+
+    /**
+     *
+     * @return number of slots in closed blocks, whether they are parked or still held
+     */
+    public int countClosedSlots() {
+        int count = 0;
+        for (int word = 0; word < closedSlots.length(); ++word) {
+            count += Long.bitCount(closedSlots.get(word));
+        }
+        return count;
+    }
+
+    /**
+     * Is a slot in a closed block
+     *
+     * @param slot
+     * @return
+     */
+    public boolean isSlotClosed(int slot) {
+        return slot >= 0 && slot < maxCapacity && isClosed(slot);
+    }
+
+    private void checkSlotRange(int firstSlot, int slotCount) {
+        if (firstSlot < 0 || slotCount < 0 || firstSlot + slotCount > maxCapacity) {
+            throw new IllegalArgumentException(String.format("slots [%d, %d) are out of range", firstSlot,
+                    firstSlot + slotCount));
+        }
+    }
+
+    /**
+     * Holds a number of reservation slots
+     *
+     * @param slotCount the number of slots to hold
+     * @param data data to store for the reservation
+     * @return reservation hold details iff successfully held else NULL
+     */
+    public ReservationHold requestHold(int slotCount, Object data) {
+        return requestHold(slotCount, ReservationHold.NO_OWNER, data);
+    }
+
+    /**
+     * Holds a number of reservation slots for an owner
+     *
+     * @param slotCount the number of slots to hold
+     * @param ownerId identifier of the owner, see {@link ReservationHold#getOwnerId()}
+     * @param data data to store for the reservation
+     * @return reservation hold details iff successfully held else NULL
+     */
+    public ReservationHold requestHold(int slotCount, int ownerId, Object data) {
+        return requestHold(slotCount, null, ownerId, data);
+    }
+
+    /**
+     * Holds a number of reservation slots for an owner from a partition
+     *
+     * @param slotCount the number of slots to hold
+     * @param partition the partition to hold the slots from, NULL or an unknown partition uses the shared slots
+     *                  and sections
+     * @param ownerId identifier of the owner, see {@link ReservationHold#getOwnerId()}
+     * @param data data to store for the reservation
+     * @return reservation hold details iff successfully held else NULL
+     */
+    public ReservationHold requestHold(int slotCount, String partition, int ownerId, Object data) {
+        return requestHold(slotCount, partition, null, ownerId, data);
+    }
+
+    /**
+     * Holds a number of reservation slots with all the given attributes for an owner from a partition
+     *
+     * @param slotCount the number of slots to hold
+     * @param partition the partition to hold the slots from, NULL or an unknown partition uses the shared slots
+     *                  and sections
+     * @param attributes the required slot attributes, NULL or empty for any slot
+     * @param ownerId identifier of the owner, see {@link ReservationHold#getOwnerId()}
+     * @param data data to store for the reservation
+     * @return reservation hold details iff successfully held else NULL
+     */
+    public ReservationHold requestHold(int slotCount, String partition, Collection<String> attributes, int ownerId,
+                                       Object data) {
+        Object event = ReservationEvents.beginHold();
+        ReservationHold hold = null;
+        try {
+            hold = holdSlots(slotCount, partition, attributes, ownerId, data);
+            return hold;
+        } finally {
+            ReservationEvents.commitHold(event, this, slotCount, partition, hold);
+        }
+    }
+
+    private ReservationHold holdSlots(int slotCount, String partition, Collection<String> attributes, int ownerId,
+                                      Object data) {
+        if (slotCount < 1) {
+            LOG.warn("{} invalid number of hold slot ({}) requested", tag, slotCount);
+            return null;
+        }
+
+        Integer idx = partition != null ? partitionIndex.get(partition) : null;
+        long[] mask = attributeMask(attributes);
+
+        // NOTE: requests for any of the shared slots don't barge ahead of a waiter that the free slots can serve,
+        // a waiter that needs more slots than are free does not hold back smaller requests
+        if (idx == null && mask == null) {
+            serveWaiters();
+        }
+
+        // NOTE: only requests for any of the shared slots are combined
+        if (combining && idx == null && mask == null) {
+            return (ReservationHold) combine(new CombinedRequest(slotCount, ownerId, data));
+        }
+
+        final List<Integer> claimedSlots = new ArrayList<>(slotCount);
+        ReservationHold hold = null;
+        try {
+            // try to drain desired number of slots from the queue
+            drainSlots(idx, mask, claimedSlots, slotCount);
+            if (claimedSlots.size() < slotCount) {
+                if (waiters.isEmpty() && partitions.length == 0 && mask == null) {
+                    collectExpiredHolds(claimedSlots, slotCount);
+                } else {
+                    // queued waiters get first pick of the reclaimed slots and partitions get their own slots back
+                    collectExpiredHolds();
+                    drainSlots(idx, mask, claimedSlots, slotCount);
+                }
+            }
+
+            if (claimedSlots.size() < slotCount) {
+                LOG.warn("{} unable to satisfy reservation request for {} slot", tag, slotCount);
+                return null;
+            }
+
+            hold = buildReservationHold(ownerId, data, claimedSlots);
+            registerHold(hold);
+            changed();
+
+            return hold;
+
+        } finally {
+            // TODO: adding to holdReservation/expirationQueue could also fail
+            // NOTE: the slots of a failed request were drained a moment ago, handing them back is not a change
+            if (hold == null) {
+                returnSlots(claimedSlots);
+            }
+        }
+    }
+
+    /**
+     * Drains slots for a request until the claimed list holds the given number of slots
+     */
+    private void drainSlots(Integer partitionIdx, long[] mask, List<Integer> claimedSlots, int slotCount) {
+        if (partitionIdx == null) {
+            availableSlots.drainTo(claimedSlots, slotCount - claimedSlots.size(), mask);
+            if (claimedSlots.size() < slotCount && sectionPartitions.length > 0) {
+                drainSections(mask, claimedSlots, slotCount);
+            }
+            return;
+        }
+
+        partitionPools[partitionIdx].drainTo(claimedSlots, slotCount - claimedSlots.size(), mask);
+        if (claimedSlots.size() < slotCount && partitions[partitionIdx].borrowsShared) {
+            availableSlots.drainTo(claimedSlots, slotCount - claimedSlots.size(), mask);
+        }
+    }
+
+    /**
+     * Serves a request from a single section if one has enough free slots, starting from a per thread home section
+     * so that concurrent requests spread over the sections; falls back to spanning sections in order
+     */
+    private void drainSections(long[] mask, List<Integer> claimedSlots, int slotCount) {
+        int home = (int) (Thread.currentThread().getId() % sectionPartitions.length);
+        int section = availabilityIndex.findSection(slotCount - claimedSlots.size(), home);
+        if (section >= 0) {
+            partitionPools[sectionPartitions[section]].drainTo(claimedSlots, slotCount - claimedSlots.size(), mask);
+        }
+
+        for (int i = 0; i < sectionPartitions.length && claimedSlots.size() < slotCount; ++i) {
+            partitionPools[sectionPartitions[i]].drainTo(claimedSlots, slotCount - claimedSlots.size(), mask);
+        }
+    }
+
+    /**
+     * Intersection of the masks of the given attributes, an unknown attribute matches no slot
+     *
+     * @return the mask or NULL if any slot matches
+     */
+    private long[] attributeMask(Collection<String> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return null;
+        }
+
+        Map<String, long[]> masks = slotAttributes;
+        long[] mask = null;
+        for (String attribute : attributes) {
+            long[] attributeMask = masks.get(attribute);
+            if (attributeMask == null) {
+                return new long[0];
+            }
+
+            if (mask == null) {
+                // NOTE: the common single attribute case uses the shared mask as is, it is never written
+                mask = attributeMask;
+            } else {
+                long[] intersection = new long[mask.length];
+                for (int word = 0; word < mask.length; ++word) {
+                    intersection[word] = mask[word] & attributeMask[word];
+                }
+                mask = intersection;
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * The pool a slot is returned to
+     */
+    private SlotPool poolOf(int slot) {
+        int idx = partitionOf(slot);
+        return idx >= 0 ? partitionPools[idx] : availableSlots;
+    }
+
+    /**
+     * The partition a slot belongs to
+     *
+     * @return the partition index or -1 for a shared slot
+     */
+    private int partitionOf(int slot) {
+        int lo = 0;
+        int hi = partitions.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (slot < partitions[mid].firstSlot) {
+                hi = mid - 1;
+            } else if (slot >= partitions[mid].firstSlot + partitions[mid].slotCount) {
+                lo = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private ReservationHold buildReservationHold(int ownerId, Object data, List<Integer> claimedSlots) {
+        return new ReservationHold(reservationIdCounter.incrementAndGet(), resourceId, claimedSlots, ownerId, data,
+                holdTimeStampProvider.getTimeStamp());
+    }
+
+    private void registerHold(ReservationHold hold) {
+        slotStates.markHeld(hold.getSlots());
+        if (availabilityIndex != null) {
+            availabilityIndex.update(hold.getSlots());
+        }
+        holdReservations.put(hold.getReservationId(), hold);
+        expirationQueue.offer(hold);
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("{} hold #{} claimed slot [{}]", tag,
+                    hold.getReservationId(),
+                    hold.getSlots().stream()
+                            .map(Object::toString)
+                            .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private void markFree(Collection<Integer> slots) {
+        slotStates.markFree(slots);
+        if (availabilityIndex != null) {
+            availabilityIndex.update(slots);
+        }
+    }
+
+    private boolean isClosed(int slot) {
+        return (closedSlots.get(slot >>> 6) & (1L << slot)) != 0;
+    }
+
+    /**
+     * Parks a released slot if its block is closed
+     *
+     * @return TRUE if the slot was taken care of, it was parked or its block was opened in between and it was released
+     */
+    private boolean parkIfClosed(int slot) {
+        if (!isClosed(slot)) {
+            return false;
+        }
+
+        park(slot);
+        return true;
+    }
+
+    /**
+     * Returns a released slot to its pool, the slot is parked again if its block was closed in between
+     */
+    private void returnToPool(int slot) {
+        poolOf(slot).add(slot);
+        if (isClosed(slot)) {
+            reclaim(slot);
+        }
+    }
+
+    /**
+     * Moves a slot from its pool to the parked slots
+     *
+     * @return TRUE if the slot was free in its pool
+     */
+    private boolean reclaim(int slot) {
+        if (!poolOf(slot).remove(slot)) {
+            return false;
+        }
+
+        park(slot);
+        return true;
+    }
+
+    private void park(int slot) {
+        // NOTE: parked slots show as held so that the seat map and the availability index skip them
+        List<Integer> slots = Collections.singletonList(slot);
+        slotStates.markHeld(slots);
+        if (availabilityIndex != null) {
+            availabilityIndex.update(slots);
+        }
+        parkedSlots.accumulateAndGet(slot >>> 6, 1L << slot, (word, bit) -> word | bit);
+
+        // the block might have been opened after the slot was checked
+        if (!isClosed(slot) && unpark(slot)) {
+            releaseSlots(new ArrayList<>(slots));
+        }
+    }
+
+    /**
+     * Takes a slot out of the parked slots, the caller releases it
+     *
+     * @return TRUE if the slot was parked
+     */
+    private boolean unpark(int slot) {
+        long bit = 1L << slot;
+        if ((parkedSlots.getAndAccumulate(slot >>> 6, ~bit, (word, mask) -> word & mask) & bit) == 0) {
+            return false;
+        }
+
+        markFree(Collections.singletonList(slot));
+        return true;
+    }
+
+    /**
+     * Publishes a request and waits until it is applied, either by this thread once it becomes the combiner or by
+     * the thread that currently holds the combiner lock
+     */
+    private Object combine(CombinedRequest request) {
+        Object lockWait = ReservationEvents.beginLockWait();
+        pendingRequests.offer(request);
+
+        for (int attempt = 0; !request.done; ++attempt) {
+            if (combinerLock.tryLock()) {
+                try {
+                    for (int pass = 0; pass < MAX_COMBINING_PASSES && !pendingRequests.isEmpty(); ++pass) {
+                        applyCombinedRequests();
+                    }
+                } finally {
+                    combinerLock.unlock();
+                }
+
+                // hand the combiner role to a caller that published after the last pass
+                CombinedRequest next = pendingRequests.peek();
+                if (next != null) {
+                    LockSupport.unpark(next.caller);
+                }
+            } else if (attempt < COMBINER_SPINS) {
+                Thread.yield();
+            } else {
+                // NOTE: the timeout is only a safety net, the combiner unparks callers once their request is applied
+                LockSupport.parkNanos(this, COMBINER_PARK_NANOS);
+            }
+        }
+
+        ReservationEvents.commitLockWait(lockWait, this, "combiner");
+
+        if (request.failure != null) {
+            throw request.failure;
+        }
+
+        return request.result;
+    }
+
+    /**
+     * Applies a batch of pending requests in one pass: expired holds are collected and the slots for all the hold
+     * requests are drained at once, and the change is published once for the whole batch
+     */
+    private void applyCombinedRequests() {
+        List<CombinedRequest> batch = new ArrayList<>();
+        int slotsWanted = 0;
+        boolean confirms = false;
+
+        CombinedRequest request;
+        while (batch.size() < MAX_COMBINED_BATCH && (request = pendingRequests.poll()) != null) {
+            batch.add(request);
+            slotsWanted += request.slotCount;
+            confirms |= request.isConfirm();
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Integer> claimedSlots = new ArrayList<>(slotsWanted);
+        int nextSlot = 0;
+        boolean changes = false;
+        try {
+            if (confirms) {
+                // confirming an expired hold must fail
+                collectExpiredHolds();
+            }
+
+            drainSlots(null, null, claimedSlots, slotsWanted);
+            if (claimedSlots.size() < slotsWanted) {
+                if (waiters.isEmpty() && partitions.length == 0) {
+                    collectExpiredHolds(claimedSlots, slotsWanted);
+                } else {
+                    // queued waiters get first pick of the reclaimed slots
+                    collectExpiredHolds();
+                    drainSlots(null, null, claimedSlots, slotsWanted);
+                }
+            }
+
+            for (CombinedRequest pending : batch) {
+                if (pending.holdIds != null) {
+                    ReservationHold[] holds = new ReservationHold[pending.holdIds.length];
+                    changes |= applyConfirms(pending.holdIds, pending.ownerIds, holds);
+                    pending.result = holds;
+                } else if (pending.isConfirm()) {
+                    int outcome = applyConfirm(holdReservations.get(pending.holdId), pending.holdId);
+                    changes |= outcome == CONFIRM_APPLIED;
+                    pending.result = outcome != CONFIRM_REJECTED;
+                } else if (claimedSlots.size() - nextSlot >= pending.slotCount) {
+                    ReservationHold hold = buildReservationHold(pending.ownerId, pending.data,
+                            new ArrayList<>(claimedSlots.subList(nextSlot, nextSlot + pending.slotCount)));
+                    nextSlot += pending.slotCount;
+
+                    registerHold(hold);
+                    changes = true;
+                    pending.result = hold;
+                } else {
+                    LOG.warn("{} unable to satisfy reservation request for {} slot", tag, pending.slotCount);
+                }
+                pending.applied = true;
+            }
+        } catch (RuntimeException e) {
+            for (CombinedRequest pending : batch) {
+                if (!pending.applied) {
+                    pending.failure = e;
+                }
+            }
+        } finally {
+            returnSlots(new ArrayList<>(claimedSlots.subList(nextSlot, claimedSlots.size())));
+            if (changes) {
+                changed();
+            }
+
+            for (CombinedRequest pending : batch) {
+                pending.complete();
+            }
+        }
+    }
+
+    private void changed() {
+        long changeVersion = version.incrementAndGet();
+        if (publishOnChange) {
+            publishSnapshot();
+        }
+
+        for (ReservationChangeListener listener : changeListeners) {
+            listener.onChange(this, changeVersion);
+        }
+    }
+
+    private AvailabilitySnapshot publishSnapshot() {
+        // NOTE: read the version first so that a concurrent change is never hidden behind a newer version number
+        final AvailabilitySnapshot latest = new AvailabilitySnapshot(resourceId, version.get(),
+                countFreeSlots(), holdReservations.size(), countConfirmedHolds.get(), System.nanoTime());
+
+        return snapshot.accumulateAndGet(latest, (current, candidate) ->
+                current == null || candidate.version >= current.version ? candidate : current);
+    }
+
+    /**
+     * Returns released slots to the available list and publishes the change, queued waiters are served first
+     *
+     * @param slots the released slots, the list is consumed
+     */
+    private void releaseSlots(List<Integer> slots) {
+        if (returnSlots(slots)) {
+            changed();
+        }
+    }
+
+    /**
+     * Returns slots to the available list without publishing a change, for slots that were drained by a request
+     * that is being rolled back and for callers that publish the change themselves. Queued waiters are served first.
+     *
+     * @param slots the slots, the list is consumed
+     * @return TRUE if there were any slots
+     */
+    private boolean returnSlots(List<Integer> slots) {
+        if (slots.isEmpty()) {
+            return false;
+        }
+
+        for (int i = slots.size() - 1; i >= 0; --i) {
+            if (parkIfClosed(slots.get(i))) {
+                slots.remove(i);
+            }
+        }
+        returnPartitionSlots(slots);
+
+        if (!waiters.isEmpty()) {
+            handOffToWaiters(slots);
+        }
+
+        for (Integer slot : slots) {
+            returnToPool(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Slots of a partition go straight back to it, only shared and section slots are handed to waiters
+     *
+     * @param slots the released slots, the partition slots are removed from it
+     */
+    private void returnPartitionSlots(List<Integer> slots) {
+        if (partitions.length == sectionPartitions.length) {
+            return;
+        }
+
+        slots.removeIf(slot -> {
+            int idx = partitionOf(slot);
+            if (idx < 0 || partitions[idx].open) {
+                return false;
+            }
+            returnToPool(slot);
+            return true;
+        });
+    }
+
+    /**
+     * Hands the free shared slots to the waiters at the head of the line if there are enough for the first one
+     */
+    private void serveWaiters() {
+        HoldWaiter head;
+        while ((head = waiters.peek()) != null && !head.isWaiting()) {
+            waiters.remove(head);
+        }
+
+        if (head == null || head.getSlotCount() > countSharedFreeSlots()) {
+            return;
+        }
+
+        List<Integer> slots = new ArrayList<>();
+        handOffToWaiters(slots);
+        returnSlots(slots);
+    }
+
+    /**
+     * Fulfils queued waiters (in FIFO order) from the given slots, topping up from the available list when needed.
+     * Slots that were not handed off are left in the list.
+     */
+    private void handOffToWaiters(List<Integer> slots) {
+        HoldWaiter waiter;
+        while ((waiter = waiters.peek()) != null) {
+            if (!waiter.isWaiting()) {
+                // fulfilled by another resource or expired
+                waiters.remove(waiter);
+                continue;
+            }
+
+            int slotCount = waiter.getSlotCount();
+            if (slots.size() < slotCount) {
+                drainSlots(null, null, slots, slotCount);
+            }
+
+            // NOTE: stop at the head of the line so that large requests are not starved by smaller ones
+            if (slots.size() < slotCount || !waiter.tryClaim()) {
+                break;
+            }
+
+            List<Integer> handOff = slots.subList(0, slotCount);
+            ReservationHold hold = buildReservationHold(waiter.ownerId, waiter.data,
+                    new ArrayList<>(handOff));
+            handOff.clear();
+
+            registerHold(hold);
+            changed();
+            waiters.remove(waiter);
+            waiter.fulfil(hold);
+
+            LOG.info("{} ticket #{} was handed hold #{} with {} slots", tag,
+                    waiter.getTicketId(), hold.getReservationId(), slotCount);
+        }
+    }
+
+    /**
+     * Processes and removes expired hold reservations and returns their held slots to the available list
+     */
+    protected void collectExpiredHolds() {
+        // NOTE: most calls have nothing to collect, they return without allocating
+        if (!holdIsExpired(expirationQueue.peek())) {
+            return;
+        }
+
+        List<Integer> reclaimedSlots = new ArrayList<>();
+        collectExpiredHolds(reclaimedSlots, 0);
+        returnSlots(reclaimedSlots);
+    }
+
+    /**
+     * Processes and removes expired hold reservations. The held slots are returned in a caller specified drain queue,
+     * the change is published once if any hold was collected
+     *
+     * @param drainSlotsTo
+     * @param desiredSlotCount Stop processing holds after given them of slots are collected
+     * @return
+     */
+    protected void collectExpiredHolds(Collection<Integer> drainSlotsTo, int desiredSlotCount) {
+        Object event = ReservationEvents.beginSweep();
+        int expiredHolds = 0;
+        int expiredSlots = 0;
+        long lagMillis = 0;
+
+        List<Integer> surplusSlots = new ArrayList<>();
+        while (holdIsExpired(expirationQueue.peek())) {
+            // remove the hold from the queue
+            ReservationHold hold = expirationQueue.poll();
+
+            // ** RACE CONDITION CHECK **
+            // the hold was removed from the top of the queue might not be the same one that we checked at the start
+            // of the while loop so need to verify that we didn't remove a hold that has not yet expired
+            if (!holdIsExpired(hold)) {
+                if (hold != null) {
+                    expirationQueue.offer(hold);
+                }
+                break;
+            }
+
+            // NOTE: confirmed holds are not drained, checking and removing under the hold's lock keeps a concurrent
+            // confirm from confirming a hold that is being collected
+            boolean collected;
+            Object lockWait = ReservationEvents.beginLockWait();
+            synchronized (hold) {
+                ReservationEvents.commitLockWait(lockWait, this, "hold");
+                collected = !hold.isConfirmed() && holdReservations.remove(hold.getReservationId(), hold);
+                if (collected) {
+                    markFree(hold.getSlots());
+                }
+            }
+
+            if (collected) {
+                if (expiredHolds++ == 0 && event != null) {
+                    OffsetDateTime expiredAt = hold.getTimeStamp().plusSeconds(holdTimeStampProvider.getHoldTtl());
+                    lagMillis = Duration.between(expiredAt, holdTimeStampProvider.getTimeStamp()).toMillis();
+                }
+                expiredSlots += hold.getSlots().size();
+
+                for (Integer slot : hold.getSlots()) {
+                    if (parkIfClosed(slot)) {
+                        continue;
+                    }
+                    if (desiredSlotCount == 0 || drainSlotsTo.size() < desiredSlotCount) {
+                        drainSlotsTo.add(slot);
+                    } else {
+                        surplusSlots.add(slot);
+                    }
+                }
+
+                LOG.info("{} hold #{} (created: {}) with {} slots has expired",
+                        tag, hold.getReservationId(), hold.getTimeStamp(), hold.getSlots().size());
+
+                if (desiredSlotCount > 0 && drainSlotsTo.size() >= desiredSlotCount) {
+                    break;
+                }
+            }
+        }
+
+        returnSlots(surplusSlots);
+        if (expiredHolds > 0) {
+            changed();
+        }
+        ReservationEvents.commitSweep(event, this, expiredHolds, expiredSlots, lagMillis);
+    }
+
+    private boolean holdIsExpired(ReservationHold hold) {
+        if (hold == null) {
+            return false;
+        }
+        return holdTimeStampProvider.isExpired(hold.getTimeStamp());
+    }
+
+    /**
+     * A hold or confirm request published for the combiner
+     */
+    static final class CombinedRequest {
+        final int slotCount;
+        final int ownerId;
+        final Object data;
+        final int holdId;
+        final int[] holdIds;
+        final int[] ownerIds;
+        final Thread caller = Thread.currentThread();
+
+        Object result;
+        RuntimeException failure;
+        boolean applied;
+        volatile boolean done;
+
+        CombinedRequest(int slotCount, int ownerId, Object data) {
+            this.slotCount = slotCount;
+            this.ownerId = ownerId;
+            this.data = data;
+            this.holdId = 0;
+            this.holdIds = null;
+            this.ownerIds = null;
+        }
+
+        CombinedRequest(int holdId) {
+            this.slotCount = 0;
+            this.ownerId = ReservationHold.NO_OWNER;
+            this.data = null;
+            this.holdId = holdId;
+            this.holdIds = null;
+            this.ownerIds = null;
+        }
+
+        CombinedRequest(int[] holdIds, int[] ownerIds) {
+            this.slotCount = 0;
+            this.ownerId = ReservationHold.NO_OWNER;
+            this.data = null;
+            this.holdId = 0;
+            this.holdIds = holdIds;
+            this.ownerIds = ownerIds;
+        }
+
+        boolean isConfirm() {
+            return slotCount == 0;
+        }
+
+        void complete() {
+            done = true;
+            LockSupport.unpark(caller);
         }
-        return holdTimeStampProvider.isExpired(hold.getTimeStamp());
     }
 }
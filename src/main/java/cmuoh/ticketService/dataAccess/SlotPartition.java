@@ -0,0 +1,96 @@
+package cmuoh.ticketService.dataAccess;
+
+/**
+ * A named range of slots on a resource that is set aside for requests made on behalf of the partition (e.g. a sales
+ * channel quota). Slots of a partition are only handed to requests that name it; they are returned to the partition
+ * when the holds on them expire or are cancelled.
+ *
+ * Open partitions (the sections of a seat level) split the resource instead of setting slots aside: each one has its
+ * own allocator but they also serve the requests that don't name any partition.
+ *
+ * @implNote This object is immutable
+ */
+public final class SlotPartition {
+    final String name;
+    final int firstSlot;
+    final int slotCount;
+    final boolean borrowsShared;
+    final boolean open;
+
+    /**
+     * Initialize the partition
+     *
+     * @param name identifies the partition in hold requests
+     * @param firstSlot the first slot of the range
+     * @param slotCount number of slots in the range
+     * @param borrowsShared can requests for the partition overflow into the slots that are not partitioned
+     */
+    public SlotPartition(String name, int firstSlot, int slotCount, boolean borrowsShared) {
+        this(name, firstSlot, slotCount, borrowsShared, false);
+    }
+
+    private SlotPartition(String name, int firstSlot, int slotCount, boolean borrowsShared, boolean open) {
+        if (name == null) {
+            throw new NullPointerException("name");
+        }
+
+        if (firstSlot < 0 || slotCount < 1) {
+            throw new IllegalArgumentException("slot range");
+        }
+
+        this.name = name;
+        this.firstSlot = firstSlot;
+        this.slotCount = slotCount;
+        this.borrowsShared = borrowsShared;
+        this.open = open;
+    }
+
+    /**
+     * An open partition for a section of a resource
+     *
+     * @param name identifies the section in hold requests
+     * @param firstSlot the first slot of the range
+     * @param slotCount number of slots in the range
+     * @return
+     */
+    public static SlotPartition section(String name, int firstSlot, int slotCount) {
+        return new SlotPartition(name, firstSlot, slotCount, false, true);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[name=%s, slots=[%d, %d), borrowsShared=%s, open=%s]",
+                this.getClass().getName(),
+                name,
+                firstSlot,
+                firstSlot + slotCount,
+                borrowsShared,
+                open);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFirstSlot() {
+        return firstSlot;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Can requests for the partition overflow into the slots that are not partitioned
+     */
+    public boolean isBorrowsShared() {
+        return borrowsShared;
+    }
+
+    /**
+     * Do requests that don't name any partition get served from this one
+     */
+    public boolean isOpen() {
+        return open;
+    }
+}
@@ -0,0 +1,316 @@
+package cmuoh.ticketService.dataAccess;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The free slots of a resource (or of a range of its slots), kept as a bitmap that is split into stripes of
+ * contiguous words.
+ *
+ * A caller claims slots from its home stripe (picked by thread) and only steals from the neighbouring stripes when
+ * the home stripe runs short, so concurrent callers mostly touch different cache lines. A slot is claimed by clearing
+ * its bit with a CAS, which is what guarantees that a slot is never handed out twice; the free count is kept in
+ * {@link LongAdder} cells and is only as exact as {@link LongAdder#sum()}.
+ *
+ * @implNote This object is thread safe
+ */
+public final class SlotPool {
+    static final int MIN_STRIPE_WORDS = 8;
+
+    final int firstSlot;
+    final int endSlot;
+    final int wordOffset;
+    final int capacity;
+    final AtomicLongArray free;
+    final int[] stripeStart;
+    final AtomicIntegerArray stripeHint;
+    final LongAdder freeCount = new LongAdder();
+
+    /**
+     * Initialize a pool over a range of slots where every slot is free, stripes are never smaller than
+     * {@link #MIN_STRIPE_WORDS} words
+     *
+     * @param firstSlot the first slot of the range
+     * @param slotCount number of slots in the range
+     * @param stripes desired number of stripes, e.g. the number of cores
+     * @param excluded ranges ({first, count}) within the range that belong to other pools
+     */
+    SlotPool(int firstSlot, int slotCount, int stripes, List<int[]> excluded) {
+        if (firstSlot < 0 || slotCount < 0) {
+            throw new IllegalArgumentException("slot range");
+        }
+
+        // NOTE: words are aligned with the global slot numbers so that per slot masks can be applied as is
+        int words = slotCount > 0 ? SlotStateMap.wordCount(firstSlot + slotCount) - (firstSlot >>> 6) : 0;
+        int stripeCount = Math.max(1, Math.min(stripes, words / MIN_STRIPE_WORDS));
+
+        this.firstSlot = firstSlot;
+        this.endSlot = firstSlot + slotCount;
+        this.wordOffset = firstSlot >>> 6;
+        this.free = new AtomicLongArray(words);
+        this.stripeStart = new int[stripeCount + 1];
+        this.stripeHint = new AtomicIntegerArray(stripeCount);
+
+        for (int stripe = 0; stripe <= stripeCount; ++stripe) {
+            stripeStart[stripe] = (int) ((long) stripe * words / stripeCount);
+        }
+        for (int stripe = 0; stripe < stripeCount; ++stripe) {
+            stripeHint.set(stripe, stripeStart[stripe]);
+        }
+
+        setRange(firstSlot, endSlot, true);
+        int freeSlots = slotCount;
+        for (int[] range : excluded) {
+            int from = Math.max(range[0], firstSlot);
+            int to = Math.min(range[0] + range[1], endSlot);
+            if (from < to) {
+                setRange(from, to, false);
+                freeSlots -= to - from;
+            }
+        }
+
+        this.capacity = freeSlots;
+        freeCount.add(freeSlots);
+    }
+
+    SlotPool(int firstSlot, int slotCount, int stripes) {
+        this(firstSlot, slotCount, stripes, Collections.emptyList());
+    }
+
+    SlotPool(int capacity, int stripes) {
+        this(0, capacity, stripes);
+    }
+
+    SlotPool(int capacity) {
+        this(capacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[capacity=%d, stripes=%d, free=%d]",
+                this.getClass().getName(),
+                capacity,
+                countStripes(),
+                size());
+    }
+
+    /**
+     * Does a slot belong to the range of the pool, whether it is free or not
+     *
+     * @param slot
+     * @return
+     */
+    public boolean covers(int slot) {
+        return slot >= firstSlot && slot < endSlot;
+    }
+
+    /**
+     *
+     * @return number of stripes the slots are split into
+     */
+    public int countStripes() {
+        return stripeHint.length();
+    }
+
+    /**
+     *
+     * @return number of free slots
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(freeCount.sum(), capacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Is a slot free
+     *
+     * @param slot
+     * @return
+     */
+    public boolean contains(Object slot) {
+        if (!(slot instanceof Integer)) {
+            return false;
+        }
+
+        int num = (Integer) slot;
+        return covers(num) && (free.get((num >>> 6) - wordOffset) & (1L << num)) != 0;
+    }
+
+    /**
+     * Claims up to the given number of free slots, lowest slots of the caller's stripe first
+     *
+     * @param claimed where the claimed slots are added
+     * @param maxSlots
+     * @return the number of claimed slots
+     */
+    public int drainTo(Collection<? super Integer> claimed, int maxSlots) {
+        return drainTo(claimed, maxSlots, null);
+    }
+
+    /**
+     * Claims up to the given number of free slots that are set in a mask, the mask is applied a word at a time
+     *
+     * @param claimed where the claimed slots are added
+     * @param maxSlots
+     * @param mask bitmap of the slots that can be claimed (indexed by slot number), NULL for any slot
+     * @return the number of claimed slots
+     */
+    public int drainTo(Collection<? super Integer> claimed, int maxSlots, long[] mask) {
+        int stripes = countStripes();
+        int home = (int) (Thread.currentThread().getId() % stripes);
+
+        int drained = 0;
+        for (int i = 0; i < stripes && drained < maxSlots; ++i) {
+            // NOTE: any stripe after the first one is stolen from
+            int stripe = home + i < stripes ? home + i : home + i - stripes;
+            drained += drainStripe(stripe, claimed, maxSlots - drained, mask);
+        }
+
+        if (drained > 0) {
+            freeCount.add(-drained);
+        }
+
+        return drained;
+    }
+
+    /**
+     * Returns slots to the pool
+     *
+     * @param slots
+     * @throws IllegalStateException if a slot is already free
+     */
+    public void addAll(Collection<Integer> slots) {
+        for (Integer slot : slots) {
+            add(slot);
+        }
+    }
+
+    /**
+     * Returns a slot to the pool
+     *
+     * @param slot
+     * @throws IllegalStateException if the slot is already free
+     */
+    public void add(int slot) {
+        if (!covers(slot)) {
+            throw new IllegalArgumentException(String.format("slot %d is not in [%d, %d)", slot, firstSlot, endSlot));
+        }
+
+        long bit = 1L << slot;
+        int word = (slot >>> 6) - wordOffset;
+
+        if ((free.getAndAccumulate(word, bit, (current, mask) -> current | mask) & bit) != 0) {
+            throw new IllegalStateException(String.format("slot %d is already free", slot));
+        }
+
+        freeCount.increment();
+        stripeHint.accumulateAndGet(stripeOf(word), word, Math::min);
+    }
+
+    /**
+     * Takes a free slot out of the pool
+     *
+     * @param slot
+     * @return TRUE if the slot was free else FALSE
+     */
+    public boolean remove(int slot) {
+        if (!covers(slot)) {
+            return false;
+        }
+
+        long bit = 1L << slot;
+        int word = (slot >>> 6) - wordOffset;
+
+        if ((free.getAndAccumulate(word, ~bit, (current, mask) -> current & mask) & bit) == 0) {
+            return false;
+        }
+
+        freeCount.decrement();
+        return true;
+    }
+
+    private int drainStripe(int stripe, Collection<? super Integer> claimed, int maxSlots, long[] mask) {
+        int drained = 0;
+        int end = stripeStart[stripe + 1];
+
+        for (int word = stripeHint.get(stripe); word < end && drained < maxSlots; ++word) {
+            long wordMask = mask == null ? -1L : wordOffset + word < mask.length ? mask[wordOffset + word] : 0L;
+            if (wordMask == 0) {
+                continue;
+            }
+
+            long bits;
+            while ((bits = free.get(word)) != 0 && (bits & wordMask) != 0 && drained < maxSlots) {
+                long taken = lowestBits(bits & wordMask, maxSlots - drained);
+                if (free.compareAndSet(word, bits, bits & ~taken)) {
+                    for (long remaining = taken; remaining != 0; remaining &= remaining - 1) {
+                        claimed.add(((wordOffset + word) << 6) + Long.numberOfTrailingZeros(remaining));
+                    }
+                    drained += Long.bitCount(taken);
+                }
+            }
+
+            // NOTE: the hint only moves past words that were seen empty, releases move it back
+            if (bits == 0 && stripeHint.compareAndSet(stripe, word, word + 1) && free.get(word) != 0) {
+                // a slot was released in between, don't strand it behind the hint
+                stripeHint.accumulateAndGet(stripe, word, Math::min);
+            }
+        }
+
+        return drained;
+    }
+
+    /**
+     * Number of free slots that are set in a mask
+     *
+     * @param mask bitmap of the slots to count (indexed by slot number)
+     * @return
+     */
+    public int countMatching(long[] mask) {
+        int count = 0;
+        for (int word = 0; word < free.length() && wordOffset + word < mask.length; ++word) {
+            count += Long.bitCount(free.get(word) & mask[wordOffset + word]);
+        }
+        return count;
+    }
+
+    private int stripeOf(int word) {
+        int stripe = (int) ((long) word * countStripes() / free.length());
+        while (word < stripeStart[stripe]) {
+            --stripe;
+        }
+        while (word >= stripeStart[stripe + 1]) {
+            ++stripe;
+        }
+        return stripe;
+    }
+
+    private void setRange(int from, int to, boolean isFree) {
+        for (int slot = from; slot < to; ++slot) {
+            int word = (slot >>> 6) - wordOffset;
+            long bit = 1L << slot;
+            free.set(word, isFree ? free.get(word) | bit : free.get(word) & ~bit);
+        }
+    }
+
+    private static long lowestBits(long bits, int count) {
+        if (Long.bitCount(bits) <= count) {
+            return bits;
+        }
+
+        long taken = 0;
+        for (int i = 0; i < count; ++i) {
+            long lowest = Long.lowestOneBit(bits);
+            taken |= lowest;
+            bits &= ~lowest;
+        }
+        return taken;
+    }
+}
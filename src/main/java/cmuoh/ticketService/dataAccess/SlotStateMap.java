@@ -0,0 +1,120 @@
+package cmuoh.ticketService.dataAccess;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per slot state of a resource kept as two bitmaps (held and confirmed), one bit per slot.
+ *
+ * The bitmaps are the compact view of the state that is otherwise spread over the hold objects; they are maintained
+ * as holds are placed, confirmed and expired and can be run-length encoded word-at-a-time without visiting each slot.
+ *
+ * @implNote This object is thread safe, a reader can observe changes to different slots in any order
+ */
+public final class SlotStateMap {
+    public static final int FREE = 0;
+    public static final int HELD = 1;
+    public static final int CONFIRMED = 2;
+
+    final int capacity;
+    final AtomicLongArray held;
+    final AtomicLongArray confirmed;
+
+    SlotStateMap(int capacity) {
+        this.capacity = capacity;
+        this.held = new AtomicLongArray(wordCount(capacity));
+        this.confirmed = new AtomicLongArray(wordCount(capacity));
+    }
+
+    static int wordCount(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     *
+     * @return number of slots in the map
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The state of a single slot
+     *
+     * @param slot
+     * @return one of {@link #FREE}, {@link #HELD} or {@link #CONFIRMED}
+     */
+    public int stateOf(int slot) {
+        long bit = 1L << slot;
+        if ((confirmed.get(slot >>> 6) & bit) != 0) {
+            return CONFIRMED;
+        }
+        return (held.get(slot >>> 6) & bit) != 0 ? HELD : FREE;
+    }
+
+    void markHeld(Collection<Integer> slots) {
+        for (Integer slot : slots) {
+            held.accumulateAndGet(slot >>> 6, 1L << slot, (word, bit) -> word | bit);
+        }
+    }
+
+    void markConfirmed(Collection<Integer> slots) {
+        for (Integer slot : slots) {
+            confirmed.accumulateAndGet(slot >>> 6, 1L << slot, (word, bit) -> word | bit);
+        }
+    }
+
+    void markFree(Collection<Integer> slots) {
+        for (Integer slot : slots) {
+            confirmed.accumulateAndGet(slot >>> 6, ~(1L << slot), (word, mask) -> word & mask);
+            held.accumulateAndGet(slot >>> 6, ~(1L << slot), (word, mask) -> word & mask);
+        }
+    }
+
+    /**
+     * Run-length encodes the slot states. Each run is written as an unsigned LEB128 varint of
+     * {@code (runLength << 2) | state}, runs are in slot order and cover every slot.
+     *
+     * @return the encoded runs
+     */
+    public byte[] encodeRuns() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+
+        int slot = 0;
+        while (slot < capacity) {
+            int state = stateOf(slot);
+            long heldPattern = state != FREE ? -1L : 0L;
+            long confirmedPattern = state == CONFIRMED ? -1L : 0L;
+
+            // find the end of the run one word at a time
+            int runEnd = slot;
+            while (runEnd < capacity) {
+                int word = runEnd >>> 6;
+                long differs = ((held.get(word) ^ heldPattern) | (confirmed.get(word) ^ confirmedPattern))
+                        >>> (runEnd & 63);
+                if (differs == 0) {
+                    runEnd += 64 - (runEnd & 63);
+                } else {
+                    runEnd += Long.numberOfTrailingZeros(differs);
+                    break;
+                }
+            }
+
+            // NOTE: the slot can change under a concurrent reader, always make progress
+            runEnd = Math.max(Math.min(runEnd, capacity), slot + 1);
+            writeVarint(out, ((long) (runEnd - slot) << 2) | state);
+            slot = runEnd;
+        }
+
+        return out.toByteArray();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,60 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * A frame on the availability stream, it either carries the levels that changed since the previous frame or the
+ * state of every level
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class AvailabilityDelta {
+    @JsonProperty
+    private Long sequence;
+
+    @JsonProperty
+    private Boolean fullState;
+
+    @JsonProperty
+    private List<LevelAvailability> levels;
+
+    @Deprecated
+    public AvailabilityDelta() {
+
+    }
+
+    public AvailabilityDelta(Long sequence, Boolean fullState, List<LevelAvailability> levels) {
+        this.sequence = sequence;
+        this.fullState = fullState;
+        this.levels = levels;
+    }
+
+    /**
+     * Sequence number of the delta, a full state frame carries the sequence of the latest delta it includes
+     */
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Boolean getFullState() {
+        return fullState;
+    }
+
+    public void setFullState(Boolean fullState) {
+        this.fullState = fullState;
+    }
+
+    public List<LevelAvailability> getLevels() {
+        return levels;
+    }
+
+    public void setLevels(List<LevelAvailability> levels) {
+        this.levels = levels;
+    }
+}
@@ -0,0 +1,72 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for the server-sent events stream of availability changes
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AvailabilityStreamConfiguration {
+    @JsonProperty
+    @Min(10)
+    private Integer coalesceWindow = 250;
+
+    @JsonProperty
+    @Min(1)
+    private Integer subscriberBufferSize = 8;
+
+    @JsonProperty
+    @Min(1)
+    private Integer maxSubscribers = 10000;
+
+    @JsonProperty
+    @Min(1)
+    private Integer writerThreads = 4;
+
+    /**
+     * Number of milliseconds over which changes are coalesced into a single delta frame
+     */
+    public Integer getCoalesceWindow() {
+        return coalesceWindow;
+    }
+
+    public void setCoalesceWindow(Integer coalesceWindow) {
+        this.coalesceWindow = coalesceWindow;
+    }
+
+    /**
+     * Number of frames buffered for a subscriber, slow subscribers that fall further behind are sent the latest state
+     */
+    public Integer getSubscriberBufferSize() {
+        return subscriberBufferSize;
+    }
+
+    public void setSubscriberBufferSize(Integer subscriberBufferSize) {
+        this.subscriberBufferSize = subscriberBufferSize;
+    }
+
+    /**
+     * Maximum number of concurrent subscribers
+     */
+    public Integer getMaxSubscribers() {
+        return maxSubscribers;
+    }
+
+    public void setMaxSubscribers(Integer maxSubscribers) {
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    /**
+     * Number of threads writing frames to subscribers
+     */
+    public Integer getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(Integer writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+}
@@ -0,0 +1,117 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for the adaptive concurrency limit on the hold and reserve endpoints
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConcurrencyLimitConfiguration {
+    @JsonProperty
+    private boolean enabled = false;
+
+    @JsonProperty
+    @Min(1)
+    private Integer initialLimit = 100;
+
+    @JsonProperty
+    @Min(1)
+    private Integer minLimit = 10;
+
+    @JsonProperty
+    @Min(1)
+    private Integer maxLimit = 1000;
+
+    @JsonProperty
+    @Min(0)
+    @Max(90)
+    private Integer reservedPercent = 20;
+
+    @JsonProperty
+    private Double latencyTolerance = 2.0;
+
+    @JsonProperty
+    @Min(1)
+    private Integer retryAfter = 1;
+
+    /**
+     * Shed requests above the limit instead of letting them queue up
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Number of concurrent requests allowed before any latency was measured
+     */
+    public Integer getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(Integer initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    /**
+     * The limit never drops below this number of concurrent requests
+     */
+    public Integer getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(Integer minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    /**
+     * The limit never grows above this number of concurrent requests
+     */
+    public Integer getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(Integer maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Percentage of the limit that only reserve requests can use, new holds are shed first
+     */
+    public Integer getReservedPercent() {
+        return reservedPercent;
+    }
+
+    public void setReservedPercent(Integer reservedPercent) {
+        this.reservedPercent = reservedPercent;
+    }
+
+    /**
+     * How much slower than the long term average latency requests can get before the limit is lowered
+     */
+    public Double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public void setLatencyTolerance(Double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * Number of seconds a shed client is asked to wait before retrying
+     */
+    public Integer getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Integer retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,81 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Result of verifying a reservation confirmation code, the reservation details are only set for valid codes
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ConfirmationCode {
+    @JsonProperty
+    private String code;
+
+    @JsonProperty
+    private Boolean valid;
+
+    @JsonProperty
+    private Integer reservationId;
+
+    @JsonProperty
+    private Integer level;
+
+    @JsonProperty
+    private Integer seatCount;
+
+    @Deprecated
+    public ConfirmationCode() {
+
+    }
+
+    public ConfirmationCode(String code, Boolean valid, Integer reservationId, Integer level, Integer seatCount) {
+        this.code = code;
+        this.valid = valid;
+        this.reservationId = reservationId;
+        this.level = level;
+        this.seatCount = seatCount;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    /**
+     * Was the code signed with the service key
+     */
+    public Boolean getValid() {
+        return valid;
+    }
+
+    public void setValid(Boolean valid) {
+        this.valid = valid;
+    }
+
+    public Integer getReservationId() {
+        return reservationId;
+    }
+
+    public void setReservationId(Integer reservationId) {
+        this.reservationId = reservationId;
+    }
+
+    public Integer getLevel() {
+        return level;
+    }
+
+    public void setLevel(Integer level) {
+        this.level = level;
+    }
+
+    public Integer getSeatCount() {
+        return seatCount;
+    }
+
+    public void setSeatCount(Integer seatCount) {
+        this.seatCount = seatCount;
+    }
+}
@@ -0,0 +1,25 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the signed reservation confirmation codes
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConfirmationCodeConfiguration {
+    @JsonProperty
+    private String secret;
+
+    /**
+     * Base64 encoded key the codes are signed with, a random key is generated on startup when it is not set (codes
+     * then can't be verified by other instances or after a restart)
+     */
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+}
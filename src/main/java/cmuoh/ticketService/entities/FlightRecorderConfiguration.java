@@ -0,0 +1,24 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration for the JDK Flight Recorder events on the reservation managers
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlightRecorderConfiguration {
+    @JsonProperty
+    private boolean enabled = false;
+
+    /**
+     * Create the hold, confirm, expiry sweep and lock wait events, recordings are started with the admin task
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
@@ -0,0 +1,57 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for remembering the results of requests sent with an Idempotency-Key header
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IdempotencyConfiguration {
+    @JsonProperty
+    @Min(1)
+    private Integer maxEntries = 100000;
+
+    @JsonProperty
+    @Min(1)
+    private Integer expireAfter = 600;
+
+    @JsonProperty
+    @Min(0)
+    private Integer awaitInFlight = 10;
+
+    /**
+     * Maximum number of idempotency keys to remember per endpoint
+     */
+    public Integer getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(Integer maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Number of seconds an idempotency key is remembered
+     */
+    public Integer getExpireAfter() {
+        return expireAfter;
+    }
+
+    public void setExpireAfter(Integer expireAfter) {
+        this.expireAfter = expireAfter;
+    }
+
+    /**
+     * Number of seconds a duplicate request waits for the original one to finish
+     */
+    public Integer getAwaitInFlight() {
+        return awaitInFlight;
+    }
+
+    public void setAwaitInFlight(Integer awaitInFlight) {
+        this.awaitInFlight = awaitInFlight;
+    }
+}
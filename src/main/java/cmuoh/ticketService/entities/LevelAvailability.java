@@ -0,0 +1,107 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Availability of a single seat level
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class LevelAvailability {
+    @JsonProperty
+    private Integer level;
+
+    @JsonProperty
+    private Integer availableSeats;
+
+    @JsonProperty
+    private Long version;
+
+    @JsonProperty
+    private Integer seatsTogether;
+
+    @JsonProperty
+    private Integer blocks;
+
+    @JsonProperty
+    private Integer largestBlock;
+
+    @Deprecated
+    public LevelAvailability() {
+
+    }
+
+    public LevelAvailability(Integer level, Integer availableSeats, Long version) {
+        this.level = level;
+        this.availableSeats = availableSeats;
+        this.version = version;
+    }
+
+    public LevelAvailability(Integer level, Integer availableSeats, Long version, Integer seatsTogether,
+                             Integer blocks, Integer largestBlock) {
+        this(level, availableSeats, version);
+        this.seatsTogether = seatsTogether;
+        this.blocks = blocks;
+        this.largestBlock = largestBlock;
+    }
+
+    public Integer getLevel() {
+        return level;
+    }
+
+    public void setLevel(Integer level) {
+        this.level = level;
+    }
+
+    public Integer getAvailableSeats() {
+        return availableSeats;
+    }
+
+    public void setAvailableSeats(Integer availableSeats) {
+        this.availableSeats = availableSeats;
+    }
+
+    /**
+     * Change version of the level, versions only ever increase
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Size of the blocks of adjacent seats that were counted
+     */
+    public Integer getSeatsTogether() {
+        return seatsTogether;
+    }
+
+    public void setSeatsTogether(Integer seatsTogether) {
+        this.seatsTogether = seatsTogether;
+    }
+
+    /**
+     * Number of disjoint blocks of {@link #getSeatsTogether()} adjacent free seats in the same row
+     */
+    public Integer getBlocks() {
+        return blocks;
+    }
+
+    public void setBlocks(Integer blocks) {
+        this.blocks = blocks;
+    }
+
+    /**
+     * The largest number of adjacent free seats in any row
+     */
+    public Integer getLargestBlock() {
+        return largestBlock;
+    }
+
+    public void setLargestBlock(Integer largestBlock) {
+        this.largestBlock = largestBlock;
+    }
+}
@@ -0,0 +1,99 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for the per customer and per client address rate limits on hold requests
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RateLimitConfiguration {
+    @JsonProperty
+    private boolean enabled = false;
+
+    @JsonProperty
+    private Double customerRate = 2.0;
+
+    @JsonProperty
+    @Min(1)
+    private Integer customerBurst = 10;
+
+    @JsonProperty
+    private Double addressRate = 20.0;
+
+    @JsonProperty
+    @Min(1)
+    private Integer addressBurst = 100;
+
+    @JsonProperty
+    @Min(1)
+    private Integer maxTrackedKeys = 65536;
+
+    /**
+     * Reject hold requests from customers and client addresses that exceed their rate
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Number of hold requests per second allowed for each customer email
+     */
+    public Double getCustomerRate() {
+        return customerRate;
+    }
+
+    public void setCustomerRate(Double customerRate) {
+        this.customerRate = customerRate;
+    }
+
+    /**
+     * Number of hold requests a customer can make at once after being idle
+     */
+    public Integer getCustomerBurst() {
+        return customerBurst;
+    }
+
+    public void setCustomerBurst(Integer customerBurst) {
+        this.customerBurst = customerBurst;
+    }
+
+    /**
+     * Number of hold requests per second allowed for each client address
+     */
+    public Double getAddressRate() {
+        return addressRate;
+    }
+
+    public void setAddressRate(Double addressRate) {
+        this.addressRate = addressRate;
+    }
+
+    /**
+     * Number of hold requests a client address can make at once after being idle
+     */
+    public Integer getAddressBurst() {
+        return addressBurst;
+    }
+
+    public void setAddressBurst(Integer addressBurst) {
+        this.addressBurst = addressBurst;
+    }
+
+    /**
+     * Approximate number of customers and of client addresses whose buckets are remembered
+     */
+    public Integer getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    public void setMaxTrackedKeys(Integer maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+}
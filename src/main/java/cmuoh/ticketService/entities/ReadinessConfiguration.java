@@ -0,0 +1,105 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for the readiness health checks and the warm-up before the service reports ready
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReadinessConfiguration {
+    @JsonProperty
+    @Min(0)
+    private Integer warmUpIterations = 20000;
+
+    @JsonProperty
+    @Min(1)
+    private Integer maxExpiryLag = 5000;
+
+    @JsonProperty
+    @Min(1)
+    private Integer maxQueueDepth = 1000;
+
+    @JsonProperty
+    @Min(1)
+    private Integer maxHoldLatency = 500;
+
+    @JsonProperty
+    @Min(50)
+    @Max(100)
+    private Double holdLatencyPercentile = 99.0;
+
+    @JsonProperty
+    @Min(1)
+    private Integer holdLatencyWindow = 30;
+
+    /**
+     * Number of hold, confirm and cancel rounds run against scratch copies of the seat levels before the service
+     * reports ready, 0 disables the warm-up
+     */
+    public Integer getWarmUpIterations() {
+        return warmUpIterations;
+    }
+
+    public void setWarmUpIterations(Integer warmUpIterations) {
+        this.warmUpIterations = warmUpIterations;
+    }
+
+    /**
+     * Milliseconds a hold can stay expired without being collected
+     */
+    public Integer getMaxExpiryLag() {
+        return maxExpiryLag;
+    }
+
+    public void setMaxExpiryLag(Integer maxExpiryLag) {
+        this.maxExpiryLag = maxExpiryLag;
+    }
+
+    /**
+     * Maximum number of requests waiting for the combiner or for reclaimed seats on a level
+     */
+    public Integer getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public void setMaxQueueDepth(Integer maxQueueDepth) {
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    /**
+     * Milliseconds the hold latency percentile can reach
+     */
+    public Integer getMaxHoldLatency() {
+        return maxHoldLatency;
+    }
+
+    public void setMaxHoldLatency(Integer maxHoldLatency) {
+        this.maxHoldLatency = maxHoldLatency;
+    }
+
+    /**
+     * The hold latency percentile that is checked against maxHoldLatency
+     */
+    public Double getHoldLatencyPercentile() {
+        return holdLatencyPercentile;
+    }
+
+    public void setHoldLatencyPercentile(Double holdLatencyPercentile) {
+        this.holdLatencyPercentile = holdLatencyPercentile;
+    }
+
+    /**
+     * Seconds of hold requests the latency percentile is measured over, every hold in the window is kept
+     */
+    public Integer getHoldLatencyWindow() {
+        return holdLatencyWindow;
+    }
+
+    public void setHoldLatencyWindow(Integer holdLatencyWindow) {
+        this.holdLatencyWindow = holdLatencyWindow;
+    }
+}
@@ -0,0 +1,45 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A single seat hold to confirm in a batch reservation request
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ReservationRequest {
+    @JsonProperty
+    private Integer seatHoldId;
+
+    @JsonProperty
+    private String customerEmail;
+
+    @Deprecated
+    public ReservationRequest() {
+
+    }
+
+    public ReservationRequest(Integer seatHoldId, String customerEmail) {
+        this.seatHoldId = seatHoldId;
+        this.customerEmail = customerEmail;
+    }
+
+    public Integer getSeatHoldId() {
+        return seatHoldId;
+    }
+
+    public void setSeatHoldId(Integer seatHoldId) {
+        this.seatHoldId = seatHoldId;
+    }
+
+    /**
+     * The email address of the customer to which the seat hold is assigned
+     */
+    public String getCustomerEmail() {
+        return customerEmail;
+    }
+
+    public void setCustomerEmail(String customerEmail) {
+        this.customerEmail = customerEmail;
+    }
+}
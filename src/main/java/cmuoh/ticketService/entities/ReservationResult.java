@@ -0,0 +1,78 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The outcome of confirming a single seat hold in a batch reservation request
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ReservationResult {
+    public enum Status {
+        CONFIRMED,
+        NOT_FOUND,
+        INVALID
+    }
+
+    @JsonProperty
+    private Integer seatHoldId;
+
+    @JsonProperty
+    private Status status;
+
+    @JsonProperty
+    private String reservationCode;
+
+    @JsonProperty
+    private String message;
+
+    @Deprecated
+    public ReservationResult() {
+
+    }
+
+    public ReservationResult(Integer seatHoldId, Status status, String reservationCode, String message) {
+        this.seatHoldId = seatHoldId;
+        this.status = status;
+        this.reservationCode = reservationCode;
+        this.message = message;
+    }
+
+    public Integer getSeatHoldId() {
+        return seatHoldId;
+    }
+
+    public void setSeatHoldId(Integer seatHoldId) {
+        this.seatHoldId = seatHoldId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * The reservation confirmation code iff the hold was confirmed
+     */
+    public String getReservationCode() {
+        return reservationCode;
+    }
+
+    public void setReservationCode(String reservationCode) {
+        this.reservationCode = reservationCode;
+    }
+
+    /**
+     * Why the hold was not confirmed
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
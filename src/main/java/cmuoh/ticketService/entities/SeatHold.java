@@ -8,6 +8,7 @@ import javax.validation.constraints.Min;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
+import java.util.List;
 
 /**
  * Represents resource holds for a venue seats
@@ -51,6 +52,9 @@ public final class SeatHold {
     @JsonProperty
     private Boolean confirmed;
 
+    @JsonProperty
+    private List<SeatHold> parts;
+
     public Integer getReservationId() {
         return reservationId;
     }
@@ -75,6 +79,9 @@ public final class SeatHold {
         this.seatCount = seatCount;
     }
 
+    /**
+     * The customer email as the service matches it: trimmed and with the domain lower cased
+     */
     public String getCustomerEmail() {
         return customerEmail;
     }
@@ -98,4 +105,15 @@ public final class SeatHold {
     public void setTimeStamp(OffsetDateTime timeStamp) {
         this.timeStamp = timeStamp;
     }
+
+    /**
+     * The per level holds of a hold that was split across levels, the level of such a hold is not set
+     */
+    public List<SeatHold> getParts() {
+        return parts;
+    }
+
+    public void setParts(List<SeatHold> parts) {
+        this.parts = parts;
+    }
 }
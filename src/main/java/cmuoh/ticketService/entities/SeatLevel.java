@@ -4,8 +4,13 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Seat level details for a venue
@@ -28,6 +33,22 @@ public class SeatLevel {
     @JsonProperty(required = true)
     private int seatsInRow;
 
+    @JsonProperty
+    private LinkedHashMap<String, Integer> channelQuotas = new LinkedHashMap<>();
+
+    @JsonProperty
+    private Boolean channelOverflow = true;
+
+    @JsonProperty
+    private Map<String, List<String>> seatAttributes = new LinkedHashMap<>();
+
+    @Valid
+    @JsonProperty
+    private List<SeatSection> sections = new ArrayList<>();
+
+    @JsonProperty
+    private List<String> closedSeats = new ArrayList<>();
+
     /**
      * Name for the seating level
      */
@@ -71,4 +92,64 @@ public class SeatLevel {
     public void setSeatsInRow(int seatsInRow) {
         this.seatsInRow = seatsInRow;
     }
+
+    /**
+     * Number of seats set aside for each sales channel, the seats are taken from the back of the level in the order
+     * the channels are listed
+     */
+    public Map<String, Integer> getChannelQuotas() {
+        return channelQuotas;
+    }
+
+    public void setChannelQuotas(LinkedHashMap<String, Integer> channelQuotas) {
+        this.channelQuotas = channelQuotas;
+    }
+
+    /**
+     * Can a channel hold seats outside of its quota once the quota is used up
+     */
+    public Boolean getChannelOverflow() {
+        return channelOverflow;
+    }
+
+    public void setChannelOverflow(Boolean channelOverflow) {
+        this.channelOverflow = channelOverflow;
+    }
+
+    /**
+     * Seats tagged with each attribute (e.g. aisle, accessible), given as "row:seats" where row is a row number or
+     * "*" for every row and seats is a seat number, a range "first-last" or "*" for the whole row; rows and seats are
+     * numbered from 0
+     */
+    public Map<String, List<String>> getSeatAttributes() {
+        return seatAttributes;
+    }
+
+    public void setSeatAttributes(Map<String, List<String>> seatAttributes) {
+        this.seatAttributes = seatAttributes;
+    }
+
+    /**
+     * Sections of the level, each one takes the next rows from the front of the level in the order they are listed;
+     * rows after the last section are not part of any section. A level can't have both sections and channel quotas.
+     */
+    public List<SeatSection> getSections() {
+        return sections;
+    }
+
+    public void setSections(List<SeatSection> sections) {
+        this.sections = sections;
+    }
+
+    /**
+     * Seats that are held back from sale until they are opened at runtime, given as "row:seats" like the seat
+     * attributes
+     */
+    public List<String> getClosedSeats() {
+        return closedSeats;
+    }
+
+    public void setClosedSeats(List<String> closedSeats) {
+        this.closedSeats = closedSeats;
+    }
 }
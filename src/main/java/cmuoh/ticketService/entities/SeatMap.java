@@ -0,0 +1,98 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Compressed per seat state of a seat level.
+ *
+ * Seats are numbered row by row. {@code runs} is the base64 encoding of a sequence of unsigned LEB128 varints, each
+ * one is {@code (runLength << 2) | state} where state is 0 (free), 1 (held) or 2 (confirmed).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class SeatMap {
+    public static final String RUN_LENGTH_ENCODING = "rle-varint";
+
+    @JsonProperty
+    private Integer level;
+
+    @JsonProperty
+    private Integer rows;
+
+    @JsonProperty
+    private Integer seatsInRow;
+
+    @JsonProperty
+    private Long version;
+
+    @JsonProperty
+    private String encoding;
+
+    @JsonProperty
+    private String runs;
+
+    @Deprecated
+    public SeatMap() {
+
+    }
+
+    public SeatMap(Integer level, Integer rows, Integer seatsInRow, Long version, String encoding, String runs) {
+        this.level = level;
+        this.rows = rows;
+        this.seatsInRow = seatsInRow;
+        this.version = version;
+        this.encoding = encoding;
+        this.runs = runs;
+    }
+
+    public Integer getLevel() {
+        return level;
+    }
+
+    public void setLevel(Integer level) {
+        this.level = level;
+    }
+
+    public Integer getRows() {
+        return rows;
+    }
+
+    public void setRows(Integer rows) {
+        this.rows = rows;
+    }
+
+    public Integer getSeatsInRow() {
+        return seatsInRow;
+    }
+
+    public void setSeatsInRow(Integer seatsInRow) {
+        this.seatsInRow = seatsInRow;
+    }
+
+    /**
+     * Change version of the level when the map was built
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    public String getRuns() {
+        return runs;
+    }
+
+    public void setRuns(String runs) {
+        this.runs = runs;
+    }
+}
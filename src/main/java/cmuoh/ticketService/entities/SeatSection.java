@@ -0,0 +1,43 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Section of a seat level, a block of consecutive rows
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SeatSection {
+    @JsonProperty(required = true)
+    @NotEmpty
+    private String name;
+
+    @Min(1)
+    @JsonProperty(required = true)
+    private int rows;
+
+    /**
+     * Name for the section, holds can ask for seats in a given section
+     */
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Number of rows in the section
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+}
@@ -0,0 +1,41 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for publishing the availability snapshots that read endpoints are served from
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SnapshotConfiguration {
+    @JsonProperty
+    @Min(0)
+    private Integer publishInterval = 100;
+
+    @JsonProperty
+    private boolean publishOnChange = false;
+
+    /**
+     * Number of milliseconds between snapshot refreshes (which also collect expired holds), 0 disables the refresh
+     */
+    public Integer getPublishInterval() {
+        return publishInterval;
+    }
+
+    public void setPublishInterval(Integer publishInterval) {
+        this.publishInterval = publishInterval;
+    }
+
+    /**
+     * Publish a snapshot after every change on a seat level, always on when the refresh is disabled
+     */
+    public boolean isPublishOnChange() {
+        return publishOnChange || publishInterval == 0;
+    }
+
+    public void setPublishOnChange(boolean publishOnChange) {
+        this.publishOnChange = publishOnChange;
+    }
+}
@@ -0,0 +1,57 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration for capturing the hold, reserve and availability calls into a binary log that can be replayed
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrafficCaptureConfiguration {
+    @JsonProperty
+    private boolean enabled = false;
+
+    @JsonProperty
+    @NotNull
+    private String file = "ticket-service.capture";
+
+    @JsonProperty
+    @Min(1)
+    private Integer queueSize = 65536;
+
+    /**
+     * Capture the calls, the log is written by a background thread
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Path of the capture log, an existing log is overwritten
+     */
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    /**
+     * Number of calls that can wait for the writer, calls are dropped from the capture rather than blocked when full
+     */
+    public Integer getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(Integer queueSize) {
+        this.queueSize = queueSize;
+    }
+}
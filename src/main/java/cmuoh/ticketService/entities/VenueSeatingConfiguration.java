@@ -23,6 +23,53 @@ public class VenueSeatingConfiguration {
     @Min(1)
     private Integer holdsExpireAfter = HoldTimeStampProvider.DEFAULT_TTL_SECONDS;
 
+    @JsonProperty
+    private Boolean combineRequests = false;
+
+    @JsonProperty
+    @Min(0)
+    private Integer customerEvictionInterval = 300;
+
+    @JsonProperty
+    @Valid
+    private WaitlistConfiguration waitlist = new WaitlistConfiguration();
+
+    @JsonProperty
+    @Valid
+    private IdempotencyConfiguration idempotency = new IdempotencyConfiguration();
+
+    @JsonProperty
+    @Valid
+    private SnapshotConfiguration availabilitySnapshots = new SnapshotConfiguration();
+
+    @JsonProperty
+    @Valid
+    private AvailabilityStreamConfiguration availabilityStream = new AvailabilityStreamConfiguration();
+
+    @JsonProperty
+    @Valid
+    private ConfirmationCodeConfiguration confirmationCodes = new ConfirmationCodeConfiguration();
+
+    @JsonProperty
+    @Valid
+    private ConcurrencyLimitConfiguration concurrencyLimit = new ConcurrencyLimitConfiguration();
+
+    @JsonProperty
+    @Valid
+    private RateLimitConfiguration rateLimit = new RateLimitConfiguration();
+
+    @JsonProperty
+    @Valid
+    private FlightRecorderConfiguration flightRecorder = new FlightRecorderConfiguration();
+
+    @JsonProperty
+    @Valid
+    private ReadinessConfiguration readiness = new ReadinessConfiguration();
+
+    @JsonProperty
+    @Valid
+    private TrafficCaptureConfiguration trafficCapture = new TrafficCaptureConfiguration();
+
     /**
      * The seating levels in the venue.
      *
@@ -45,4 +92,136 @@ public class VenueSeatingConfiguration {
     public void setHoldsExpireAfter(Integer holdsExpireAfter) {
         this.holdsExpireAfter = holdsExpireAfter;
     }
+
+    /**
+     * Number of seconds between evictions of the customers that are idle and own no hold, 0 disables the eviction
+     */
+    public Integer getCustomerEvictionInterval() {
+        return customerEvictionInterval;
+    }
+
+    public void setCustomerEvictionInterval(Integer customerEvictionInterval) {
+        this.customerEvictionInterval = customerEvictionInterval;
+    }
+
+    /**
+     * Combine concurrent hold and confirm requests on a level into batches (flat combining)
+     */
+    public Boolean getCombineRequests() {
+        return combineRequests;
+    }
+
+    public void setCombineRequests(Boolean combineRequests) {
+        this.combineRequests = combineRequests;
+    }
+
+    /**
+     * Settings for queueing hold requests that cannot be satisfied
+     */
+    public WaitlistConfiguration getWaitlist() {
+        return waitlist;
+    }
+
+    public void setWaitlist(WaitlistConfiguration waitlist) {
+        this.waitlist = waitlist;
+    }
+
+    /**
+     * Settings for de-duplicating retried requests
+     */
+    public IdempotencyConfiguration getIdempotency() {
+        return idempotency;
+    }
+
+    public void setIdempotency(IdempotencyConfiguration idempotency) {
+        this.idempotency = idempotency;
+    }
+
+    /**
+     * Settings for the availability snapshots that read endpoints are served from
+     */
+    public SnapshotConfiguration getAvailabilitySnapshots() {
+        return availabilitySnapshots;
+    }
+
+    public void setAvailabilitySnapshots(SnapshotConfiguration availabilitySnapshots) {
+        this.availabilitySnapshots = availabilitySnapshots;
+    }
+
+    /**
+     * Settings for the server-sent events stream of availability changes
+     */
+    public AvailabilityStreamConfiguration getAvailabilityStream() {
+        return availabilityStream;
+    }
+
+    public void setAvailabilityStream(AvailabilityStreamConfiguration availabilityStream) {
+        this.availabilityStream = availabilityStream;
+    }
+
+    /**
+     * Settings for the signed reservation confirmation codes
+     */
+    public ConfirmationCodeConfiguration getConfirmationCodes() {
+        return confirmationCodes;
+    }
+
+    public void setConfirmationCodes(ConfirmationCodeConfiguration confirmationCodes) {
+        this.confirmationCodes = confirmationCodes;
+    }
+
+    /**
+     * Settings for the adaptive concurrency limit on the hold and reserve endpoints
+     */
+    public ConcurrencyLimitConfiguration getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(ConcurrencyLimitConfiguration concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * Settings for the per customer and per client address rate limits on hold requests
+     */
+    public RateLimitConfiguration getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(RateLimitConfiguration rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * Settings for the flight recorder events
+     */
+    public FlightRecorderConfiguration getFlightRecorder() {
+        return flightRecorder;
+    }
+
+    public void setFlightRecorder(FlightRecorderConfiguration flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    /**
+     * Settings for the readiness health checks and the warm-up
+     */
+    public ReadinessConfiguration getReadiness() {
+        return readiness;
+    }
+
+    public void setReadiness(ReadinessConfiguration readiness) {
+        this.readiness = readiness;
+    }
+
+    /**
+     * Settings for capturing the traffic for replays
+     */
+    public TrafficCaptureConfiguration getTrafficCapture() {
+        return trafficCapture;
+    }
+
+    public void setTrafficCapture(TrafficCaptureConfiguration trafficCapture) {
+        this.trafficCapture = trafficCapture;
+    }
 }
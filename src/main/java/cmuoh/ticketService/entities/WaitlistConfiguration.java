@@ -0,0 +1,71 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration for the virtual waiting room where unsatisfiable hold requests are queued
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WaitlistConfiguration {
+    @JsonProperty
+    private boolean enabled = false;
+
+    @JsonProperty
+    @Min(1)
+    private Integer maxWaiters = 10000;
+
+    @JsonProperty
+    @Min(1)
+    private Integer waitFor = 300;
+
+    @JsonProperty
+    @Min(0)
+    private Integer maxPollWait = 30;
+
+    /**
+     * Queue hold requests that cannot be satisfied instead of rejecting them
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Maximum number of tickets that can be in line, requests are rejected once the line is full
+     */
+    public Integer getMaxWaiters() {
+        return maxWaiters;
+    }
+
+    public void setMaxWaiters(Integer maxWaiters) {
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * Number of seconds a ticket stays in line before it expires
+     */
+    public Integer getWaitFor() {
+        return waitFor;
+    }
+
+    public void setWaitFor(Integer waitFor) {
+        this.waitFor = waitFor;
+    }
+
+    /**
+     * Maximum number of seconds a long-poll on a ticket is allowed to block
+     */
+    public Integer getMaxPollWait() {
+        return maxPollWait;
+    }
+
+    public void setMaxPollWait(Integer maxPollWait) {
+        this.maxPollWait = maxPollWait;
+    }
+}
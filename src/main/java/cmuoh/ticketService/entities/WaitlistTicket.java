@@ -0,0 +1,75 @@
+package cmuoh.ticketService.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Represents a hold request that is waiting in line for seats
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class WaitlistTicket {
+    public enum Status {
+        WAITING,
+        FULFILLED,
+        EXPIRED
+    }
+
+    @JsonProperty
+    private Integer ticketId;
+
+    @JsonProperty
+    private Integer seatCount;
+
+    @JsonProperty
+    private Status status;
+
+    @JsonProperty
+    private SeatHold seatHold;
+
+    @Deprecated
+    public WaitlistTicket() {
+
+    }
+
+    public WaitlistTicket(Integer ticketId, Integer seatCount, Status status, SeatHold seatHold) {
+        this.ticketId = ticketId;
+        this.seatCount = seatCount;
+        this.status = status;
+        this.seatHold = seatHold;
+    }
+
+    public Integer getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(Integer ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public Integer getSeatCount() {
+        return seatCount;
+    }
+
+    public void setSeatCount(Integer seatCount) {
+        this.seatCount = seatCount;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * The seats that were held for the ticket, only set once the ticket is fulfilled
+     */
+    public SeatHold getSeatHold() {
+        return seatHold;
+    }
+
+    public void setSeatHold(SeatHold seatHold) {
+        this.seatHold = seatHold;
+    }
+}
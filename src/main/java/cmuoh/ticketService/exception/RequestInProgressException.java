@@ -0,0 +1,10 @@
+package cmuoh.ticketService.exception;
+
+/**
+ * Raised when a request is retried with an idempotency key whose original request has not finished yet
+ */
+public class RequestInProgressException extends Exception {
+    public RequestInProgressException(String idempotencyKey) {
+        super(String.format("Request with idempotency key %s is still being processed", idempotencyKey));
+    }
+}
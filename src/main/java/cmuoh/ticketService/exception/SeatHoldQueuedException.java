@@ -0,0 +1,19 @@
+package cmuoh.ticketService.exception;
+
+import cmuoh.ticketService.entities.WaitlistTicket;
+
+/**
+ * Raised when a hold request could not be satisfied right away and was queued in the waitlist
+ */
+public class SeatHoldQueuedException extends Exception {
+    private final WaitlistTicket ticket;
+
+    public SeatHoldQueuedException(WaitlistTicket ticket) {
+        super(String.format("Hold request was queued as ticket #%d", ticket.getTicketId()));
+        this.ticket = ticket;
+    }
+
+    public WaitlistTicket getTicket() {
+        return ticket;
+    }
+}
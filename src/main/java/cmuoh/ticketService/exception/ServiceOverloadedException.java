@@ -0,0 +1,20 @@
+package cmuoh.ticketService.exception;
+
+/**
+ * Raised when a request is shed because the service is at capacity
+ */
+public class ServiceOverloadedException extends Exception {
+    private final int retryAfter;
+
+    public ServiceOverloadedException(String reason, int retryAfter) {
+        super(reason);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Number of seconds the client should wait before retrying
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,20 @@
+package cmuoh.ticketService.exception;
+
+/**
+ * Raised when a client has used up its request rate
+ */
+public class TooManyRequestsException extends Exception {
+    private final int retryAfter;
+
+    public TooManyRequestsException(String reason, int retryAfter) {
+        super(reason);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Number of seconds the client should wait before retrying
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+}
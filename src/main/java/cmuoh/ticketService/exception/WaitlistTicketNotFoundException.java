@@ -0,0 +1,10 @@
+package cmuoh.ticketService.exception;
+
+/**
+ * Raised when a waitlist ticket does not exist or has been discarded
+ */
+public class WaitlistTicketNotFoundException extends Exception {
+    public WaitlistTicketNotFoundException(Integer ticketId) {
+        super(String.format("Waitlist ticket #%d was not found", ticketId));
+    }
+}
@@ -0,0 +1,20 @@
+package cmuoh.ticketService.exception.mapper;
+
+import cmuoh.ticketService.entities.CustomMessage;
+import cmuoh.ticketService.exception.RequestInProgressException;
+import org.eclipse.jetty.http.HttpStatus;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+/**
+ * Maps duplicate in-flight requests to 409
+ */
+public class RequestInProgressExceptionMapper implements ExceptionMapper<RequestInProgressException> {
+    @Override
+    public Response toResponse(RequestInProgressException e) {
+        return Response.status(HttpStatus.CONFLICT_409)
+                .entity(new CustomMessage(e.getMessage()))
+                .build();
+    }
+}
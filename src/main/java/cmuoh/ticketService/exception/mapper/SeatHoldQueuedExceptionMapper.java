@@ -0,0 +1,19 @@
+package cmuoh.ticketService.exception.mapper;
+
+import cmuoh.ticketService.exception.SeatHoldQueuedException;
+import org.eclipse.jetty.http.HttpStatus;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+/**
+ * Returns the waitlist ticket for queued hold requests
+ */
+public class SeatHoldQueuedExceptionMapper implements ExceptionMapper<SeatHoldQueuedException> {
+    @Override
+    public Response toResponse(SeatHoldQueuedException e) {
+        return Response.status(HttpStatus.ACCEPTED_202)
+                .entity(e.getTicket())
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package cmuoh.ticketService.exception.mapper;
+
+import cmuoh.ticketService.entities.CustomMessage;
+import cmuoh.ticketService.exception.ServiceOverloadedException;
+import org.eclipse.jetty.http.HttpStatus;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+/**
+ * Maps shed requests to 503 with a Retry-After hint
+ */
+public class ServiceOverloadedExceptionMapper implements ExceptionMapper<ServiceOverloadedException> {
+    @Override
+    public Response toResponse(ServiceOverloadedException e) {
+        return Response.status(HttpStatus.SERVICE_UNAVAILABLE_503)
+                .header(HttpHeaders.RETRY_AFTER, e.getRetryAfter())
+                .entity(new CustomMessage(e.getMessage()))
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package cmuoh.ticketService.exception.mapper;
+
+import cmuoh.ticketService.entities.CustomMessage;
+import cmuoh.ticketService.exception.TooManyRequestsException;
+import org.eclipse.jetty.http.HttpStatus;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+/**
+ * Maps rate limited requests to 429 with a Retry-After hint
+ */
+public class TooManyRequestsExceptionMapper implements ExceptionMapper<TooManyRequestsException> {
+    @Override
+    public Response toResponse(TooManyRequestsException e) {
+        return Response.status(HttpStatus.TOO_MANY_REQUESTS_429)
+                .header(HttpHeaders.RETRY_AFTER, e.getRetryAfter())
+                .entity(new CustomMessage(e.getMessage()))
+                .build();
+    }
+}
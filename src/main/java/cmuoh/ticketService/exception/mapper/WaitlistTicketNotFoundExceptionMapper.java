@@ -0,0 +1,20 @@
+package cmuoh.ticketService.exception.mapper;
+
+import cmuoh.ticketService.entities.CustomMessage;
+import cmuoh.ticketService.exception.WaitlistTicketNotFoundException;
+import org.eclipse.jetty.http.HttpStatus;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+
+/**
+ * Maps unknown waitlist tickets to 404
+ */
+public class WaitlistTicketNotFoundExceptionMapper implements ExceptionMapper<WaitlistTicketNotFoundException> {
+    @Override
+    public Response toResponse(WaitlistTicketNotFoundException e) {
+        return Response.status(HttpStatus.NOT_FOUND_404)
+                .entity(new CustomMessage(e.getMessage()))
+                .build();
+    }
+}
@@ -0,0 +1,32 @@
+package cmuoh.ticketService.healthCheck;
+
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import com.codahale.metrics.health.HealthCheck;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Not ready when expired holds are piling up on a seat level instead of being collected
+ */
+public class ExpiryLagHealthCheck extends HealthCheck {
+    private final List<ReservationManager> levels;
+    private final long maxLagMillis;
+
+    public ExpiryLagHealthCheck(List<ReservationManager> levels, long maxLagMillis) {
+        this.levels = levels;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @Override
+    protected Result check() throws Exception {
+        for (ReservationManager level : levels) {
+            long lag = level.getExpiryLag(TimeUnit.MILLISECONDS);
+            if (lag > maxLagMillis) {
+                return Result.unhealthy("level %d has expired holds that were not collected for %dms",
+                        level.getResourceId(), lag);
+            }
+        }
+        return Result.healthy();
+    }
+}
@@ -0,0 +1,62 @@
+package cmuoh.ticketService.healthCheck;
+
+import com.codahale.metrics.SlidingTimeWindowReservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Not ready when the measured hold latency percentile is over its limit.
+ *
+ * The timer must measure a sliding window of wall time (see {@link #windowedTimer}). A node that is taken out of the
+ * load balancer for being slow gets no new holds, the old samples have to age out of the window on their own for it
+ * to report ready again; a window without holds is healthy.
+ */
+public class HoldLatencyHealthCheck extends HealthCheck {
+    private final Timer holdTimer;
+    private final double percentile;
+    private final long maxLatencyMillis;
+
+    /**
+     *
+     * @param holdTimer timer of the hold requests, in nanoseconds
+     * @param percentile e.g. 99.0
+     * @param maxLatencyMillis
+     */
+    public HoldLatencyHealthCheck(Timer holdTimer, double percentile, long maxLatencyMillis) {
+        this.holdTimer = holdTimer;
+        this.percentile = percentile;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * A timer whose percentiles only cover the last window of wall time
+     *
+     * @param window
+     * @param unit
+     * @return
+     */
+    public static Timer windowedTimer(long window, TimeUnit unit) {
+        return new Timer(new SlidingTimeWindowReservoir(window, unit));
+    }
+
+    @Override
+    protected Result check() throws Exception {
+        Snapshot snapshot = holdTimer.getSnapshot();
+        double p50 = toMillis(snapshot.getMedian());
+        double p99 = toMillis(snapshot.get99thPercentile());
+        double checked = toMillis(snapshot.getValue(percentile / 100.0));
+
+        if (checked > maxLatencyMillis) {
+            return Result.unhealthy("hold latency p%.1f is %.1fms (p50 %.1fms, p99 %.1fms)", percentile, checked, p50,
+                    p99);
+        }
+        return Result.healthy("hold latency p50 %.1fms, p99 %.1fms", p50, p99);
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,32 @@
+package cmuoh.ticketService.healthCheck;
+
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import com.codahale.metrics.health.HealthCheck;
+
+import java.util.List;
+
+/**
+ * Not ready when too many requests are queued on a seat level, either for the combiner or for reclaimed seats
+ */
+public class QueueDepthHealthCheck extends HealthCheck {
+    private final List<ReservationManager> levels;
+    private final int maxDepth;
+
+    public QueueDepthHealthCheck(List<ReservationManager> levels, int maxDepth) {
+        this.levels = levels;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    protected Result check() throws Exception {
+        for (ReservationManager level : levels) {
+            int pending = level.countPendingRequests();
+            int waiters = level.countWaiters();
+            if (pending + waiters > maxDepth) {
+                return Result.unhealthy("level %d has %d pending requests and %d waiters",
+                        level.getResourceId(), pending, waiters);
+            }
+        }
+        return Result.healthy();
+    }
+}
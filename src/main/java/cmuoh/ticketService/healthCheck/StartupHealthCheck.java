@@ -0,0 +1,23 @@
+package cmuoh.ticketService.healthCheck;
+
+import cmuoh.ticketService.util.StartupProgress;
+import com.codahale.metrics.health.HealthCheck;
+
+/**
+ * Not ready until the startup phases (e.g. warm-up) are complete
+ */
+public class StartupHealthCheck extends HealthCheck {
+    private final StartupProgress progress;
+
+    public StartupHealthCheck(StartupProgress progress) {
+        this.progress = progress;
+    }
+
+    @Override
+    protected Result check() throws Exception {
+        if (!progress.isComplete()) {
+            return Result.unhealthy("starting: %s", progress.describePending());
+        }
+        return Result.healthy();
+    }
+}
@@ -0,0 +1,149 @@
+package cmuoh.ticketService.loadTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drives a running ticket service over HTTP. The service is expected to be freshly started so that every seat counts
+ * towards the capacity; oversold seats are found from the hold details.
+ */
+public class HttpLoadTarget implements LoadTarget {
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+
+    /**
+     *
+     * @param baseUrl e.g. http://localhost:8080
+     * @param objectMapper
+     */
+    public HttpLoadTarget(String baseUrl, ObjectMapper objectMapper) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public int capacity() throws IOException {
+        int capacity = 0;
+        for (JsonNode level : holdDetails()) {
+            capacity += level.path("rows").asInt() * level.path("seatsInRow").asInt();
+        }
+        return capacity;
+    }
+
+    @Override
+    public int hold(int seats, String customerEmail) throws IOException {
+        HttpURLConnection connection = send("POST", "/venue/findAndHoldSeats?numSeats=" + seats, customerEmail);
+        int status = connection.getResponseCode();
+        byte[] body = readBody(connection);
+
+        switch (status) {
+            case HttpStatus.OK_200:
+                return objectMapper.readTree(body).path("reservationId").asInt(FAILED);
+            case HttpStatus.NO_CONTENT_204:
+                return SOLD_OUT;
+            case HttpStatus.ACCEPTED_202:
+                return QUEUED;
+            case HttpStatus.TOO_MANY_REQUESTS_429:
+            case HttpStatus.SERVICE_UNAVAILABLE_503:
+                return REJECTED;
+            default:
+                return FAILED;
+        }
+    }
+
+    @Override
+    public boolean reserve(int seatHoldId, String customerEmail) throws IOException {
+        HttpURLConnection connection = send("PUT", "/venue/reserveSeats?seatHoldId=" + seatHoldId, customerEmail);
+        int status = connection.getResponseCode();
+        readBody(connection);
+        return status == HttpStatus.OK_200;
+    }
+
+    @Override
+    public List<String> verify(long reservedSeats) throws IOException {
+        List<String> problems = new ArrayList<>();
+
+        long confirmedSeats = 0;
+        for (JsonNode level : holdDetails()) {
+            int capacity = level.path("rows").asInt() * level.path("seatsInRow").asInt();
+            long levelConfirmed = 0;
+            long levelHeld = 0;
+            for (JsonNode hold : level.path("seatHolds")) {
+                if (hold.path("confirmed").asBoolean()) {
+                    levelConfirmed += hold.path("seatCount").asInt();
+                } else {
+                    levelHeld += hold.path("seatCount").asInt();
+                }
+            }
+
+            if (levelConfirmed + levelHeld > capacity) {
+                problems.add(String.format("level %s has %d confirmed and %d held seats but only %d seats",
+                        level.path("name").asText(), levelConfirmed, levelHeld, capacity));
+            }
+            confirmedSeats += levelConfirmed;
+        }
+
+        if (confirmedSeats != reservedSeats) {
+            problems.add(String.format("%d seats are confirmed but %d seats were reserved", confirmedSeats,
+                    reservedSeats));
+        }
+        return problems;
+    }
+
+    private JsonNode holdDetails() throws IOException {
+        HttpURLConnection connection = send("GET", "/venue/holdDetails", null);
+        int status = connection.getResponseCode();
+        byte[] body = readBody(connection);
+        if (status != HttpStatus.OK_200) {
+            throw new IOException(String.format("hold details failed with %d", status));
+        }
+        return objectMapper.readTree(body);
+    }
+
+    private HttpURLConnection send(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json, text/plain");
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "text/plain");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Reads the whole response so that the connection can be kept alive
+     */
+    private static byte[] readBody(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() < HttpStatus.BAD_REQUEST_400
+                ? connection.getInputStream()
+                : connection.getErrorStream();
+        if (in == null) {
+            return new byte[0];
+        }
+
+        try (InputStream body = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = body.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package cmuoh.ticketService.loadTest;
+
+import cmuoh.ticketService.dataAccess.ReservationHold;
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.dataAccess.SlotStateMap;
+import cmuoh.ticketService.exception.NoSeatsAvailableException;
+import cmuoh.ticketService.exception.ReservationNotFoundException;
+import cmuoh.ticketService.exception.SeatHoldQueuedException;
+import cmuoh.ticketService.exception.ServiceOverloadedException;
+import cmuoh.ticketService.exception.TooManyRequestsException;
+import cmuoh.ticketService.resource.VenueTicketManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Drives a {@link VenueTicketManager} in the same JVM, the seat levels are inspected directly to find oversold seats
+ */
+public class InProcessLoadTarget implements LoadTarget {
+    private final VenueTicketManager venueTicketManager;
+
+    public InProcessLoadTarget(VenueTicketManager venueTicketManager) {
+        this.venueTicketManager = venueTicketManager;
+    }
+
+    @Override
+    public int capacity() {
+        int capacity = 0;
+        for (ReservationManager level : venueTicketManager.getSeatLevelResources()) {
+            capacity += level.maxCapacity();
+        }
+        return capacity;
+    }
+
+    @Override
+    public int hold(int seats, String customerEmail) throws Exception {
+        try {
+            return venueTicketManager.findAndHoldSeats(seats, null, null, false, null, null, null, null, null,
+                    customerEmail).getReservationId();
+        } catch (NoSeatsAvailableException e) {
+            return SOLD_OUT;
+        } catch (SeatHoldQueuedException e) {
+            return QUEUED;
+        } catch (ServiceOverloadedException | TooManyRequestsException e) {
+            return REJECTED;
+        }
+    }
+
+    @Override
+    public boolean reserve(int seatHoldId, String customerEmail) throws Exception {
+        try {
+            venueTicketManager.reserveSeats(seatHoldId, null, customerEmail);
+            return true;
+        } catch (ReservationNotFoundException | ServiceOverloadedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public List<String> verify(long reservedSeats) {
+        List<String> problems = new ArrayList<>();
+
+        long confirmedSeats = 0;
+        for (ReservationManager level : venueTicketManager.getSeatLevelResources()) {
+            confirmedSeats += verifyLevel(level, problems);
+        }
+
+        if (confirmedSeats != reservedSeats) {
+            problems.add(String.format("%d seats are confirmed but %d seats were reserved", confirmedSeats,
+                    reservedSeats));
+        }
+        return problems;
+    }
+
+    /**
+     * Every seat must be in at most one hold and the confirmed seats must match the slot states
+     *
+     * @return number of confirmed seats on the level
+     */
+    static long verifyLevel(ReservationManager level, List<String> problems) {
+        BitSet taken = new BitSet(level.maxCapacity());
+        long confirmedSeats = 0;
+
+        for (ReservationHold hold : level.getAllReservations()) {
+            for (Integer slot : hold.getSlots()) {
+                if (taken.get(slot)) {
+                    problems.add(String.format("level %d seat %d is in more than one hold", level.getResourceId(),
+                            slot));
+                }
+                taken.set(slot);
+
+                if (hold.isConfirmed() && level.getSlotStates().stateOf(slot) != SlotStateMap.CONFIRMED) {
+                    problems.add(String.format("level %d seat %d of confirmed hold #%d is not marked as confirmed",
+                            level.getResourceId(), slot, hold.getReservationId()));
+                }
+            }
+
+            if (hold.isConfirmed()) {
+                confirmedSeats += hold.getSlots().size();
+            }
+        }
+
+        if (confirmedSeats > level.maxCapacity()) {
+            problems.add(String.format("level %d has %d confirmed seats but only %d seats", level.getResourceId(),
+                    confirmedSeats, level.maxCapacity()));
+        }
+        return confirmedSeats;
+    }
+}
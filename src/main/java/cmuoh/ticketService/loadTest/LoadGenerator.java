@@ -0,0 +1,358 @@
+package cmuoh.ticketService.loadTest;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open loop load generator for an on-sale: customers arrive at a fixed rate (evenly spaced or as a Poisson process),
+ * hold a number of seats drawn from a distribution and either reserve them right away or abandon the hold to expire.
+ *
+ * Every arrival has an intended start time on the schedule and its hold latency is measured from that time, not from
+ * when a worker got to send it, so a stalled service shows up as latency instead of as fewer requests (coordinated
+ * omission). The reserve latency is measured from when the hold came back.
+ *
+ * @implNote {@link #run()} must only be called by a single thread at a time
+ */
+public class LoadGenerator {
+    private static final Logger LOG = LoggerFactory.getLogger(LoadGenerator.class);
+
+    static final long START_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final int HISTOGRAM_DIGITS = 3;
+
+    private final LoadTarget target;
+    private final double arrivalRate;
+    private final boolean poissonArrivals;
+    private final long durationNanos;
+    private final int workers;
+    private final HoldSizeDistribution holdSizes;
+    private final double confirmRatio;
+    private final int customers;
+
+    /**
+     *
+     * @param target
+     * @param arrivalRate hold requests per second
+     * @param poissonArrivals exponentially distributed instead of evenly spaced arrivals
+     * @param duration how long requests are scheduled for
+     * @param unit
+     * @param workers number of threads sending the requests
+     * @param holdSizes
+     * @param confirmRatio share of the holds that are reserved, the rest are abandoned
+     * @param customers number of distinct customer emails
+     */
+    public LoadGenerator(LoadTarget target, double arrivalRate, boolean poissonArrivals, long duration, TimeUnit unit,
+                         int workers, HoldSizeDistribution holdSizes, double confirmRatio, int customers) {
+        if (arrivalRate <= 0) {
+            throw new IllegalArgumentException("arrivalRate");
+        }
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers");
+        }
+        if (confirmRatio < 0 || confirmRatio > 1) {
+            throw new IllegalArgumentException("confirmRatio");
+        }
+        if (customers < 1) {
+            throw new IllegalArgumentException("customers");
+        }
+
+        this.target = target;
+        this.arrivalRate = arrivalRate;
+        this.poissonArrivals = poissonArrivals;
+        this.durationNanos = unit.toNanos(duration);
+        this.workers = workers;
+        this.holdSizes = holdSizes;
+        this.confirmRatio = confirmRatio;
+        this.customers = customers;
+    }
+
+    /**
+     * Runs the schedule to the end, waits for the requests in flight and checks the target for oversold seats
+     *
+     * @return
+     * @throws Exception
+     */
+    public Result run() throws Exception {
+        int capacity = target.capacity();
+
+        long start = System.nanoTime() + START_DELAY_NANOS;
+        AtomicLong nextArrival = new AtomicLong(start);
+        Worker[] runners = new Worker[workers];
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; ++i) {
+            runners[i] = new Worker(nextArrival, start + durationNanos);
+            threads[i] = new Thread(runners[i], "load-generator-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Result result = new Result(capacity, start, System.nanoTime() - start);
+        for (Worker runner : runners) {
+            result.merge(runner);
+        }
+
+        if (result.reservedSeats > capacity) {
+            result.problems.add(String.format("%d seats were reserved but the venue only has %d seats",
+                    result.reservedSeats, capacity));
+        }
+        result.problems.addAll(target.verify(result.reservedSeats));
+        return result;
+    }
+
+    private long nextGap(Random random) {
+        double meanGap = TimeUnit.SECONDS.toNanos(1) / arrivalRate;
+        if (!poissonArrivals) {
+            return Math.max(1, (long) meanGap);
+        }
+        return Math.max(1, (long) (-Math.log(1.0 - random.nextDouble()) * meanGap));
+    }
+
+    /**
+     * Takes the next arrival off the schedule until the schedule ends, each worker keeps its own histograms
+     */
+    final class Worker implements Runnable {
+        final AtomicLong nextArrival;
+        final long end;
+        final Histogram holdLatency = new Histogram(HISTOGRAM_DIGITS);
+        final Histogram reserveLatency = new Histogram(HISTOGRAM_DIGITS);
+        long holds;
+        long heldSeats;
+        long soldOut;
+        long queued;
+        long rejected;
+        long failed;
+        long reserves;
+        long reservedSeats;
+        long reserveFailures;
+        long abandoned;
+        long lastSaleNanos = Long.MIN_VALUE;
+
+        Worker(AtomicLong nextArrival, long end) {
+            this.nextArrival = nextArrival;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            Random random = ThreadLocalRandom.current();
+
+            long intended;
+            while ((intended = nextArrival.getAndAdd(nextGap(random))) < end) {
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                int seats = holdSizes.sample(random);
+                String customerEmail = "customer" + random.nextInt(customers) + "@loadtest.example.com";
+                boolean holdRecorded = false;
+                try {
+                    int seatHoldId = target.hold(seats, customerEmail);
+                    long heldAt = System.nanoTime();
+                    holdRecorded = true;
+                    holdLatency.recordValue(heldAt - intended);
+
+                    if (seatHoldId < 0) {
+                        countFailedHold(seatHoldId);
+                        continue;
+                    }
+
+                    ++holds;
+                    heldSeats += seats;
+                    if (random.nextDouble() >= confirmRatio) {
+                        ++abandoned;
+                        continue;
+                    }
+
+                    boolean reserved = target.reserve(seatHoldId, customerEmail);
+                    long reservedAt = System.nanoTime();
+                    reserveLatency.recordValue(reservedAt - heldAt);
+                    if (reserved) {
+                        ++reserves;
+                        reservedSeats += seats;
+                        lastSaleNanos = Math.max(lastSaleNanos, reservedAt);
+                    } else {
+                        ++reserveFailures;
+                    }
+                } catch (Exception e) {
+                    if (!holdRecorded) {
+                        holdLatency.recordValue(System.nanoTime() - intended);
+                    }
+                    ++failed;
+                    LOG.debug("load request failed: {}", e.toString());
+                }
+            }
+        }
+
+        private void countFailedHold(int outcome) {
+            switch (outcome) {
+                case LoadTarget.SOLD_OUT:
+                    ++soldOut;
+                    break;
+                case LoadTarget.QUEUED:
+                    ++queued;
+                    break;
+                case LoadTarget.REJECTED:
+                    ++rejected;
+                    break;
+                default:
+                    ++failed;
+            }
+        }
+    }
+
+    /**
+     * Weighted distribution of the number of seats per hold, written as "seats:weight" pairs, e.g. "1:30,2:40,4:30"
+     *
+     * @implNote This object is immutable
+     */
+    public static final class HoldSizeDistribution {
+        private final int[] sizes;
+        private final int[] cumulativeWeights;
+
+        HoldSizeDistribution(int[] sizes, int[] cumulativeWeights) {
+            this.sizes = sizes;
+            this.cumulativeWeights = cumulativeWeights;
+        }
+
+        public static HoldSizeDistribution parse(String spec) {
+            String[] entries = spec.split(",");
+            int[] sizes = new int[entries.length];
+            int[] cumulativeWeights = new int[entries.length];
+
+            int total = 0;
+            for (int i = 0; i < entries.length; ++i) {
+                String[] entry = entries[i].trim().split(":");
+                sizes[i] = Integer.parseInt(entry[0].trim());
+                int weight = entry.length > 1 ? Integer.parseInt(entry[1].trim()) : 1;
+                if (sizes[i] < 1 || weight < 1) {
+                    throw new IllegalArgumentException(String.format("invalid hold size \"%s\"", entries[i]));
+                }
+
+                total += weight;
+                cumulativeWeights[i] = total;
+            }
+
+            return new HoldSizeDistribution(sizes, cumulativeWeights);
+        }
+
+        public int sample(Random random) {
+            int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; ++i) {
+                if (pick < cumulativeWeights[i]) {
+                    return sizes[i];
+                }
+            }
+            return sizes[sizes.length - 1];
+        }
+    }
+
+    /**
+     * Totals of a run along with the latency histograms and the oversell problems found
+     */
+    public static final class Result {
+        final int capacity;
+        final long startNanos;
+        final long elapsedNanos;
+        final Histogram holdLatency = new Histogram(HISTOGRAM_DIGITS);
+        final Histogram reserveLatency = new Histogram(HISTOGRAM_DIGITS);
+        final List<String> problems = new ArrayList<>();
+        long holds;
+        long heldSeats;
+        long soldOut;
+        long queued;
+        long rejected;
+        long failed;
+        long reserves;
+        long reservedSeats;
+        long reserveFailures;
+        long abandoned;
+        long lastSaleNanos = Long.MIN_VALUE;
+
+        Result(int capacity, long startNanos, long elapsedNanos) {
+            this.capacity = capacity;
+            this.startNanos = startNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        void merge(Worker worker) {
+            holdLatency.add(worker.holdLatency);
+            reserveLatency.add(worker.reserveLatency);
+            holds += worker.holds;
+            heldSeats += worker.heldSeats;
+            soldOut += worker.soldOut;
+            queued += worker.queued;
+            rejected += worker.rejected;
+            failed += worker.failed;
+            reserves += worker.reserves;
+            reservedSeats += worker.reservedSeats;
+            reserveFailures += worker.reserveFailures;
+            abandoned += worker.abandoned;
+            lastSaleNanos = Math.max(lastSaleNanos, worker.lastSaleNanos);
+        }
+
+        public long getReservedSeats() {
+            return reservedSeats;
+        }
+
+        /**
+         *
+         * @return oversold seats and other inconsistencies found after the run, empty if none
+         */
+        public List<String> getProblems() {
+            return Collections.unmodifiableList(problems);
+        }
+
+        public void print(PrintStream out) {
+            double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+            long requests = holdLatency.getTotalCount();
+
+            out.printf("requests:     %d in %.1fs (%.0f/s)%n", requests, seconds, requests / seconds);
+            out.printf("holds:        %d (%d seats), sold out %d, queued %d, rejected %d, failed %d%n",
+                    holds, heldSeats, soldOut, queued, rejected, failed);
+            out.printf("reserves:     %d (%d seats), failed %d, abandoned holds %d%n",
+                    reserves, reservedSeats, reserveFailures, abandoned);
+            out.printf("sell-through: %.1f%% of %d seats (%.1f seats/s)%n",
+                    capacity > 0 ? 100.0 * reservedSeats / capacity : 0.0, capacity, reservedSeats / seconds);
+            if (reserves > 0) {
+                out.printf("last sale:    %.1fs after the start%n",
+                        (lastSaleNanos - startNanos) / (double) TimeUnit.SECONDS.toNanos(1));
+            }
+            printLatency(out, "hold", holdLatency);
+            printLatency(out, "reserve", reserveLatency);
+
+            if (problems.isEmpty()) {
+                out.println("oversell:     none");
+            } else {
+                for (String problem : problems) {
+                    out.println("OVERSELL:     " + problem);
+                }
+            }
+        }
+
+        private static void printLatency(PrintStream out, String name, Histogram histogram) {
+            out.printf("%-13s p50 %.2fms, p90 %.2fms, p99 %.2fms, p99.9 %.2fms, max %.2fms%n", name + ":",
+                    toMillis(histogram.getValueAtPercentile(50)),
+                    toMillis(histogram.getValueAtPercentile(90)),
+                    toMillis(histogram.getValueAtPercentile(99)),
+                    toMillis(histogram.getValueAtPercentile(99.9)),
+                    toMillis(histogram.getMaxValue()));
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
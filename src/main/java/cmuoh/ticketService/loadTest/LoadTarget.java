@@ -0,0 +1,64 @@
+package cmuoh.ticketService.loadTest;
+
+import java.util.List;
+
+/**
+ * The service a {@link LoadGenerator} drives, either in-process or over HTTP
+ */
+public interface LoadTarget {
+    /**
+     * The venue is sold out
+     */
+    int SOLD_OUT = -1;
+
+    /**
+     * The hold request was queued on the waitlist
+     */
+    int QUEUED = -2;
+
+    /**
+     * The hold request was shed by the concurrency or rate limits
+     */
+    int REJECTED = -3;
+
+    /**
+     * The hold request failed for any other reason
+     */
+    int FAILED = -4;
+
+    /**
+     *
+     * @return number of seats in the venue
+     * @throws Exception
+     */
+    int capacity() throws Exception;
+
+    /**
+     * Find and hold seats for a customer
+     *
+     * @param seats
+     * @param customerEmail
+     * @return the seat hold ID or one of {@link #SOLD_OUT}, {@link #QUEUED}, {@link #REJECTED} or {@link #FAILED}
+     * @throws Exception
+     */
+    int hold(int seats, String customerEmail) throws Exception;
+
+    /**
+     * Reserve the seats of a hold
+     *
+     * @param seatHoldId
+     * @param customerEmail
+     * @return TRUE if the seats were reserved
+     * @throws Exception
+     */
+    boolean reserve(int seatHoldId, String customerEmail) throws Exception;
+
+    /**
+     * Checks the state of the service after the run for oversold seats
+     *
+     * @param reservedSeats number of seats the load generator was told were reserved
+     * @return the problems found, empty if none
+     * @throws Exception
+     */
+    List<String> verify(long reservedSeats) throws Exception;
+}
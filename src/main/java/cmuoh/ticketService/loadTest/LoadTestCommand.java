@@ -0,0 +1,120 @@
+package cmuoh.ticketService.loadTest;
+
+import cmuoh.ticketService.TicketServiceConfiguration;
+import cmuoh.ticketService.entities.VenueSeatingConfiguration;
+import cmuoh.ticketService.resource.VenueTicketManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates an on-sale against the venue of the configuration file, in-process or against a running service:
+ *
+ * <pre>
+ *     java -jar ticket-service.jar load-test --rate 2000 --duration 60 ticket-service.yaml
+ *     java -jar ticket-service.jar load-test --url http://localhost:8080 ticket-service.yaml
+ * </pre>
+ */
+public class LoadTestCommand extends ConfiguredCommand<TicketServiceConfiguration> {
+
+    public LoadTestCommand() {
+        super("load-test", "Simulates an on-sale and reports throughput, latency percentiles and oversold seats");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        super.configure(subparser);
+
+        subparser.addArgument("--url")
+                .dest("url")
+                .help("base URL of a running service, the venue is run in-process if not set");
+        subparser.addArgument("--rate")
+                .dest("rate")
+                .type(Double.class)
+                .setDefault(1000.0)
+                .help("hold requests per second");
+        subparser.addArgument("--arrivals")
+                .dest("arrivals")
+                .choices("constant", "poisson")
+                .setDefault("constant")
+                .help("evenly spaced or exponentially distributed arrivals");
+        subparser.addArgument("--duration")
+                .dest("duration")
+                .type(Integer.class)
+                .setDefault(30)
+                .help("seconds of arrivals");
+        subparser.addArgument("--workers")
+                .dest("workers")
+                .type(Integer.class)
+                .setDefault(64)
+                .help("threads sending the requests");
+        subparser.addArgument("--hold-sizes")
+                .dest("holdSizes")
+                .setDefault("1:20,2:40,3:15,4:20,8:5")
+                .help("seats per hold as seats:weight pairs");
+        subparser.addArgument("--confirm-ratio")
+                .dest("confirmRatio")
+                .type(Double.class)
+                .setDefault(0.7)
+                .help("share of the holds that are reserved, the rest are abandoned and expire");
+        subparser.addArgument("--customers")
+                .dest("customers")
+                .type(Integer.class)
+                .setDefault(100000)
+                .help("number of distinct customer emails");
+        subparser.addArgument("--ttl")
+                .dest("ttl")
+                .type(Integer.class)
+                .help("seconds before a hold expires, overrides holdsExpireAfter when run in-process");
+    }
+
+    @Override
+    protected void run(Bootstrap<TicketServiceConfiguration> bootstrap, Namespace namespace,
+                       TicketServiceConfiguration configuration) throws Exception {
+        String url = namespace.getString("url");
+
+        ScheduledExecutorService snapshotPublisher = null;
+        LoadTarget target;
+        if (url != null) {
+            target = new HttpLoadTarget(url, new ObjectMapper());
+        } else {
+            VenueSeatingConfiguration venueSeating = configuration.getVenueSeatingConfiguration();
+            if (namespace.getInt("ttl") != null) {
+                venueSeating.setHoldsExpireAfter(namespace.getInt("ttl"));
+            }
+
+            VenueTicketManager venueTicketManager = new VenueTicketManager(venueSeating);
+            snapshotPublisher = Executors.newSingleThreadScheduledExecutor();
+            venueTicketManager.startSnapshotPublisher(snapshotPublisher);
+            target = new InProcessLoadTarget(venueTicketManager);
+        }
+
+        try {
+            LoadGenerator generator = new LoadGenerator(target,
+                    namespace.getDouble("rate"),
+                    "poisson".equals(namespace.getString("arrivals")),
+                    namespace.getInt("duration"), TimeUnit.SECONDS,
+                    namespace.getInt("workers"),
+                    LoadGenerator.HoldSizeDistribution.parse(namespace.getString("holdSizes")),
+                    namespace.getDouble("confirmRatio"),
+                    namespace.getInt("customers"));
+
+            LoadGenerator.Result result = generator.run();
+            result.print(System.out);
+            if (!result.getProblems().isEmpty()) {
+                throw new IllegalStateException(String.format("%d oversell problems found",
+                        result.getProblems().size()));
+            }
+        } finally {
+            if (snapshotPublisher != null) {
+                snapshotPublisher.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package cmuoh.ticketService.resource;
+
+import cmuoh.ticketService.exception.ServiceOverloadedException;
+import cmuoh.ticketService.stream.AvailabilityBroadcaster;
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.SseFeature;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+/**
+ * Streams seat level availability changes to clients as server-sent events
+ */
+@Path("/venue/availability")
+public class AvailabilityStreamResource {
+    final AvailabilityBroadcaster broadcaster;
+
+    public AvailabilityStreamResource(AvailabilityBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    /**
+     * Subscribe to availability changes. The first event ("state") carries the availability of every level, it is
+     * followed by "delta" events with the levels that changed in each coalescing window.
+     *
+     * @return the event stream
+     * @throws ServiceOverloadedException when there are too many subscribers
+     */
+    @GET
+    @Timed
+    @ExceptionMetered
+    @Path("/stream")
+    @Produces(SseFeature.SERVER_SENT_EVENTS)
+    public EventOutput availabilityStream() throws ServiceOverloadedException {
+        EventOutput output = broadcaster.subscribe();
+        if (output == null) {
+            throw new ServiceOverloadedException("Too many availability subscribers", 5);
+        }
+
+        return output;
+    }
+}
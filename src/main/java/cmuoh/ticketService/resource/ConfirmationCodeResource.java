@@ -0,0 +1,40 @@
+package cmuoh.ticketService.resource;
+
+import cmuoh.ticketService.entities.ConfirmationCode;
+import cmuoh.ticketService.util.ReservationCodeSigner;
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Verifies reservation confirmation codes, e.g. for gate scanners. Verification only checks the signature of the code
+ * and never touches the reservation state.
+ */
+@Path("/venue/codes")
+@Produces(MediaType.APPLICATION_JSON)
+public class ConfirmationCodeResource {
+    final ReservationCodeSigner codeSigner;
+
+    public ConfirmationCodeResource(ReservationCodeSigner codeSigner) {
+        this.codeSigner = codeSigner;
+    }
+
+    /**
+     * Verify a confirmation code
+     *
+     * @param code the confirmation code returned by reserveSeats
+     * @return the reservation details embedded in the code iff it is valid
+     */
+    @POST
+    @Timed
+    @ExceptionMetered
+    @Path("/verify")
+    public ConfirmationCode verify(@NotNull String code) {
+        return codeSigner.verify(code);
+    }
+}
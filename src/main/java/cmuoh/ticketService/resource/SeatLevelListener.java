@@ -0,0 +1,15 @@
+package cmuoh.ticketService.resource;
+
+import cmuoh.ticketService.dataAccess.ReservationManager;
+
+/**
+ * Notified when a seat level is added to a running {@link VenueTicketManager}
+ */
+public interface SeatLevelListener {
+    /**
+     * Called after the level is published, requests can already be served from it
+     *
+     * @param level the resource of the new level, its resource ID is its level number
+     */
+    void onLevelAdded(ReservationManager level);
+}
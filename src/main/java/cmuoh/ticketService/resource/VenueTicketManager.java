@@ -1,36 +1,80 @@
 package cmuoh.ticketService.resource;
 
+import cmuoh.ticketService.capture.TrafficCapture;
+import cmuoh.ticketService.dataAccess.AvailabilitySnapshot;
+import cmuoh.ticketService.dataAccess.HoldWaiter;
 import cmuoh.ticketService.dataAccess.ReservationHold;
 import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.dataAccess.SlotPartition;
+import cmuoh.ticketService.entities.ConcurrencyLimitConfiguration;
+import cmuoh.ticketService.entities.IdempotencyConfiguration;
+import cmuoh.ticketService.entities.LevelAvailability;
+import cmuoh.ticketService.entities.RateLimitConfiguration;
+import cmuoh.ticketService.entities.ReservationRequest;
+import cmuoh.ticketService.entities.ReservationResult;
 import cmuoh.ticketService.entities.SeatHold;
 import cmuoh.ticketService.entities.SeatLevel;
 import cmuoh.ticketService.entities.SeatLevelHoldDetail;
+import cmuoh.ticketService.entities.SeatMap;
+import cmuoh.ticketService.entities.SeatSection;
 import cmuoh.ticketService.entities.VenueSeatingConfiguration;
+import cmuoh.ticketService.entities.WaitlistConfiguration;
+import cmuoh.ticketService.entities.WaitlistTicket;
 import cmuoh.ticketService.exception.InvalidSeatHoldRequestException;
 import cmuoh.ticketService.exception.NoSeatsAvailableException;
+import cmuoh.ticketService.exception.RequestInProgressException;
 import cmuoh.ticketService.exception.ReservationNotFoundException;
+import cmuoh.ticketService.exception.SeatHoldQueuedException;
+import cmuoh.ticketService.exception.ServiceOverloadedException;
+import cmuoh.ticketService.exception.TooManyRequestsException;
 import cmuoh.ticketService.exception.VenueLevelNotFoundException;
+import cmuoh.ticketService.exception.WaitlistTicketNotFoundException;
+import cmuoh.ticketService.util.ConcurrencyLimiter;
+import cmuoh.ticketService.util.CustomerDictionary;
 import cmuoh.ticketService.util.HoldTimeStampProvider;
+import cmuoh.ticketService.util.IdempotencyCache;
+import cmuoh.ticketService.util.RateLimiter;
+import cmuoh.ticketService.util.ReservationCodeSigner;
+import cmuoh.ticketService.util.StartupProgress;
 import com.codahale.metrics.annotation.ExceptionMetered;
 import com.codahale.metrics.annotation.Timed;
-import org.hibernate.validator.constraints.Email;
 import org.hibernate.validator.constraints.NotBlank;
-import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.time.Clock;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -42,204 +86,1293 @@ import java.util.stream.Collectors;
 public class VenueTicketManager {
     private static final Logger LOG = LoggerFactory.getLogger(VenueTicketManager.class);
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String SALES_CHANNEL_HEADER = "Sales-Channel";
+    public static final int MAX_RESERVATION_BATCH = 1000;
+    static final int MAX_WARM_UP_SEATS = 4;
+
     final VenueSeatingConfiguration configuration;
+    final Clock clock;
+    final long instanceEpoch = System.currentTimeMillis();
     final AtomicInteger reservationIdCounter = new AtomicInteger(1000000329);
-    final ReservationManager[] seatLevelResourceManager;
+    final CopyOnWriteArrayList<SeatLevelListener> seatLevelListeners = new CopyOnWriteArrayList<>();
     final ConcurrentHashMap<Integer, Integer> holdId2SeatLevel = new ConcurrentHashMap<>();
-    final EmailValidator emailValidator = new EmailValidator();
+    final ConcurrentHashMap<Integer, int[]> splitHoldParts = new ConcurrentHashMap<>();
+    final ConcurrentLinkedQueue<Integer> splitHoldOrder = new ConcurrentLinkedQueue<>();
+    final Set<String> seatAttributes = ConcurrentHashMap.newKeySet();
+    final Set<String> seatSections = ConcurrentHashMap.newKeySet();
+    final AtomicInteger waitlistTicketCounter = new AtomicInteger(5000011);
+    final ConcurrentHashMap<Integer, QueuedTicket> waitlistTickets = new ConcurrentHashMap<>();
+    final IdempotencyCache<SeatHold> holdRequests;
+    final IdempotencyCache<String> reserveRequests;
+    final CustomerDictionary customers = new CustomerDictionary();
+    final ReservationCodeSigner codeSigner;
+    final ConcurrencyLimiter concurrencyLimiter;
+    final RateLimiter customerRateLimiter;
+    final RateLimiter addressRateLimiter;
+    volatile TrafficCapture trafficCapture;
+
+    // NOTE: the level table is copy-on-write and only ever grows, an index that was valid stays valid; the seat
+    // levels are published before the resources so that every published resource has its seat level
+    volatile List<SeatLevel> seatLevels;
+    volatile ReservationManager[] seatLevelResourceManager;
+
+    /**
+     * Initialize the venue seat reservation manager
+     *
+     * @param configuration
+     * @throws Exception
+     */
+    public VenueTicketManager(VenueSeatingConfiguration configuration) throws Exception {
+        this(configuration, Clock.systemUTC());
+    }
+
+    /**
+     * Initialize the venue with the clock that times the holds, e.g. the virtual clock of a replay
+     *
+     * @param configuration
+     * @param clock
+     * @throws Exception
+     */
+    public VenueTicketManager(VenueSeatingConfiguration configuration, Clock clock) throws Exception {
+        if (configuration.getSeatLevels().size() == 0) {
+            throw new IllegalArgumentException("configuration.seatLevels");
+        }
+
+        this.configuration = configuration;
+        this.clock = clock;
+
+        IdempotencyConfiguration idempotency = configuration.getIdempotency();
+        this.holdRequests = new IdempotencyCache<>(idempotency.getMaxEntries(), idempotency.getExpireAfter(),
+                idempotency.getAwaitInFlight(), TimeUnit.SECONDS);
+        this.reserveRequests = new IdempotencyCache<>(idempotency.getMaxEntries(), idempotency.getExpireAfter(),
+                idempotency.getAwaitInFlight(), TimeUnit.SECONDS);
+
+        ConcurrencyLimitConfiguration concurrencyLimit = configuration.getConcurrencyLimit();
+        this.concurrencyLimiter = concurrencyLimit.isEnabled()
+                ? new ConcurrencyLimiter(concurrencyLimit.getInitialLimit(), concurrencyLimit.getMinLimit(),
+                        concurrencyLimit.getMaxLimit(), concurrencyLimit.getReservedPercent() / 100.0,
+                        concurrencyLimit.getLatencyTolerance())
+                : null;
+
+        RateLimitConfiguration rateLimit = configuration.getRateLimit();
+        this.customerRateLimiter = rateLimit.isEnabled()
+                ? new RateLimiter(rateLimit.getCustomerRate(), rateLimit.getCustomerBurst(),
+                        rateLimit.getMaxTrackedKeys())
+                : null;
+        this.addressRateLimiter = rateLimit.isEnabled()
+                ? new RateLimiter(rateLimit.getAddressRate(), rateLimit.getAddressBurst(),
+                        rateLimit.getMaxTrackedKeys())
+                : null;
+
+        String secret = configuration.getConfirmationCodes().getSecret();
+        if (secret == null) {
+            LOG.warn("no confirmation code secret configured, codes will only verify on this instance until restart");
+            this.codeSigner = new ReservationCodeSigner(ReservationCodeSigner.generateKey());
+        } else {
+            this.codeSigner = new ReservationCodeSigner(Base64.getDecoder().decode(secret));
+        }
+
+        ReservationManager[] resources = new ReservationManager[configuration.getSeatLevels().size()];
+        for (int lvlNum = 0; lvlNum < resources.length; ++lvlNum) {
+            resources[lvlNum] = buildLevel(configuration.getSeatLevels().get(lvlNum), lvlNum);
+        }
+
+        this.seatLevels = Collections.unmodifiableList(new ArrayList<>(configuration.getSeatLevels()));
+        this.seatLevelResourceManager = resources;
+    }
+
+    /**
+     * Validates a seat level and builds its resource with its closed seats taken off sale
+     */
+    private ReservationManager buildLevel(SeatLevel lvl, int lvlNum) throws Exception {
+        if (lvl.getRows() < 1) {
+            throw new Exception(String.format("Invalid number of rows (%d) for seating level %d", lvl.getRows(),
+                    lvlNum));
+        }
+
+        if (lvl.getSeatsInRow() < 1) {
+            throw new Exception(String.format("Invalid number of seats (%d) for seating level %d, row %d",
+                    lvlNum, lvl.getRows(), lvl.getSeatsInRow()));
+        }
+
+        boolean hasSections = lvl.getSections() != null && !lvl.getSections().isEmpty();
+        if (hasSections && lvl.getChannelQuotas() != null && !lvl.getChannelQuotas().isEmpty()) {
+            throw new Exception(String.format("Seating level %d can't have both sections and channel quotas",
+                    lvlNum));
+        }
+
+        ReservationManager resource = buildSeatLevel(lvl, lvlNum, lvl.getName());
+        resource.setReservationIdCounter(reservationIdCounter);
+        if (lvl.getClosedSeats() != null) {
+            for (String spec : lvl.getClosedSeats()) {
+                closeSeats(resource, lvl, lvlNum, spec);
+            }
+        }
+
+        seatAttributes.addAll(resource.getSlotAttributes());
+        if (hasSections) {
+            lvl.getSections().forEach(section -> seatSections.add(section.getName()));
+        }
+
+        return resource;
+    }
+
+    private ReservationManager buildSeatLevel(SeatLevel lvl, int lvlNum, String tag) throws Exception {
+        boolean hasSections = lvl.getSections() != null && !lvl.getSections().isEmpty();
+        ReservationManager resource = new ReservationManager(lvlNum, lvl.getRows(), lvl.getSeatsInRow(),
+                hasSections ? buildSectionPartitions(lvl, lvlNum) : buildChannelPartitions(lvl, lvlNum),
+                new HoldTimeStampProvider(configuration.getHoldsExpireAfter(), clock),
+                tag);
+
+        resource.setPublishOnChange(configuration.getAvailabilitySnapshots().isPublishOnChange());
+        resource.setCombining(Boolean.TRUE.equals(configuration.getCombineRequests()));
+        resource.setSlotAttributes(buildSeatAttributes(lvl, lvlNum));
+        return resource;
+    }
+
+    /**
+     * Sets aside the channel quotas at the back of the level, in the order the channels are listed
+     */
+    private static List<SlotPartition> buildChannelPartitions(SeatLevel lvl, int lvlNum) throws Exception {
+        List<SlotPartition> partitions = new ArrayList<>();
+        if (lvl.getChannelQuotas() == null) {
+            return partitions;
+        }
+
+        int end = lvl.getRows() * lvl.getSeatsInRow();
+        for (Map.Entry<String, Integer> quota : lvl.getChannelQuotas().entrySet()) {
+            if (quota.getValue() == null || quota.getValue() < 1 || quota.getValue() > end) {
+                throw new Exception(String.format("Invalid quota (%s) for channel %s on seating level %d",
+                        quota.getValue(), quota.getKey(), lvlNum));
+            }
+
+            end -= quota.getValue();
+            partitions.add(new SlotPartition(quota.getKey(), end, quota.getValue(),
+                    !Boolean.FALSE.equals(lvl.getChannelOverflow())));
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Splits the front of the level into sections of whole rows, in the order the sections are listed
+     */
+    private static List<SlotPartition> buildSectionPartitions(SeatLevel lvl, int lvlNum) throws Exception {
+        List<SlotPartition> partitions = new ArrayList<>();
+
+        int row = 0;
+        for (SeatSection section : lvl.getSections()) {
+            if (section.getName() == null || section.getRows() < 1 || row + section.getRows() > lvl.getRows()) {
+                throw new Exception(String.format("Invalid number of rows (%d) for section %s on seating level %d",
+                        section.getRows(), section.getName(), lvlNum));
+            }
+
+            partitions.add(SlotPartition.section(section.getName(), row * lvl.getSeatsInRow(),
+                    section.getRows() * lvl.getSeatsInRow()));
+            row += section.getRows();
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Parses the "row:seats" specs of the seat attributes into slot bitmaps
+     */
+    private static Map<String, BitSet> buildSeatAttributes(SeatLevel lvl, int lvlNum) throws Exception {
+        Map<String, BitSet> attributes = new HashMap<>();
+        if (lvl.getSeatAttributes() == null) {
+            return attributes;
+        }
+
+        for (Map.Entry<String, List<String>> attribute : lvl.getSeatAttributes().entrySet()) {
+            BitSet seats = new BitSet(lvl.getRows() * lvl.getSeatsInRow());
+            for (String spec : attribute.getValue()) {
+                int[] rows = parseSeatRange(spec, 0, lvl.getRows(), lvlNum);
+                int[] seatsInRow = parseSeatRange(spec, 1, lvl.getSeatsInRow(), lvlNum);
+
+                for (int row = rows[0]; row <= rows[1]; ++row) {
+                    int rowStart = row * lvl.getSeatsInRow();
+                    seats.set(rowStart + seatsInRow[0], rowStart + seatsInRow[1] + 1);
+                }
+            }
+            attributes.put(attribute.getKey(), seats);
+        }
+
+        return attributes;
+    }
+
+    private static int[] parseSeatRange(String spec, int part, int count, int lvlNum) throws Exception {
+        String[] parts = spec.trim().split(":");
+        if (parts.length != 2) {
+            throw new Exception(String.format("Invalid seat attribute spec (%s) for seating level %d", spec, lvlNum));
+        }
+
+        String range = parts[part].trim();
+        if (range.equals("*")) {
+            return new int[] { 0, count - 1 };
+        }
+
+        try {
+            int dash = range.indexOf('-');
+            int first = Integer.parseInt(dash < 0 ? range : range.substring(0, dash).trim());
+            int last = dash < 0 ? first : Integer.parseInt(range.substring(dash + 1).trim());
+            if (first < 0 || first > last || last >= count) {
+                throw new NumberFormatException(range);
+            }
+            return new int[] { first, last };
+        } catch (NumberFormatException e) {
+            throw new Exception(String.format("Invalid seat attribute spec (%s) for seating level %d", spec, lvlNum));
+        }
+    }
+
+    /**
+     * Adds a seat level to the venue while it takes traffic, the level is numbered after the existing levels
+     *
+     * @param lvl
+     * @return the number of the new level
+     * @throws Exception if the seat level is not valid
+     */
+    public synchronized int addSeatLevel(SeatLevel lvl) throws Exception {
+        ReservationManager[] current = seatLevelResourceManager;
+        int lvlNum = current.length;
+        ReservationManager resource = buildLevel(lvl, lvlNum);
+
+        List<SeatLevel> levels = new ArrayList<>(seatLevels);
+        levels.add(lvl);
+        seatLevels = Collections.unmodifiableList(levels);
+
+        ReservationManager[] resources = Arrays.copyOf(current, lvlNum + 1);
+        resources[lvlNum] = resource;
+        seatLevelResourceManager = resources;
+
+        for (SeatLevelListener listener : seatLevelListeners) {
+            listener.onLevelAdded(resource);
+        }
+
+        LOG.info("seating level {} ({}) with {} seats was added", lvlNum, lvl.getName(), resource.maxCapacity());
+        return lvlNum;
+    }
+
+    /**
+     * Takes a block of seats of a level off sale. Held seats are taken off sale once their hold expires or is
+     * cancelled, reserved seats stay sold.
+     *
+     * @param venueLevel
+     * @param seats the seats as "row:seats", see {@link SeatLevel#getSeatAttributes()}
+     * @return the number of free seats that were taken off sale
+     * @throws Exception if the level does not exist or the seats are not valid
+     */
+    public int closeSeats(int venueLevel, String seats) throws Exception {
+        validateVenueLevel(venueLevel);
+        return closeSeats(seatLevelResourceManager[venueLevel], seatLevels.get(venueLevel), venueLevel, seats);
+    }
+
+    /**
+     * Puts a closed block of seats of a level back on sale
+     *
+     * @param venueLevel
+     * @param seats the seats as "row:seats", see {@link SeatLevel#getSeatAttributes()}
+     * @return the number of seats that were put back on sale
+     * @throws Exception if the level does not exist or the seats are not valid
+     */
+    public int openSeats(int venueLevel, String seats) throws Exception {
+        validateVenueLevel(venueLevel);
+
+        ReservationManager resource = seatLevelResourceManager[venueLevel];
+        SeatLevel lvl = seatLevels.get(venueLevel);
+        int[] rows = parseSeatRange(seats, 0, lvl.getRows(), venueLevel);
+        int[] seatsInRow = parseSeatRange(seats, 1, lvl.getSeatsInRow(), venueLevel);
+
+        int opened = 0;
+        for (int row = rows[0]; row <= rows[1]; ++row) {
+            opened += resource.openSlots(row * lvl.getSeatsInRow() + seatsInRow[0], seatsInRow[1] - seatsInRow[0] + 1);
+        }
+        return opened;
+    }
+
+    private static int closeSeats(ReservationManager resource, SeatLevel lvl, int lvlNum, String seats)
+            throws Exception {
+        int[] rows = parseSeatRange(seats, 0, lvl.getRows(), lvlNum);
+        int[] seatsInRow = parseSeatRange(seats, 1, lvl.getSeatsInRow(), lvlNum);
+
+        int closed = 0;
+        for (int row = rows[0]; row <= rows[1]; ++row) {
+            closed += resource.closeSlots(row * lvl.getSeatsInRow() + seatsInRow[0],
+                    seatsInRow[1] - seatsInRow[0] + 1);
+        }
+        return closed;
+    }
+
+    /**
+     * Register a listener that is notified when a seat level is added
+     *
+     * @param listener
+     */
+    public void addSeatLevelListener(SeatLevelListener listener) {
+        seatLevelListeners.add(listener);
+    }
+
+    /**
+     * The seat levels of the venue, indexed by level
+     *
+     * @return
+     */
+    public List<SeatLevel> getSeatLevels() {
+        return seatLevels;
+    }
+
+    /**
+     * The signer for the reservation confirmation codes
+     *
+     * @return
+     */
+    public ReservationCodeSigner getCodeSigner() {
+        return codeSigner;
+    }
+
+    /**
+     * Capture the hold, reserve and availability calls from now on
+     *
+     * @param trafficCapture the capture or NULL to stop capturing
+     */
+    public void setTrafficCapture(TrafficCapture trafficCapture) {
+        this.trafficCapture = trafficCapture;
+    }
+
+    /**
+     * Starts capturing a call to an endpoint, the call is recorded once it returns or fails. Callers check that
+     * capturing is on first so that no recorder is allocated otherwise.
+     *
+     * @param recorder records the call with its arguments and outcome
+     * @return the call, it is not recorded if capturing is off
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CapturedCall<T> capture(CallRecorder<T> recorder) {
+        TrafficCapture capture = trafficCapture;
+        if (capture == null) {
+            return (CapturedCall<T>) CapturedCall.NOT_CAPTURED;
+        }
+        return new CapturedCall<>(capture, capture.arrival(), recorder);
+    }
+
+    /**
+     * The limiter in front of the hold and reserve endpoints
+     *
+     * @return the limiter or NULL if concurrency limiting is disabled
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * The per customer rate limiter for hold requests
+     *
+     * @return the limiter or NULL if rate limiting is disabled
+     */
+    public RateLimiter getCustomerRateLimiter() {
+        return customerRateLimiter;
+    }
+
+    /**
+     * The per client address rate limiter for hold requests
+     *
+     * @return the limiter or NULL if rate limiting is disabled
+     */
+    public RateLimiter getAddressRateLimiter() {
+        return addressRateLimiter;
+    }
+
+    /**
+     * The reservation resources for the seat levels, indexed by level. The list is a live view, levels added later
+     * show up in it.
+     *
+     * @return
+     */
+    public List<ReservationManager> getSeatLevelResources() {
+        return new AbstractList<ReservationManager>() {
+            @Override
+            public ReservationManager get(int index) {
+                return seatLevelResourceManager[index];
+            }
+
+            @Override
+            public int size() {
+                return seatLevelResourceManager.length;
+            }
+        };
+    }
+
+    /**
+     * Periodically collect expired holds and refresh the availability snapshots of each level, expired split holds
+     * are dropped as well
+     *
+     * @param executor
+     */
+    public void startSnapshotPublisher(ScheduledExecutorService executor) {
+        int interval = configuration.getAvailabilitySnapshots().getPublishInterval();
+        if (interval <= 0) {
+            return;
+        }
+
+        executor.scheduleAtFixedRate(() -> {
+            for (ReservationManager resource : seatLevelResourceManager) {
+                try {
+                    resource.refreshSnapshot();
+                } catch (RuntimeException e) {
+                    LOG.error("failed to refresh availability snapshot for {}", resource.getTag(), e);
+                }
+            }
+
+            try {
+                pruneSplitHolds();
+            } catch (RuntimeException e) {
+                LOG.error("failed to prune the expired split holds", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Periodically drop the customers that are idle and own no hold, their IDs are reused
+     *
+     * @param executor
+     */
+    public void startCustomerEviction(ScheduledExecutorService executor) {
+        int interval = configuration.getCustomerEvictionInterval();
+        if (interval <= 0) {
+            return;
+        }
+
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                evictCustomers();
+            } catch (RuntimeException e) {
+                LOG.error("failed to evict the idle customers", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    int evictCustomers() {
+        BitSet owners = new BitSet();
+        for (ReservationManager resource : seatLevelResourceManager) {
+            resource.forEachOwner(owners::set);
+        }
+
+        int evicted = customers.evictUnused(owners::get);
+        if (evicted > 0) {
+            LOG.info("evicted {} idle customers, {} remain", evicted, customers.size());
+        }
+        return evicted;
+    }
+
+    /**
+     * Upper bound on how stale the availability being served by the read endpoints can be
+     *
+     * @param unit
+     * @return age of the oldest published snapshot
+     */
+    public long getSnapshotStaleness(TimeUnit unit) {
+        long staleness = 0;
+        for (ReservationManager resource : seatLevelResourceManager) {
+            staleness = Math.max(staleness, resource.getSnapshot().getAge(unit));
+        }
+        return staleness;
+    }
+
+    /**
+     * Runs holds, confirmations, cancellations and availability reads against scratch copies of the seat levels so
+     * that the hot paths are JIT compiled before the service takes traffic. The live levels are not touched.
+     *
+     * @param iterations number of hold rounds
+     * @param phase advanced once per round and completed when the warm-up ends
+     * @throws Exception
+     */
+    public void warmUp(int iterations, StartupProgress.Phase phase) throws Exception {
+        try {
+            List<SeatLevel> levels = seatLevels;
+            ReservationManager[] scratchLevels = new ReservationManager[levels.size()];
+
+            for (int round = 0; round < iterations; ++round) {
+                int lvlNum = round % levels.size();
+                ReservationManager resource = scratchLevels[lvlNum];
+                if (resource == null || resource.countAvailableSlots() < MAX_WARM_UP_SEATS) {
+                    resource = buildSeatLevel(levels.get(lvlNum), lvlNum, "warm-up");
+                    scratchLevels[lvlNum] = resource;
+                }
+
+                ReservationHold hold = resource.requestHold(1 + round % MAX_WARM_UP_SEATS, round, null);
+                if (hold != null) {
+                    if (round % 2 == 0) {
+                        resource.confirmHold(hold.getReservationId());
+                        generateReservationCode(hold);
+                    } else {
+                        resource.cancelHold(hold.getReservationId());
+                    }
+                }
+
+                if (round % 16 == 0) {
+                    resource.refreshSnapshot();
+                    resource.countContiguousBlocks(2);
+                    resource.getSlotStates().encodeRuns();
+                }
+                phase.advance(1);
+            }
+        } finally {
+            phase.complete();
+        }
+    }
+
+    /**
+     * The details for reservation holds at the venue. The response is tagged with the change versions of the levels
+     * so that unchanged polls are answered with 304 (Not Modified) without collecting the holds.
+     *
+     * @param venueLevel a numeric venue level identifier to limit the details
+     * @param request used to evaluate conditional request headers
+     * @return
+     * @throws VenueLevelNotFoundException
+     */
+    @GET
+    @Timed
+    @ExceptionMetered
+    @Path("/holdDetails")
+    public Response venueHoldDetails(
+            @QueryParam("venueLevel") Integer venueLevel,
+            @Context Request request
+    ) throws VenueLevelNotFoundException {
+        validateVenueLevel(venueLevel);
+
+        // NOTE: versions are read before the details are built so that a concurrent change is never masked
+        int lastLevel = toLevel(venueLevel);
+        long version = 0;
+        for (int level = fromLevel(venueLevel); level <= lastLevel; ++level) {
+            version += seatLevelResourceManager[level].getVersion();
+        }
+
+        EntityTag entityTag = buildEntityTag("holdDetails", venueLevel, lastLevel, version);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.tag(entityTag).build();
+        }
+
+        return Response.ok(venueHoldDetails(venueLevel)).tag(entityTag).build();
+    }
+
+    /**
+     * The details for reservation holds at the venue
+     *
+     * @param venueLevel a numeric venue level identifier to limit the details
+     * @return
+     * @throws VenueLevelNotFoundException
+     */
+    public List<SeatLevelHoldDetail> venueHoldDetails(Integer venueLevel) throws VenueLevelNotFoundException {
+        validateVenueLevel(venueLevel);
+
+        ArrayList<SeatLevelHoldDetail> seatLevelHoldDetails = new ArrayList<>();
+
+        for (int level = fromLevel(venueLevel); level <= toLevel(venueLevel); ++level) {
+            ReservationManager resource = seatLevelResourceManager[level];
+
+            SeatLevel seatLevel = seatLevels.get(level);
+
+            List<SeatHold> seatHolds = resource.getAllReservations().stream()
+                    .map(this::buildSeatHold)
+                    .collect(Collectors.toList());
+
+            seatLevelHoldDetails.add(new SeatLevelHoldDetail(seatLevel.getName(), seatLevel.getRows(),
+                    seatLevel.getSeatsInRow(), seatHolds));
+        }
+
+        return seatLevelHoldDetails;
+    }
+
+    /**
+     * The number of seats in the requested level that are neither held nor reserved. The response is tagged with
+     * the versions of the availability snapshots it was computed from so that unchanged polls are answered with 304
+     * (Not Modified).
+     *
+     * With {@code together} the response lists, per level, how many blocks of that many adjacent seats are free and
+     * the largest block of adjacent free seats instead.
+     *
+     * @param venueLevel a numeric venue level identifier to limit the search
+     * @param together optional number of seats that must be next to each other in a row
+     * @param request used to evaluate conditional request headers
+     * @return the number of tickets available on the provided level
+     * @throws VenueLevelNotFoundException
+     * @throws InvalidSeatHoldRequestException if the block size is not valid
+     */
+    @GET
+    @Timed
+    @ExceptionMetered
+    @Path("/numSeatsAvailable")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN})
+    public Response numSeatsAvailable(
+            @QueryParam("venueLevel") Integer venueLevel,
+            @QueryParam("together") Integer together,
+            @Context Request request
+    ) throws VenueLevelNotFoundException, InvalidSeatHoldRequestException {
+        if (trafficCapture == null) {
+            return seatsAvailable(venueLevel, together, request);
+        }
+
+        CapturedCall<Response> call = capture((capture, arrivalNanos, response, failure) ->
+                capture.recordAvailability(arrivalNanos, venueLevel, together, response, failure));
+        try {
+            return call.succeeded(seatsAvailable(venueLevel, together, request));
+        } catch (Exception e) {
+            call.failed(e);
+            throw e;
+        }
+    }
+
+    private Response seatsAvailable(Integer venueLevel, Integer together, Request request)
+            throws VenueLevelNotFoundException, InvalidSeatHoldRequestException {
+        validateVenueLevel(venueLevel);
+
+        if (together != null) {
+            return contiguousSeatsAvailable(venueLevel, together, request);
+        }
+
+        int lastLevel = toLevel(venueLevel);
+        int available = 0;
+        long version = 0;
+        for (int level = fromLevel(venueLevel); level <= lastLevel; ++level) {
+            AvailabilitySnapshot snapshot = seatLevelResourceManager[level].getSnapshot();
+            available += snapshot.getAvailableSlots();
+            version += snapshot.getVersion();
+        }
+
+        EntityTag entityTag = buildEntityTag("numSeatsAvailable", venueLevel, lastLevel, version);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.tag(entityTag).build();
+        }
+
+        return Response.ok(available).tag(entityTag).build();
+    }
+
+    private Response contiguousSeatsAvailable(Integer venueLevel, int together, Request request)
+            throws VenueLevelNotFoundException, InvalidSeatHoldRequestException {
+        if (together < 1) {
+            throw new InvalidSeatHoldRequestException(
+                    String.format("Invalid number of seats together [%d] being requested", together));
+        }
+
+        // NOTE: versions are read before the index so that a concurrent change is never masked
+        int lastLevel = toLevel(venueLevel);
+        long version = 0;
+        for (int level = fromLevel(venueLevel); level <= lastLevel; ++level) {
+            version += seatLevelResourceManager[level].getVersion();
+        }
+
+        EntityTag entityTag = buildEntityTag("numSeatsAvailable-" + together, venueLevel, lastLevel, version);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.tag(entityTag).build();
+        }
+
+        return Response.ok(contiguousSeatsAvailable(venueLevel, together), MediaType.APPLICATION_JSON_TYPE)
+                .tag(entityTag)
+                .build();
+    }
+
+    /**
+     * How many blocks of adjacent free seats of the given size each level has, answered from the availability index
+     * of the levels without visiting the seats
+     *
+     * @param venueLevel a numeric venue level identifier to limit the search
+     * @param together number of seats that must be next to each other in a row
+     * @return the blocks and the largest block of free seats for each level
+     * @throws VenueLevelNotFoundException
+     */
+    public List<LevelAvailability> contiguousSeatsAvailable(Integer venueLevel, int together)
+            throws VenueLevelNotFoundException {
+        validateVenueLevel(venueLevel);
+
+        List<LevelAvailability> levels = new ArrayList<>();
+        for (int level = fromLevel(venueLevel); level <= toLevel(venueLevel); ++level) {
+            ReservationManager resource = seatLevelResourceManager[level];
+            AvailabilitySnapshot snapshot = resource.getSnapshot();
+            levels.add(new LevelAvailability(level, snapshot.getAvailableSlots(), resource.getVersion(), together,
+                    resource.countContiguousBlocks(together), resource.largestContiguousBlock()));
+        }
+
+        return levels;
+    }
+
+    /**
+     * The number of seats in the requested level that are neither held nor reserved. The count is served from the
+     * latest availability snapshots and is at most {@link #getSnapshotStaleness(TimeUnit)} old.
+     *
+     * @param venueLevel a numeric venue level identifier to limit the search
+     * @return the number of tickets available on the provided level
+     * @throws VenueLevelNotFoundException
+     */
+    public int numSeatsAvailable(Integer venueLevel) throws VenueLevelNotFoundException {
+        validateVenueLevel(venueLevel);
+
+        int available = 0;
+        for (int level = fromLevel(venueLevel); level <= toLevel(venueLevel); ++level) {
+            AvailabilitySnapshot snapshot = seatLevelResourceManager[level].getSnapshot();
+            available += snapshot.getAvailableSlots();
+        }
+
+        return available;
+    }
+
+    /**
+     * The state (free, held or confirmed) of every seat in a level as a compressed run-length encoded map. The
+     * response is tagged with the change version of the level so that unchanged polls are answered with 304.
+     *
+     * @param venueLevel the venue level
+     * @param request used to evaluate conditional request headers
+     * @return the seat map of the level
+     * @throws VenueLevelNotFoundException
+     */
+    @GET
+    @Timed
+    @ExceptionMetered
+    @Path("/levels/{level}/seatMap")
+    public Response seatMap(
+            @PathParam("level") @NotNull Integer venueLevel,
+            @Context Request request
+    ) throws VenueLevelNotFoundException {
+        validateVenueLevel(venueLevel);
+
+        ReservationManager resource = seatLevelResourceManager[venueLevel];
+        long version = resource.getVersion();
+
+        EntityTag entityTag = buildEntityTag("seatMap", venueLevel, venueLevel, version);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.tag(entityTag).build();
+        }
+
+        SeatLevel seatLevel = seatLevels.get(venueLevel);
+        String runs = Base64.getEncoder().encodeToString(resource.getSlotStates().encodeRuns());
+
+        return Response.ok(new SeatMap(venueLevel, seatLevel.getRows(), seatLevel.getSeatsInRow(), version,
+                SeatMap.RUN_LENGTH_ENCODING, runs))
+                .tag(entityTag)
+                .build();
+    }
+
+    private void validateVenueLevel(Integer venueLevel) throws VenueLevelNotFoundException {
+        if (venueLevel != null && (venueLevel < 0 || venueLevel >= seatLevelResourceManager.length)) {
+            throw new VenueLevelNotFoundException(venueLevel);
+        }
+    }
+
+    private int fromLevel(Integer venueLevel) {
+        return venueLevel != null ? venueLevel : 0;
+    }
+
+    private int toLevel(Integer venueLevel) {
+        return venueLevel != null ? venueLevel : seatLevelResourceManager.length - 1;
+    }
+
+    /**
+     * Builds an entity tag from the (monotonically increasing) change versions of the levels in a response, the
+     * instance epoch keeps tags from a previous run of the service from matching. A response for all the levels is
+     * tagged with their number as well since an added level starts at version 0.
+     */
+    private EntityTag buildEntityTag(String endpoint, Integer venueLevel, int lastLevel, long version) {
+        return new EntityTag(endpoint + '-' + Long.toHexString(instanceEpoch) + '-'
+                + (venueLevel != null ? venueLevel : "all" + (lastLevel + 1)) + '-' + Long.toHexString(version));
+    }
+
+    /**
+     * Find and hold the best available seats for a customer
+     *
+     * @param numSeats the number of seats to find and hold
+     * @param minLevel the minimum venue level
+     * @param maxLevel the maximum venue level
+     * @param allowSplit split the hold across levels when no single level has enough seats
+     * @param channel optional sales channel, seats are held from the channel's quota on each level
+     * @param section optional section, seats are only held from the levels that have a section with that name
+     * @param attributes optional seat attributes (e.g. aisle), only seats tagged with all of them are held
+     * @param idempotencyKey optional client key, retries with the same key return the original seat hold
+     * @param httpRequest the request, its client address is rate limited
+     * @param customerEmail unique identifier for the customer
+     * @return a SeatHold object identifying the specific seats and related information
+     * @throws InvalidSeatHoldRequestException, NoSeatsAvailableException
+     * @throws SeatHoldQueuedException when the waitlist is enabled and the request was queued
+     * @throws RequestInProgressException when the original request for the idempotency key has not finished
+     * @throws ServiceOverloadedException when the request was shed by the concurrency limit
+     * @throws TooManyRequestsException when the customer or the client address exceeded its request rate
+     */
+    @POST
+    @Timed
+    @ExceptionMetered
+    @Path("/findAndHoldSeats")
+    public SeatHold findAndHoldSeats(
+            @QueryParam("numSeats") @NotNull Integer numSeats,
+            @QueryParam("minLevel") Integer minLevel,
+            @QueryParam("maxLevel") Integer maxLevel,
+            @QueryParam("allowSplit") Boolean allowSplit,
+            @HeaderParam(SALES_CHANNEL_HEADER) String channel,
+            @QueryParam("section") String section,
+            @QueryParam("attribute") List<String> attributes,
+            @HeaderParam(IDEMPOTENCY_KEY_HEADER) String idempotencyKey,
+            @Context HttpServletRequest httpRequest,
+            @NotNull @NotBlank String customerEmail
+    ) throws InvalidSeatHoldRequestException, NoSeatsAvailableException, SeatHoldQueuedException,
+            RequestInProgressException, ServiceOverloadedException, TooManyRequestsException, InterruptedException {
+        String remoteAddress = httpRequest != null ? httpRequest.getRemoteAddr() : null;
+        if (trafficCapture == null) {
+            return findAndHoldSeatsFrom(numSeats, minLevel, maxLevel, allowSplit, channel, section, attributes,
+                    idempotencyKey, remoteAddress, customerEmail);
+        }
+
+        CapturedCall<SeatHold> call = capture((capture, arrivalNanos, seatHold, failure) ->
+                capture.recordHold(arrivalNanos, numSeats, minLevel, maxLevel, allowSplit, channel, section,
+                        attributes, idempotencyKey, remoteAddress, customerEmail, seatHold, failure));
+        try {
+            return call.succeeded(findAndHoldSeatsFrom(numSeats, minLevel, maxLevel, allowSplit, channel, section,
+                    attributes, idempotencyKey, remoteAddress, customerEmail));
+        } catch (Exception e) {
+            call.failed(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Find and hold the best available seats for a customer calling from the given client address, see
+     * {@link #findAndHoldSeats}
+     *
+     * @param remoteAddress the client address that is rate limited, if known
+     */
+    public SeatHold findAndHoldSeatsFrom(Integer numSeats, Integer minLevel, Integer maxLevel, Boolean allowSplit,
+                                         String channel, String section, List<String> attributes,
+                                         String idempotencyKey, String remoteAddress, String customerEmail
+    ) throws InvalidSeatHoldRequestException, NoSeatsAvailableException, SeatHoldQueuedException,
+            RequestInProgressException, ServiceOverloadedException, TooManyRequestsException, InterruptedException {
+        checkRateLimits(customerEmail, remoteAddress);
+
+        long admittedAt = admit(ConcurrencyLimiter.Priority.LOW);
+        try {
+            if (idempotencyKey == null) {
+                return holdSeats(numSeats, minLevel, maxLevel, Boolean.TRUE.equals(allowSplit), channel, section,
+                        attributes, customerEmail);
+            }
+
+            IdempotencyCache.Claim<SeatHold> claim = claimIdempotencyKey(holdRequests, idempotencyKey,
+                    customerEmail);
+            if (!claim.isOwner()) {
+                return claim.getResult();
+            }
+
+            try {
+                SeatHold seatHold = holdSeats(numSeats, minLevel, maxLevel, Boolean.TRUE.equals(allowSplit), channel,
+                        section, attributes, customerEmail);
+                claim.complete(seatHold);
+                return seatHold;
+            } finally {
+                claim.release();
+            }
+        } finally {
+            release(admittedAt);
+        }
+    }
+
+    /**
+     * Takes a token from the buckets of the customer and of the client address, before any level is touched
+     *
+     * @throws TooManyRequestsException if either of them is empty
+     */
+    private void checkRateLimits(String customerEmail, String remoteAddress) throws TooManyRequestsException {
+        if (customerRateLimiter == null) {
+            return;
+        }
+
+        if (remoteAddress != null) {
+            long waitNanos = addressRateLimiter.tryAcquire(RateLimiter.addressKey(remoteAddress));
+            if (waitNanos > 0) {
+                throw new TooManyRequestsException("Too many requests from this address", retryAfterSeconds(waitNanos));
+            }
+        }
+
+        // NOTE: the email is only hashed, it is validated and interned once the request is admitted
+        if (customerEmail != null && !customerEmail.isEmpty()) {
+            long waitNanos = customerRateLimiter.tryAcquire(RateLimiter.customerKey(customerEmail));
+            if (waitNanos > 0) {
+                throw new TooManyRequestsException("Too many requests for this customer", retryAfterSeconds(waitNanos));
+            }
+        }
+    }
+
+    private static int retryAfterSeconds(long waitNanos) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    /**
+     * Admit a request through the concurrency limit
+     *
+     * @return the admission time to release the request with
+     * @throws ServiceOverloadedException if the request is shed
+     */
+    private long admit(ConcurrencyLimiter.Priority priority) throws ServiceOverloadedException {
+        if (concurrencyLimiter == null) {
+            return 0;
+        }
+
+        long admittedAt = concurrencyLimiter.tryAcquire(priority);
+        if (admittedAt < 0) {
+            throw new ServiceOverloadedException("Too many concurrent requests",
+                    configuration.getConcurrencyLimit().getRetryAfter());
+        }
+        return admittedAt;
+    }
+
+    private void release(long admittedAt) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release(admittedAt);
+        }
+    }
 
-    /**
-     * Initialize the venue seat reservation manager
-     *
-     * @param configuration
-     * @throws Exception
-     */
-    public VenueTicketManager(VenueSeatingConfiguration configuration) throws Exception {
-        if (configuration.getSeatLevels().size() == 0) {
-            throw new IllegalArgumentException("configuration.seatLevels");
+    private SeatHold holdSeats(Integer numSeats, Integer minLevel, Integer maxLevel, boolean allowSplit,
+                               String channel, String section, List<String> attributes, String customerEmail)
+            throws InvalidSeatHoldRequestException, NoSeatsAvailableException, SeatHoldQueuedException {
+        if (numSeats == 0) {
+            return null;
         }
 
-        this.configuration = configuration;
-        this.seatLevelResourceManager = new ReservationManager[configuration.getSeatLevels().size()];
+        if (numSeats < 0) {
+            throw new InvalidSeatHoldRequestException(
+                    String.format("Invalid number of hold [%d] being requested", numSeats));
+        }
+
+        int lo = minLevel != null ? minLevel : 0;
+        int hi = maxLevel != null ? maxLevel : seatLevelResourceManager.length - 1;
+
+        if (lo > hi || lo < 0 || hi >= seatLevelResourceManager.length) {
+            throw new InvalidSeatHoldRequestException(
+                    String.format("Seat hold level constraints are not valid [%d, %d]", lo, hi));
+        }
+
+        int customerId = resolveCustomer(customerEmail);
+
+        if (attributes != null) {
+            for (String attribute : attributes) {
+                if (!seatAttributes.contains(attribute)) {
+                    throw new InvalidSeatHoldRequestException(
+                            String.format("Unknown seat attribute [%s] requested", attribute));
+                }
+            }
+        }
+
+        if (section != null && !seatSections.contains(section)) {
+            throw new InvalidSeatHoldRequestException(String.format("Unknown section [%s] requested", section));
+        }
+
+        // NOTE: sections and channel quotas are partitions of a level, a level never has both
+        String partition = section != null ? section : channel;
+
+        for (int level = hi; level >= lo; --level) {
+            ReservationManager resource = seatLevelResourceManager[level];
+            if (section != null && !hasSection(resource, section)) {
+                continue;
+            }
+
+            ReservationHold hold = resource.requestHold(numSeats, partition, attributes, customerId, null);
+
+            if (hold != null) {
+                SeatHold seatHold = buildSeatHold(hold);
+                holdId2SeatLevel.put(seatHold.getReservationId(), seatHold.getLevel());
 
-        for (int lvlNum = 0; lvlNum < configuration.getSeatLevels().size(); ++lvlNum) {
-            SeatLevel lvl = configuration.getSeatLevels().get(lvlNum);
-            if (lvl.getRows() < 1) {
-                throw new Exception(String.format("Invalid number of rows (%d) for seating level %d", lvl.getRows(),
-                        lvlNum));
+                return seatHold;
             }
+        }
 
-            if (lvl.getSeatsInRow() < 1) {
-                throw new Exception(String.format("Invalid number of seats (%d) for seating level %d, row %d",
-                        lvlNum, lvl.getRows(), lvl.getSeatsInRow()));
+        if (allowSplit && lo < hi && section == null) {
+            SeatHold seatHold = splitHold(numSeats, lo, hi, channel, attributes, customerId);
+            if (seatHold != null) {
+                return seatHold;
             }
+        }
+
+        // NOTE: waiters are handed reclaimed shared seats, requests for seat attributes, a section or a channel's
+        // quota are not queued
+        boolean anySeat = section == null && (attributes == null || attributes.isEmpty())
+                && !hasChannelQuota(lo, hi, channel);
+        if (configuration.getWaitlist().isEnabled() && anySeat) {
+            return enqueueHoldRequest(numSeats, lo, hi, customerId);
+        }
 
-            int capacity = lvl.getRows() * lvl.getSeatsInRow();
+        throw new NoSeatsAvailableException();
+    }
 
-            ReservationManager resource = new ReservationManager(lvlNum, capacity,
-                    new HoldTimeStampProvider(configuration.getHoldsExpireAfter()),
-                    lvl.getName());
+    private static boolean hasSection(ReservationManager resource, String section) {
+        for (SlotPartition partition : resource.getPartitions()) {
+            if (partition.isOpen() && partition.getName().equals(section)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            resource.setReservationIdCounter(reservationIdCounter);
+    private boolean hasChannelQuota(int lo, int hi, String channel) {
+        if (channel == null) {
+            return false;
+        }
 
-            this.seatLevelResourceManager[lvlNum] = resource;
+        for (int level = lo; level <= hi; ++level) {
+            for (SlotPartition partition : seatLevelResourceManager[level].getPartitions()) {
+                if (!partition.isOpen() && partition.getName().equals(channel)) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
 
     /**
-     * The details for reservation holds at the venue
+     * Holds seats on several levels (highest level first). Each part is claimed optimistically and all of them are
+     * cancelled again if the levels don't have enough seats combined, no venue wide lock is taken.
      *
-     * @return
-     * @throws VenueLevelNotFoundException
+     * @return the composite seat hold or NULL if the seats could not be held
      */
-    @GET
-    @Timed
-    @ExceptionMetered
-    @Path("/holdDetails")
-    public List<SeatLevelHoldDetail> venueHoldDetails(
-            @QueryParam("venueLevel") Integer venueLevel
-    ) throws VenueLevelNotFoundException {
-        ArrayList<SeatLevelHoldDetail> seatLevelHoldDetails = new ArrayList<>();
+    private SeatHold splitHold(int numSeats, int lo, int hi, String channel, List<String> attributes,
+                               int customerId) {
+        // NOTE: pruned before any part is held so a failure here can't leave the new parts held behind an error
+        pruneSplitHolds();
 
-        int fromLevel = 0;
-        int toLevel = seatLevelResourceManager.length - 1;
+        List<ReservationHold> parts = new ArrayList<>();
+        int remaining = numSeats;
 
-        if (venueLevel != null) {
-            if (venueLevel < 0 || venueLevel >= seatLevelResourceManager.length) {
-                throw new VenueLevelNotFoundException(venueLevel);
+        for (int level = hi; level >= lo && remaining > 0; --level) {
+            ReservationManager resource = seatLevelResourceManager[level];
+            int slotCount = Math.min(resource.countAvailableSlots(channel, attributes), remaining);
+            if (slotCount < 1) {
+                continue;
             }
 
-            fromLevel = venueLevel;
-            toLevel = venueLevel;
+            ReservationHold hold = resource.requestHold(slotCount, channel, attributes, customerId, null);
+            if (hold != null) {
+                parts.add(hold);
+                remaining -= slotCount;
+            }
+        }
+
+        if (remaining > 0) {
+            cancelParts(parts);
+            return null;
         }
 
-        for (; fromLevel <= toLevel; ++fromLevel) {
-            ReservationManager resource = seatLevelResourceManager[fromLevel];
+        int[] partIds = new int[parts.size()];
+        for (int i = 0; i < parts.size(); ++i) {
+            partIds[i] = parts.get(i).getReservationId();
+            holdId2SeatLevel.put(partIds[i], parts.get(i).getResourceId());
+        }
 
-            SeatLevel seatLevel = configuration.getSeatLevels().get(fromLevel);
+        int seatHoldId = reservationIdCounter.incrementAndGet();
+        splitHoldParts.put(seatHoldId, partIds);
+        splitHoldOrder.offer(seatHoldId);
 
-            List<SeatHold> seatHolds = resource.getAllReservations().stream()
-                    .map(this::buildSeatHold)
-                    .collect(Collectors.toList());
+        LOG.info("hold #{} for {} seats was split across {} levels", seatHoldId, numSeats, parts.size());
+        return buildSplitSeatHold(seatHoldId, parts);
+    }
 
-            seatLevelHoldDetails.add(new SeatLevelHoldDetail(seatLevel.getName(), seatLevel.getRows(),
-                    seatLevel.getSeatsInRow(), seatHolds));
+    private void cancelParts(List<ReservationHold> parts) {
+        for (ReservationHold part : parts) {
+            seatLevelResourceManager[part.getResourceId()].cancelHold(part.getReservationId());
         }
+    }
 
-        return seatLevelHoldDetails;
+    /**
+     * Forgets a split hold that was confirmed or has failed
+     */
+    private void removeSplitHold(int seatHoldId, int[] partIds) {
+        if (splitHoldParts.remove(seatHoldId, partIds)) {
+            for (int partId : partIds) {
+                holdId2SeatLevel.remove(partId);
+            }
+        }
     }
 
     /**
-     * The number of seats in the requested level that are neither held nor reserved
+     * Looks up a part of a split hold
      *
-     * @param venueLevel a numeric venue level identifier to limit the search
-     * @return the number of tickets available on the provided level
-     * @throws VenueLevelNotFoundException
+     * @return the part or NULL if it expired or its split hold was already confirmed or failed by another call
      */
-    @GET
-    @Timed
-    @ExceptionMetered
-    @Path("/numSeatsAvailable")
-    @Produces({MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN})
-    public int numSeatsAvailable(
-            @QueryParam("venueLevel") Integer venueLevel
-    ) throws VenueLevelNotFoundException {
-        int fromLevel = 0;
-        int toLevel = seatLevelResourceManager.length - 1;
+    private ReservationHold getSplitHoldPart(int partId) {
+        Integer seatLevelId = holdId2SeatLevel.get(partId);
+        return seatLevelId == null ? null : seatLevelResourceManager[seatLevelId].getReservation(partId);
+    }
 
-        if (venueLevel != null) {
-            if (venueLevel < 0 || venueLevel >= seatLevelResourceManager.length) {
-                throw new VenueLevelNotFoundException(venueLevel);
-            }
+    /**
+     * Drops the split holds that have a part which expired, their other parts are cancelled. Split holds are visited
+     * oldest first and the first one that is still pending stops the pass, so this is cheap to call on every new
+     * split hold. Parts that another call already forgot are skipped.
+     */
+    void pruneSplitHolds() {
+        Integer seatHoldId;
+        while ((seatHoldId = splitHoldOrder.peek()) != null) {
+            int[] partIds = splitHoldParts.get(seatHoldId);
+            if (partIds != null) {
+                ReservationManager[] resources = seatLevelResourceManager;
+                boolean expired = false;
+                for (int partId : partIds) {
+                    expired |= getSplitHoldPart(partId) == null;
+                }
+                if (!expired) {
+                    return;
+                }
 
-            fromLevel = venueLevel;
-            toLevel = venueLevel;
+                for (int partId : partIds) {
+                    Integer seatLevelId = holdId2SeatLevel.get(partId);
+                    if (seatLevelId != null) {
+                        resources[seatLevelId].cancelHold(partId);
+                    }
+                }
+                removeSplitHold(seatHoldId, partIds);
+                LOG.info("split hold #{} has expired", seatHoldId);
+            }
+            splitHoldOrder.remove(seatHoldId);
         }
+    }
 
-        int available = 0;
-        for (; fromLevel <= toLevel; ++fromLevel) {
-            ReservationManager resource = seatLevelResourceManager[fromLevel];
-            available += resource.countAvailableSlots();
-        }
+    private SeatHold buildSplitSeatHold(int seatHoldId, List<ReservationHold> parts) {
+        List<SeatHold> seatHolds = parts.stream()
+                .map(this::buildSeatHold)
+                .collect(Collectors.toList());
 
-        return available;
+        SeatHold first = seatHolds.get(0);
+        SeatHold seatHold = new SeatHold(seatHoldId, null, first.getCustomerEmail(),
+                seatHolds.stream().mapToInt(SeatHold::getSeatCount).sum(),
+                seatHolds.stream().allMatch(SeatHold::getConfirmed),
+                first.getTimeStamp());
+        seatHold.setParts(seatHolds);
+
+        return seatHold;
     }
 
     /**
-     * Find and hold the best available seats for a customer
+     * Poll the state of a queued hold request
      *
-     * @param numSeats the number of seats to find and hold
-     * @param minLevel the minimum venue level
-     * @param maxLevel the maximum venue level
-     * @param customerEmail unique identifier for the customer
-     * @return a SeatHold object identifying the specific seats and related information
-     * @throws InvalidSeatHoldRequestException, NoSeatsAvailableException
+     * @param ticketId the waitlist ticket identifier
+     * @param waitSeconds optional number of seconds to block while the ticket is still waiting (long-poll)
+     * @return the waitlist ticket, with the held seats once it is fulfilled
+     * @throws WaitlistTicketNotFoundException
      */
-    @POST
+    @GET
     @Timed
     @ExceptionMetered
-    @Path("/findAndHoldSeats")
-    public SeatHold findAndHoldSeats(
-            @QueryParam("numSeats") @NotNull Integer numSeats,
-            @QueryParam("minLevel") Integer minLevel,
-            @QueryParam("maxLevel") Integer maxLevel,
-            @Email @NotNull @NotBlank String customerEmail
-    ) throws InvalidSeatHoldRequestException, NoSeatsAvailableException {
-        if (numSeats == 0) {
-            return null;
+    @Path("/waitlist/{ticketId}")
+    public WaitlistTicket waitlistTicket(
+            @PathParam("ticketId") @NotNull Integer ticketId,
+            @QueryParam("waitSeconds") Integer waitSeconds
+    ) throws WaitlistTicketNotFoundException, InterruptedException {
+        QueuedTicket ticket = waitlistTickets.get(ticketId);
+        if (ticket == null || ticket.isStale()) {
+            discardStaleTickets();
+            throw new WaitlistTicketNotFoundException(ticketId);
         }
 
-        if (numSeats < 0) {
-            throw new InvalidSeatHoldRequestException(
-                    String.format("Invalid number of hold [%d] being requested", numSeats));
+        int maxWait = Math.min(waitSeconds != null ? waitSeconds : 0, configuration.getWaitlist().getMaxPollWait());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(maxWait, 0));
+
+        while (true) {
+            // expiry is lazy, give the levels in range a chance to reclaim slots for the queued waiters
+            for (int level = ticket.lo; level <= ticket.hi && ticket.waiter.isWaiting(); ++level) {
+                seatLevelResourceManager[level].countAvailableSlots();
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || ticket.waiter.await(Math.min(remaining, TimeUnit.SECONDS.toNanos(1)),
+                    TimeUnit.NANOSECONDS)) {
+                break;
+            }
         }
 
-        int lo = minLevel != null ? minLevel : 0;
-        int hi = maxLevel != null ? maxLevel : seatLevelResourceManager.length - 1;
+        return buildWaitlistTicket(ticket.waiter);
+    }
 
-        if (lo > hi || lo < 0 || hi >= seatLevelResourceManager.length) {
-            throw new InvalidSeatHoldRequestException(
-                    String.format("Seat hold level constraints are not valid [%d, %d]", lo, hi));
+    private SeatHold enqueueHoldRequest(int numSeats, int lo, int hi, int customerId)
+            throws NoSeatsAvailableException, SeatHoldQueuedException {
+        WaitlistConfiguration waitlist = configuration.getWaitlist();
+
+        if (waitlistTickets.size() >= waitlist.getMaxWaiters()) {
+            discardStaleTickets();
+            if (waitlistTickets.size() >= waitlist.getMaxWaiters()) {
+                throw new NoSeatsAvailableException();
+            }
         }
 
-        validateCustomerEmail(customerEmail);
+        HoldWaiter waiter = new HoldWaiter(waitlistTicketCounter.incrementAndGet(), numSeats, customerId, null,
+                waitlist.getWaitFor(), TimeUnit.SECONDS,
+                hold -> holdId2SeatLevel.put(hold.getReservationId(), hold.getResourceId()));
 
-        for (; hi >= lo; --hi) {
-            ReservationManager resource = seatLevelResourceManager[hi];
-            ReservationHold hold = resource.requestHold(numSeats, customerEmail);
+        boolean queued = false;
+        for (int level = hi; level >= lo && waiter.isWaiting(); --level) {
+            queued |= seatLevelResourceManager[level].addWaiter(waiter);
+        }
 
-            if (hold != null) {
-                SeatHold seatHold = buildSeatHold(hold);
-                holdId2SeatLevel.put(seatHold.getReservationId(), seatHold.getLevel());
+        // seats might have been released while the waiter was being queued
+        if (waiter.getHold() != null) {
+            return buildSeatHold(waiter.getHold());
+        }
 
-                return seatHold;
-            }
+        // NOTE: no level in range could ever free up that many seats, queueing would only hold a waitlist slot
+        if (!queued) {
+            waiter.cancel();
+            throw new NoSeatsAvailableException();
         }
 
-        throw new NoSeatsAvailableException();
+        long retainFor = TimeUnit.SECONDS.toNanos(waitlist.getWaitFor() + configuration.getHoldsExpireAfter());
+        waitlistTickets.put(waiter.getTicketId(), new QueuedTicket(waiter, lo, hi, System.nanoTime() + retainFor));
+
+        LOG.info("hold request for {} seats on levels [{}, {}] queued as ticket #{}",
+                numSeats, lo, hi, waiter.getTicketId());
+
+        throw new SeatHoldQueuedException(buildWaitlistTicket(waiter));
+    }
+
+    private void discardStaleTickets() {
+        waitlistTickets.values().removeIf(QueuedTicket::isStale);
+    }
+
+    private WaitlistTicket buildWaitlistTicket(HoldWaiter waiter) {
+        ReservationHold hold = waiter.getHold();
+        if (hold != null) {
+            return new WaitlistTicket(waiter.getTicketId(), waiter.getSlotCount(), WaitlistTicket.Status.FULFILLED,
+                    buildSeatHold(hold));
+        }
+
+        WaitlistTicket.Status status = waiter.isExpired() ?
+                WaitlistTicket.Status.EXPIRED :
+                WaitlistTicket.Status.WAITING;
+
+        return new WaitlistTicket(waiter.getTicketId(), waiter.getSlotCount(), status, null);
     }
 
-    private void validateCustomerEmail(String customerEmail) throws InvalidSeatHoldRequestException {
+    private int resolveCustomer(String customerEmail) throws InvalidSeatHoldRequestException {
         if (customerEmail == null || customerEmail.isEmpty()) {
             throw new InvalidSeatHoldRequestException("Customer email cannot be null or empty");
         }
 
-        if (!emailValidator.isValid(customerEmail, null)){
+        int customerId = customers.resolve(customerEmail);
+        if (customerId == CustomerDictionary.UNKNOWN_CUSTOMER) {
             throw new InvalidSeatHoldRequestException(String.format("%s is not a valid email address", customerEmail));
         }
+
+        return customerId;
     }
 
     private SeatHold buildSeatHold(ReservationHold hold) {
         return new SeatHold(hold.getReservationId(), hold.getResourceId(),
-                hold.getData(), hold.getSlots().size(), hold.isConfirmed(), hold.getTimeStamp());
+                customers.emailOf(hold.getOwnerId()), hold.getSlots().size(), hold.isConfirmed(),
+                hold.getTimeStamp());
     }
 
     /**
      * Commit seats held for a specific customer
      *
      * @param seatHoldId the seat hold identifier
+     * @param idempotencyKey optional client key, retries with the same key return the original confirmation code
      * @param customerEmail the email address of the customer to which the seat hold is assigned
      * @return a reservation confirmation code
+     * @throws ServiceOverloadedException when the request was shed by the concurrency limit
      */
     @PUT
     @Timed
@@ -248,9 +1381,207 @@ public class VenueTicketManager {
     @Produces({MediaType.TEXT_PLAIN, MediaType.APPLICATION_JSON})
     public String reserveSeats(
             @QueryParam("seatHoldId") @NotNull Integer seatHoldId,
-            @Email @NotBlank String customerEmail
-    ) throws InvalidSeatHoldRequestException, ReservationNotFoundException {
-        validateCustomerEmail(customerEmail);
+            @HeaderParam(IDEMPOTENCY_KEY_HEADER) String idempotencyKey,
+            @NotBlank String customerEmail
+    ) throws InvalidSeatHoldRequestException, ReservationNotFoundException, RequestInProgressException,
+            ServiceOverloadedException, InterruptedException {
+        if (trafficCapture == null) {
+            return reserve(seatHoldId, idempotencyKey, customerEmail);
+        }
+
+        CapturedCall<String> call = capture((capture, arrivalNanos, reservationCode, failure) ->
+                capture.recordReserve(arrivalNanos, seatHoldId, idempotencyKey, customerEmail, reservationCode,
+                        failure));
+        try {
+            return call.succeeded(reserve(seatHoldId, idempotencyKey, customerEmail));
+        } catch (Exception e) {
+            call.failed(e);
+            throw e;
+        }
+    }
+
+    private String reserve(Integer seatHoldId, String idempotencyKey, String customerEmail)
+            throws InvalidSeatHoldRequestException, ReservationNotFoundException, RequestInProgressException,
+            ServiceOverloadedException, InterruptedException {
+        // NOTE: reservations have money in hand, they are only shed once new holds already are
+        long admittedAt = admit(ConcurrencyLimiter.Priority.HIGH);
+        try {
+            if (idempotencyKey == null) {
+                return confirmSeats(seatHoldId, customerEmail);
+            }
+
+            IdempotencyCache.Claim<String> claim = claimIdempotencyKey(reserveRequests, idempotencyKey,
+                    customerEmail);
+            if (!claim.isOwner()) {
+                return claim.getResult();
+            }
+
+            try {
+                String reservationCode = confirmSeats(seatHoldId, customerEmail);
+                claim.complete(reservationCode);
+                return reservationCode;
+            } finally {
+                claim.release();
+            }
+        } finally {
+            release(admittedAt);
+        }
+    }
+
+    /**
+     * Commit a batch of seat holds (e.g. the settled payments of a payment processor callback). The holds are grouped
+     * by level so that each level collects its expired holds and publishes its change once for the whole batch.
+     * Confirming is idempotent, a retried batch gets the same confirmation codes back.
+     *
+     * @param requests the seat holds along with the emails of the customers they are assigned to
+     * @return the outcome for each request, in the order of the requests
+     * @throws InvalidSeatHoldRequestException if the batch is too large or has an empty entry
+     * @throws ServiceOverloadedException when the request was shed by the concurrency limit
+     */
+    @PUT
+    @Timed
+    @ExceptionMetered
+    @Path("/reserveSeats/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public List<ReservationResult> reserveSeatsBatch(
+            @NotNull List<ReservationRequest> requests
+    ) throws InvalidSeatHoldRequestException, ServiceOverloadedException {
+        if (requests.size() > MAX_RESERVATION_BATCH) {
+            throw new InvalidSeatHoldRequestException(String.format("Batch of %d reservations is larger than %d",
+                    requests.size(), MAX_RESERVATION_BATCH));
+        }
+        for (int i = 0; i < requests.size(); ++i) {
+            if (requests.get(i) == null) {
+                throw new InvalidSeatHoldRequestException(String.format("Reservation #%d of the batch is empty", i));
+            }
+        }
+
+        if (trafficCapture == null) {
+            return reserveBatch(requests);
+        }
+
+        CapturedCall<List<ReservationResult>> call = capture((capture, arrivalNanos, results, failure) ->
+                capture.recordBatch(arrivalNanos, requests, results, failure));
+        try {
+            return call.succeeded(reserveBatch(requests));
+        } catch (Exception e) {
+            call.failed(e);
+            throw e;
+        }
+    }
+
+    private List<ReservationResult> reserveBatch(List<ReservationRequest> requests)
+            throws ServiceOverloadedException {
+        long admittedAt = admit(ConcurrencyLimiter.Priority.HIGH);
+        try {
+            return confirmBatch(requests);
+        } finally {
+            release(admittedAt);
+        }
+    }
+
+    private List<ReservationResult> confirmBatch(List<ReservationRequest> requests) {
+        ReservationResult[] results = new ReservationResult[requests.size()];
+        int[] customerIds = new int[requests.size()];
+        List<List<Integer>> levelRequests = new ArrayList<>(seatLevelResourceManager.length);
+        for (int level = 0; level < seatLevelResourceManager.length; ++level) {
+            levelRequests.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < requests.size(); ++i) {
+            ReservationRequest request = requests.get(i);
+            Integer seatHoldId = request.getSeatHoldId();
+            if (seatHoldId == null) {
+                results[i] = new ReservationResult(null, ReservationResult.Status.INVALID, null,
+                        "Seat hold ID cannot be null");
+                continue;
+            }
+
+            // NOTE: split holds span levels, they are confirmed on their own
+            if (splitHoldParts.containsKey(seatHoldId)) {
+                results[i] = reserveInBatch(seatHoldId, request.getCustomerEmail());
+                continue;
+            }
+
+            Integer seatLevelId = holdId2SeatLevel.get(seatHoldId);
+            try {
+                customerIds[i] = resolveCustomer(request.getCustomerEmail());
+                if (seatLevelId == null) {
+                    throw new InvalidSeatHoldRequestException(
+                            String.format("Seat hold #%d does not exist in the venue", seatHoldId));
+                }
+            } catch (InvalidSeatHoldRequestException e) {
+                results[i] = new ReservationResult(seatHoldId, ReservationResult.Status.INVALID, null,
+                        e.getMessage());
+                continue;
+            }
+
+            levelRequests.get(seatLevelId).add(i);
+        }
+
+        for (int level = 0; level < seatLevelResourceManager.length; ++level) {
+            List<Integer> indexes = levelRequests.get(level);
+            if (indexes.isEmpty()) {
+                continue;
+            }
+
+            int[] holdIds = new int[indexes.size()];
+            int[] ownerIds = new int[indexes.size()];
+            for (int k = 0; k < indexes.size(); ++k) {
+                holdIds[k] = requests.get(indexes.get(k)).getSeatHoldId();
+                ownerIds[k] = customerIds[indexes.get(k)];
+            }
+
+            ReservationHold[] holds = seatLevelResourceManager[level].confirmHolds(holdIds, ownerIds);
+            for (int k = 0; k < indexes.size(); ++k) {
+                String customerEmail = requests.get(indexes.get(k)).getCustomerEmail();
+                if (holds[k] == null) {
+                    results[indexes.get(k)] = new ReservationResult(holdIds[k], ReservationResult.Status.NOT_FOUND,
+                            null, new ReservationNotFoundException(holdIds[k], customerEmail).getMessage());
+                } else if (holds[k].getOwnerId() != ownerIds[k]) {
+                    results[indexes.get(k)] = new ReservationResult(holdIds[k], ReservationResult.Status.INVALID,
+                            null, String.format("Seat hold #%d is not associated with customer email %s",
+                                    holdIds[k], customerEmail));
+                } else {
+                    results[indexes.get(k)] = new ReservationResult(holdIds[k], ReservationResult.Status.CONFIRMED,
+                            generateReservationCode(holds[k]), null);
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private ReservationResult reserveInBatch(int seatHoldId, String customerEmail) {
+        try {
+            return new ReservationResult(seatHoldId, ReservationResult.Status.CONFIRMED,
+                    confirmSeats(seatHoldId, customerEmail), null);
+        } catch (InvalidSeatHoldRequestException e) {
+            return new ReservationResult(seatHoldId, ReservationResult.Status.INVALID, null, e.getMessage());
+        } catch (ReservationNotFoundException e) {
+            return new ReservationResult(seatHoldId, ReservationResult.Status.NOT_FOUND, null, e.getMessage());
+        }
+    }
+
+    private static <T> IdempotencyCache.Claim<T> claimIdempotencyKey(IdempotencyCache<T> cache,
+                                                                     String idempotencyKey, String customerEmail)
+            throws RequestInProgressException, InterruptedException {
+        try {
+            // keys are scoped to the customer so that one customer can't replay another one's results
+            return cache.claim(customerEmail + '\n' + idempotencyKey);
+        } catch (TimeoutException e) {
+            throw new RequestInProgressException(idempotencyKey);
+        }
+    }
+
+    private String confirmSeats(Integer seatHoldId, String customerEmail)
+            throws InvalidSeatHoldRequestException, ReservationNotFoundException {
+        int customerId = resolveCustomer(customerEmail);
+
+        int[] partIds = splitHoldParts.get(seatHoldId);
+        if (partIds != null) {
+            return confirmSplitHold(seatHoldId, partIds, customerId, customerEmail);
+        }
 
         Integer seatLevelId = holdId2SeatLevel.get(seatHoldId);
         if (seatLevelId == null) {
@@ -264,22 +1595,151 @@ public class VenueTicketManager {
             throw new ReservationNotFoundException(seatHoldId, customerEmail);
         }
 
-        SeatHold seatHold = buildSeatHold(hold);
-        if (!Objects.equals(seatHold.getCustomerEmail(), customerEmail)) {
+        if (hold.getOwnerId() != customerId) {
             throw new InvalidSeatHoldRequestException(
                     String.format("Seat hold #%d is not associated with customer email %s",
                             seatHoldId, customerEmail));
         }
 
-        if (!resource.confirmHold(seatHold.getReservationId())) {
+        if (!resource.confirmHold(hold.getReservationId())) {
             throw new ReservationNotFoundException(seatHoldId, customerEmail);
         }
 
-        return generateReservationCode(seatHoldId, customerEmail);
+        return generateReservationCode(hold);
     }
 
-    private static String generateReservationCode(int seatHoldId, String customerEmail) {
-        return Integer.toString(seatHoldId, 16);
+    /**
+     * Confirms every part of a split hold. Every part and its owner is checked before any part is confirmed; if a
+     * part has expired the split hold fails as a whole, the parts this call confirmed and the unconfirmed parts are
+     * cancelled. Parts confirmed by an earlier call are never cancelled.
+     */
+    private String confirmSplitHold(int seatHoldId, int[] partIds, int customerId, String customerEmail)
+            throws InvalidSeatHoldRequestException, ReservationNotFoundException {
+        List<ReservationHold> parts = new ArrayList<>(partIds.length);
+        boolean expired = false;
+        for (int partId : partIds) {
+            ReservationHold part = getSplitHoldPart(partId);
+            if (part == null) {
+                expired = true;
+                continue;
+            }
+
+            if (part.getOwnerId() != customerId) {
+                throw new InvalidSeatHoldRequestException(
+                        String.format("Seat hold #%d is not associated with customer email %s",
+                                seatHoldId, customerEmail));
+            }
+
+            parts.add(part);
+        }
+
+        if (expired) {
+            failSplitHold(seatHoldId, partIds, parts, Collections.emptyList());
+            throw new ReservationNotFoundException(seatHoldId, customerEmail);
+        }
+
+        List<ReservationHold> confirmedHere = new ArrayList<>(parts.size());
+        for (ReservationHold part : parts) {
+            boolean wasConfirmed = part.isConfirmed();
+            if (!seatLevelResourceManager[part.getResourceId()].confirmHold(part.getReservationId())) {
+                failSplitHold(seatHoldId, partIds, parts, confirmedHere);
+                throw new ReservationNotFoundException(seatHoldId, customerEmail);
+            }
+            if (!wasConfirmed) {
+                confirmedHere.add(part);
+            }
+        }
+
+        removeSplitHold(seatHoldId, partIds);
+        int seatCount = parts.stream().mapToInt(part -> part.getSlots().size()).sum();
+        return codeSigner.sign(seatHoldId, ReservationCodeSigner.MULTIPLE_LEVELS, seatCount);
     }
-}
 
+    /**
+     * Releases the parts of a split hold that failed: the unconfirmed parts and the parts confirmed by the failing
+     * call
+     */
+    private void failSplitHold(int seatHoldId, int[] partIds, List<ReservationHold> parts,
+                               List<ReservationHold> confirmedHere) {
+        for (ReservationHold part : parts) {
+            if (!part.isConfirmed() || confirmedHere.contains(part)) {
+                seatLevelResourceManager[part.getResourceId()].cancelHold(part.getReservationId());
+            }
+        }
+        removeSplitHold(seatHoldId, partIds);
+    }
+
+    private String generateReservationCode(ReservationHold hold) {
+        return codeSigner.sign(hold.getReservationId(), hold.getResourceId(), hold.getSlots().size());
+    }
+
+    /**
+     * Records a captured call with its result or the exception it failed with
+     */
+    @FunctionalInterface
+    interface CallRecorder<T> {
+        void record(TrafficCapture capture, long arrivalNanos, T result, Exception failure);
+    }
+
+    /**
+     * A call to an endpoint that is being captured, it is recorded at most once
+     */
+    static final class CapturedCall<T> {
+        static final CapturedCall<Object> NOT_CAPTURED = new CapturedCall<>(null, 0, null);
+
+        final TrafficCapture capture;
+        final long arrivalNanos;
+        final CallRecorder<T> recorder;
+        boolean recorded;
+
+        CapturedCall(TrafficCapture capture, long arrivalNanos, CallRecorder<T> recorder) {
+            this.capture = capture;
+            this.arrivalNanos = arrivalNanos;
+            this.recorder = recorder;
+        }
+
+        T succeeded(T result) {
+            record(result, null);
+            return result;
+        }
+
+        void failed(Exception failure) {
+            record(null, failure);
+        }
+
+        private void record(T result, Exception failure) {
+            if (capture == null || recorded) {
+                return;
+            }
+
+            // NOTE: a call that failed to be recorded is not failed (nor recorded again) for it
+            recorded = true;
+            try {
+                recorder.record(capture, arrivalNanos, result, failure);
+            } catch (RuntimeException e) {
+                LOG.warn("failed to record a captured call", e);
+            }
+        }
+    }
+
+    /**
+     * A waiter along with the level range it was queued on
+     */
+    static final class QueuedTicket {
+        final HoldWaiter waiter;
+        final int lo;
+        final int hi;
+        final long retainUntilNanos;
+
+        QueuedTicket(HoldWaiter waiter, int lo, int hi, long retainUntilNanos) {
+            this.waiter = waiter;
+            this.lo = lo;
+            this.hi = hi;
+            this.retainUntilNanos = retainUntilNanos;
+        }
+
+        boolean isStale() {
+            return System.nanoTime() - retainUntilNanos >= 0;
+        }
+    }
+}
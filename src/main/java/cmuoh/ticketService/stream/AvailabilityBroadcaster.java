@@ -0,0 +1,291 @@
+package cmuoh.ticketService.stream;
+
+import cmuoh.ticketService.dataAccess.AvailabilitySnapshot;
+import cmuoh.ticketService.dataAccess.ReservationChangeListener;
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.entities.AvailabilityDelta;
+import cmuoh.ticketService.entities.AvailabilityStreamConfiguration;
+import cmuoh.ticketService.entities.LevelAvailability;
+import cmuoh.ticketService.resource.SeatLevelListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes seat level availability changes to server-sent event subscribers.
+ *
+ * Change notifications from the {@link ReservationManager}s only flag the level as dirty; the flags are drained once
+ * per coalescing window into a single delta frame which is serialized once and fanned out to every subscriber.
+ * Each subscriber has a bounded buffer, a subscriber that falls behind has its buffer dropped and is sent the latest
+ * state of every level instead. Levels added to the venue at runtime are streamed from the next frame on.
+ *
+ * @implNote The public API of this object is thread safe
+ */
+public final class AvailabilityBroadcaster implements ReservationChangeListener, SeatLevelListener {
+    private static final Logger LOG = LoggerFactory.getLogger(AvailabilityBroadcaster.class);
+
+    static final String DELTA_EVENT = "delta";
+    static final String STATE_EVENT = "state";
+
+    final List<ReservationManager> levels;
+    final AvailabilityStreamConfiguration configuration;
+    final ObjectMapper objectMapper;
+    final ExecutorService writers;
+    volatile AtomicIntegerArray dirtyLevels;
+    final AtomicBoolean dirty = new AtomicBoolean();
+    final AtomicLong sequence = new AtomicLong();
+    final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Initialize the broadcaster and start listening to changes on the levels
+     *
+     * @param levels the seat level resources, indexed by level; a live view when levels can be added later
+     * @param configuration
+     * @param objectMapper used to serialize the frames
+     * @param writers executor that writes the frames to the subscribers
+     */
+    public AvailabilityBroadcaster(List<ReservationManager> levels, AvailabilityStreamConfiguration configuration,
+                                   ObjectMapper objectMapper, ExecutorService writers) {
+        this.levels = levels;
+        this.configuration = configuration;
+        this.objectMapper = objectMapper;
+        this.writers = writers;
+        this.dirtyLevels = new AtomicIntegerArray(levels.size());
+
+        for (ReservationManager level : levels) {
+            level.addChangeListener(this);
+        }
+    }
+
+    /**
+     * Flush the coalesced changes on every window
+     *
+     * @param scheduler
+     */
+    public void start(ScheduledExecutorService scheduler) {
+        int window = configuration.getCoalesceWindow();
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOG.error("failed to flush availability changes", e);
+            }
+        }, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     *
+     * @return number of connected subscribers
+     */
+    public int countSubscribers() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onChange(ReservationManager resource, long version) {
+        // NOTE: seat level resources are identified by their level
+        int level = resource.getResourceId();
+        AtomicIntegerArray flags = dirtyLevels;
+        if (level < 0 || level >= flags.length() || levels.get(level) != resource) {
+            return;
+        }
+
+        // NOTE: avoid writing the shared flags when they are already set, bursts of changes stay read-only
+        if (flags.get(level) == 0) {
+            flags.set(level, 1);
+        }
+        if (!dirty.get()) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Grows the dirty flags and starts listening to the new level. Every level is flagged so that a change flagged
+     * on the replaced flags is not lost.
+     */
+    @Override
+    public synchronized void onLevelAdded(ReservationManager level) {
+        AtomicIntegerArray flags = new AtomicIntegerArray(Math.max(levels.size(), level.getResourceId() + 1));
+        for (int i = 0; i < flags.length(); ++i) {
+            flags.set(i, 1);
+        }
+
+        dirtyLevels = flags;
+        dirty.set(true);
+        level.addChangeListener(this);
+    }
+
+    /**
+     * Register a new subscriber, it is sent the state of every level first
+     *
+     * @return the event stream for the subscriber or NULL if there are too many subscribers
+     */
+    public EventOutput subscribe() {
+        if (subscribers.size() >= configuration.getMaxSubscribers()) {
+            return null;
+        }
+
+        Subscriber subscriber = new Subscriber(new EventOutput(), configuration.getSubscriberBufferSize());
+        subscribers.add(subscriber);
+        subscriber.resync();
+
+        LOG.debug("availability subscriber connected, {} subscribers", subscribers.size());
+        return subscriber.output;
+    }
+
+    /**
+     * Drains the dirty levels into a single delta frame and queues it for every subscriber
+     */
+    void flush() {
+        subscribers.removeIf(Subscriber::isClosed);
+
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+
+        AtomicIntegerArray flags = dirtyLevels;
+        List<LevelAvailability> changes = new ArrayList<>();
+        for (int level = 0; level < flags.length(); ++level) {
+            if (flags.getAndSet(level, 0) == 1) {
+                changes.add(buildLevelAvailability(level, levels.get(level).refreshSnapshot()));
+            }
+        }
+
+        if (changes.isEmpty() || subscribers.isEmpty()) {
+            return;
+        }
+
+        String frame = serialize(new AvailabilityDelta(sequence.incrementAndGet(), false, changes));
+        if (frame == null) {
+            return;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(frame);
+        }
+    }
+
+    private String buildFullState() {
+        List<LevelAvailability> state = new ArrayList<>(levels.size());
+        for (int level = 0; level < levels.size(); ++level) {
+            state.add(buildLevelAvailability(level, levels.get(level).getSnapshot()));
+        }
+
+        return serialize(new AvailabilityDelta(sequence.get(), true, state));
+    }
+
+    private static LevelAvailability buildLevelAvailability(int level, AvailabilitySnapshot snapshot) {
+        return new LevelAvailability(level, snapshot.getAvailableSlots(), snapshot.getVersion());
+    }
+
+    private String serialize(AvailabilityDelta delta) {
+        try {
+            return objectMapper.writeValueAsString(delta);
+        } catch (IOException e) {
+            LOG.error("failed to serialize availability frame #{}", delta.getSequence(), e);
+            return null;
+        }
+    }
+
+    /**
+     * A connected client along with the frames that have not been written to it yet
+     */
+    final class Subscriber {
+        final EventOutput output;
+        final ArrayBlockingQueue<String> pending;
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean needsFullState;
+
+        Subscriber(EventOutput output, int bufferSize) {
+            this.output = output;
+            this.pending = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        boolean isClosed() {
+            return output.isClosed();
+        }
+
+        void offer(String frame) {
+            if (!pending.offer(frame)) {
+                // the subscriber fell behind, skip to the latest state
+                needsFullState = true;
+                pending.clear();
+            }
+            scheduleDrain();
+        }
+
+        void resync() {
+            needsFullState = true;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                if (needsFullState) {
+                    needsFullState = false;
+                    pending.clear();
+                    write(STATE_EVENT, buildFullState());
+                }
+
+                String frame;
+                while ((frame = pending.poll()) != null) {
+                    write(DELTA_EVENT, frame);
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.debug("dropping availability subscriber: {}", e.toString());
+                close();
+                return;
+            } finally {
+                draining.set(false);
+            }
+
+            // frames might have been queued after the queue was drained but before the flag was cleared
+            if (needsFullState || !pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void write(String name, String frame) throws IOException {
+            if (frame == null) {
+                return;
+            }
+
+            output.write(new OutboundEvent.Builder()
+                    .name(name)
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(String.class, frame)
+                    .build());
+        }
+
+        private void close() {
+            subscribers.remove(this);
+            try {
+                output.close();
+            } catch (IOException e) {
+                LOG.debug("failed to close availability subscriber: {}", e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package cmuoh.ticketService.task;
+
+import cmuoh.ticketService.dataAccess.ReservationEvents;
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.servlets.tasks.Task;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Admin task that starts, dumps and stops a flight recording of the ticket service events.
+ *
+ * <pre>
+ *     POST /tasks/flight-recording?action=start[&amp;settings=profile]
+ *     POST /tasks/flight-recording?action=dump&amp;file=/tmp/ticket-service.jfr
+ *     POST /tasks/flight-recording?action=stop[&amp;file=/tmp/ticket-service.jfr]
+ * </pre>
+ *
+ * @implNote This object is thread safe
+ */
+public class FlightRecordingTask extends Task {
+    static final List<String> EVENT_NAMES = Arrays.asList(
+            "cmuoh.ticketService.HoldRequested",
+            "cmuoh.ticketService.HoldConfirmed",
+            "cmuoh.ticketService.HoldsExpired",
+            "cmuoh.ticketService.LockWait");
+
+    private Recording recording;
+
+    public FlightRecordingTask() {
+        super("flight-recording");
+    }
+
+    @Override
+    public synchronized void execute(ImmutableMultimap<String, String> parameters, PrintWriter output)
+            throws Exception {
+        String action = parameter(parameters, "action");
+        String file = parameter(parameters, "file");
+
+        if ("start".equals(action)) {
+            start(parameter(parameters, "settings"), output);
+        } else if ("dump".equals(action)) {
+            dump(file, output);
+        } else if ("stop".equals(action)) {
+            stop(file, output);
+        } else {
+            output.println("action must be one of start, dump or stop");
+        }
+    }
+
+    private void start(String settings, PrintWriter output) throws Exception {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            output.println("recording is already running");
+            return;
+        }
+
+        // NOTE: optionally record the JVM events of a predefined configuration (default, profile) as well
+        recording = settings != null ? new Recording(Configuration.getConfiguration(settings)) : new Recording();
+        recording.setName("ticket-service");
+        for (String name : EVENT_NAMES) {
+            recording.enable(name);
+        }
+        recording.start();
+
+        output.println("recording started");
+        if (!ReservationEvents.isEnabled()) {
+            output.println("ticket service events are disabled (venueSeating.flightRecorder.enabled)");
+        }
+    }
+
+    private void dump(String file, PrintWriter output) throws Exception {
+        if (recording == null) {
+            output.println("no recording");
+            return;
+        }
+        if (file == null) {
+            output.println("file is required");
+            return;
+        }
+
+        recording.dump(Paths.get(file));
+        output.println("recording dumped to " + file);
+    }
+
+    private void stop(String file, PrintWriter output) throws Exception {
+        if (recording == null) {
+            output.println("no recording");
+            return;
+        }
+
+        try {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+            }
+            if (file != null) {
+                recording.dump(Paths.get(file));
+                output.println("recording dumped to " + file);
+            }
+        } finally {
+            recording.close();
+            recording = null;
+        }
+
+        output.println("recording stopped");
+    }
+
+    private static String parameter(ImmutableMultimap<String, String> parameters, String name) {
+        return parameters.get(name).stream().findFirst().orElse(null);
+    }
+}
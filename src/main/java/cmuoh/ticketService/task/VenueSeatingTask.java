@@ -0,0 +1,89 @@
+package cmuoh.ticketService.task;
+
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.entities.SeatLevel;
+import cmuoh.ticketService.resource.VenueTicketManager;
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.servlets.tasks.Task;
+
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Admin task that changes the seating of the venue while it takes traffic: blocks of seats are taken off sale and put
+ * back on sale, and seat levels are added.
+ *
+ * <pre>
+ *     POST /tasks/venue-seating?action=list
+ *     POST /tasks/venue-seating?action=close&amp;level=0&amp;seats=0-4:10-19
+ *     POST /tasks/venue-seating?action=open&amp;level=0&amp;seats=0-4:10-19
+ *     POST /tasks/venue-seating?action=add&amp;name=Terrace&amp;rows=5&amp;seatsInRow=40&amp;price=25.00
+ * </pre>
+ *
+ * @implNote This object is thread safe
+ */
+public class VenueSeatingTask extends Task {
+    private final VenueTicketManager venueTicketManager;
+
+    public VenueSeatingTask(VenueTicketManager venueTicketManager) {
+        super("venue-seating");
+        this.venueTicketManager = venueTicketManager;
+    }
+
+    @Override
+    public synchronized void execute(ImmutableMultimap<String, String> parameters, PrintWriter output)
+            throws Exception {
+        String action = parameter(parameters, "action");
+
+        if ("list".equals(action)) {
+            list(output);
+        } else if ("close".equals(action) || "open".equals(action)) {
+            String level = parameter(parameters, "level");
+            String seats = parameter(parameters, "seats");
+            if (level == null || seats == null) {
+                output.println("level and seats are required");
+                return;
+            }
+
+            if ("close".equals(action)) {
+                int closed = venueTicketManager.closeSeats(Integer.parseInt(level), seats);
+                output.println(closed + " seats taken off sale, held seats follow when their hold is released");
+            } else {
+                int opened = venueTicketManager.openSeats(Integer.parseInt(level), seats);
+                output.println(opened + " seats put back on sale");
+            }
+        } else if ("add".equals(action)) {
+            String rows = parameter(parameters, "rows");
+            String seatsInRow = parameter(parameters, "seatsInRow");
+            String price = parameter(parameters, "price");
+            if (rows == null || seatsInRow == null || price == null) {
+                output.println("rows, seatsInRow and price are required");
+                return;
+            }
+
+            SeatLevel lvl = new SeatLevel();
+            lvl.setName(parameter(parameters, "name"));
+            lvl.setRows(Integer.parseInt(rows));
+            lvl.setSeatsInRow(Integer.parseInt(seatsInRow));
+            lvl.setPrice(new BigDecimal(price));
+            output.println("seat level " + venueTicketManager.addSeatLevel(lvl) + " added");
+        } else {
+            output.println("action must be one of list, close, open or add");
+        }
+    }
+
+    private void list(PrintWriter output) {
+        List<SeatLevel> levels = venueTicketManager.getSeatLevels();
+        List<ReservationManager> resources = venueTicketManager.getSeatLevelResources();
+        for (int i = 0; i < levels.size(); ++i) {
+            ReservationManager resource = resources.get(i);
+            output.printf("%d %s: %d seats, %d available, %d off sale%n", i, levels.get(i).getName(),
+                    resource.maxCapacity(), resource.countAvailableSlots(), resource.countClosedSlots());
+        }
+    }
+
+    private static String parameter(ImmutableMultimap<String, String> parameters, String name) {
+        return parameters.get(name).stream().findFirst().orElse(null);
+    }
+}
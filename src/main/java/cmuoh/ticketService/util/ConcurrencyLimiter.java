@@ -0,0 +1,169 @@
+package cmuoh.ticketService.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive limit on the number of concurrent requests.
+ *
+ * The limit follows the latency gradient: every window of samples the average latency is compared to the long term
+ * average, the limit shrinks when requests get slower (queueing) and grows by a small headroom otherwise. Requests
+ * above the limit are rejected right away instead of waiting in line; a share of the limit is reserved for high
+ * priority requests so that low priority ones are shed first.
+ *
+ * @implNote This object is thread safe; acquiring a permit is a single CAS and the limit is recomputed by one thread
+ * per window
+ */
+public final class ConcurrencyLimiter {
+    public enum Priority {
+        HIGH,
+        LOW
+    }
+
+    static final int SAMPLE_WINDOW = 64;
+    static final double LONG_TERM_SMOOTHING = 0.05;
+    static final double LIMIT_SMOOTHING = 0.2;
+    static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double reservedShare;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final LongAdder windowLatency = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private final LongAdder rejectedHigh = new LongAdder();
+    private final LongAdder rejectedLow = new LongAdder();
+
+    private volatile double limit;
+    private double longTermLatency;
+
+    /**
+     * Initialize the limiter
+     *
+     * @param initialLimit limit before any latency was measured
+     * @param minLimit
+     * @param maxLimit
+     * @param reservedShare share (0 to 1) of the limit that only high priority requests can use
+     * @param tolerance how much slower than the long term average latency requests can get before the limit shrinks
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double reservedShare, double tolerance) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("minLimit");
+        }
+
+        if (reservedShare < 0 || reservedShare >= 1) {
+            throw new IllegalArgumentException("reservedShare");
+        }
+
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("tolerance");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.reservedShare = reservedShare;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    /**
+     *
+     * @return the current limit on concurrent requests
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     *
+     * @return number of requests currently admitted
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     *
+     * @param priority
+     * @return number of requests of a given priority that were rejected
+     */
+    public long getRejected(Priority priority) {
+        return priority == Priority.HIGH ? rejectedHigh.sum() : rejectedLow.sum();
+    }
+
+    /**
+     * Admit a request if the limit for its priority has not been reached
+     *
+     * @param priority
+     * @return the admission time to pass to {@link #release(long)} or -1 if the request was rejected
+     */
+    public long tryAcquire(Priority priority) {
+        int admitted = priority == Priority.HIGH
+                ? (int) limit
+                : Math.max(1, (int) (limit * (1 - reservedShare)));
+
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= admitted) {
+                (priority == Priority.HIGH ? rejectedHigh : rejectedLow).increment();
+                return -1;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        if (current + 1 > maxInFlight.get()) {
+            maxInFlight.accumulateAndGet(current + 1, Math::max);
+        }
+
+        return System.nanoTime();
+    }
+
+    /**
+     * Release an admitted request and sample its latency
+     *
+     * @param admittedAt the value returned by {@link #tryAcquire(Priority)}
+     */
+    public void release(long admittedAt) {
+        inFlight.decrementAndGet();
+
+        windowLatency.add(System.nanoTime() - admittedAt);
+        windowSamples.increment();
+        if (windowSamples.sum() >= SAMPLE_WINDOW && updating.compareAndSet(false, true)) {
+            try {
+                updateLimit();
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    private void updateLimit() {
+        long samples = windowSamples.sumThenReset();
+        long latency = windowLatency.sumThenReset();
+        int peakInFlight = maxInFlight.getAndSet(inFlight.get());
+        if (samples == 0) {
+            return;
+        }
+
+        double shortTermLatency = Math.max(1, (double) latency / samples);
+        longTermLatency = longTermLatency == 0
+                ? shortTermLatency
+                : longTermLatency * (1 - LONG_TERM_SMOOTHING) + shortTermLatency * LONG_TERM_SMOOTHING;
+
+        double current = limit;
+
+        // NOTE: a limit that was never reached says nothing about the capacity, don't grow it
+        if (peakInFlight < current / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longTermLatency / shortTermLatency));
+        double target = current * gradient + Math.sqrt(current);
+        limit = Math.max(minLimit, Math.min(maxLimit, current * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING));
+    }
+}
@@ -0,0 +1,207 @@
+package cmuoh.ticketService.util;
+
+import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * Dictionary encoding for customer emails.
+ *
+ * An email is validated and normalized once and assigned a compact int ID; later lookups of the same string are a
+ * single hash map hit. Holds only carry the ID, the email is looked up again when it needs to be displayed.
+ *
+ * The dictionary is bounded by {@link #evictUnused(IntPredicate)}: customers that were not looked up since the
+ * previous call and that no hold refers to are dropped and their IDs are handed out again.
+ *
+ * @implNote This object is thread safe
+ */
+public final class CustomerDictionary {
+    public static final int UNKNOWN_CUSTOMER = -1;
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 16;
+
+    private final EmailValidator emailValidator = new EmailValidator();
+    private final ConcurrentHashMap<String, Customer> customerIds = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<AtomicReferenceArray<String>> emailChunks =
+            new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final AtomicInteger customerIdCounter = new AtomicInteger();
+    private final AtomicInteger customerCount = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Integer> freeIds = new ConcurrentLinkedQueue<>();
+
+    // NOTE: only written by evictUnused(), lookups stamp the customer they hit with it
+    private volatile int epoch;
+
+    /**
+     *
+     * @return number of distinct customers in the dictionary
+     */
+    public int size() {
+        return customerCount.get();
+    }
+
+    /**
+     * Find or assign the ID for a customer email
+     *
+     * @param email the raw email as sent by the client
+     * @return the customer ID or {@link #UNKNOWN_CUSTOMER} if the email is not valid
+     */
+    public int resolve(String email) {
+        if (email == null || email.isEmpty()) {
+            return UNKNOWN_CUSTOMER;
+        }
+
+        int now = epoch;
+        Customer customer = customerIds.get(email);
+        if (customer != null && customer.touch(now)) {
+            return customer.id;
+        }
+
+        // NOTE: invalid emails are not cached so that junk input can't grow the dictionary
+        if (!emailValidator.isValid(email, null)) {
+            return UNKNOWN_CUSTOMER;
+        }
+
+        String normalized = normalize(email);
+        customer = customerIds.compute(normalized, (key, existing) ->
+                existing != null && existing.touch(now) ? existing : new Customer(assignId(key), now));
+        if (!normalized.equals(email)) {
+            customerIds.put(email, customer);
+        }
+
+        return customer.id;
+    }
+
+    /**
+     * Drops the customers that were not looked up since the previous call and that are not referenced, their IDs
+     * are reused for new customers. Meant to be called periodically by a single thread, at an interval much longer
+     * than a request takes to place its hold once it has resolved the customer.
+     *
+     * @param isReferenced tells whether a hold (or anything else that outlives the request) refers to a customer ID
+     * @return number of customers that were dropped
+     */
+    public synchronized int evictUnused(IntPredicate isReferenced) {
+        int previous = epoch;
+        epoch = previous + 1;
+
+        int evicted = 0;
+        for (Map.Entry<String, Customer> entry : customerIds.entrySet()) {
+            Customer customer = entry.getValue();
+            if (customer.evict(previous, isReferenced)) {
+                releaseId(customer.id);
+                ++evicted;
+            }
+
+            // NOTE: the email and its aliases are dropped one by one, a lookup that races with it sees the customer
+            // as evicted and assigns a new ID
+            if (customer.isEvicted()) {
+                customerIds.remove(entry.getKey(), customer);
+            }
+        }
+
+        return evicted;
+    }
+
+    /**
+     * The normalized email of a customer
+     *
+     * @param customerId
+     * @return the email or NULL if the ID is unknown
+     */
+    public String emailOf(int customerId) {
+        if (customerId < 0 || (customerId >>> CHUNK_BITS) >= MAX_CHUNKS) {
+            return null;
+        }
+
+        AtomicReferenceArray<String> chunk = emailChunks.get(customerId >>> CHUNK_BITS);
+        return chunk != null ? chunk.get(customerId & (CHUNK_SIZE - 1)) : null;
+    }
+
+    private int assignId(String normalizedEmail) {
+        // NOTE: compute only locks the bin of its key, new emails in other bins assign IDs concurrently
+        Integer freeId = freeIds.poll();
+        int customerId = freeId != null ? freeId : customerIdCounter.getAndIncrement();
+        if (customerId < 0 || (customerId >>> CHUNK_BITS) >= MAX_CHUNKS) {
+            throw new IllegalStateException("customer dictionary is full");
+        }
+
+        int chunkIdx = customerId >>> CHUNK_BITS;
+        AtomicReferenceArray<String> chunk = emailChunks.get(chunkIdx);
+        if (chunk == null) {
+            emailChunks.compareAndSet(chunkIdx, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = emailChunks.get(chunkIdx);
+        }
+
+        // NOTE: the volatile write of the slot publishes the email to emailOf(), an ID that was handed out but not
+        // written yet reads as NULL
+        chunk.set(customerId & (CHUNK_SIZE - 1), normalizedEmail);
+        customerCount.incrementAndGet();
+        return customerId;
+    }
+
+    private void releaseId(int customerId) {
+        emailChunks.get(customerId >>> CHUNK_BITS).set(customerId & (CHUNK_SIZE - 1), null);
+        customerCount.decrementAndGet();
+        freeIds.offer(customerId);
+    }
+
+    /**
+     * Trims the email and lower cases its domain, the local part is case sensitive
+     */
+    static String normalize(String email) {
+        String trimmed = email.trim();
+        int at = trimmed.lastIndexOf('@');
+        if (at < 0) {
+            return trimmed;
+        }
+
+        return trimmed.substring(0, at + 1) + trimmed.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A customer ID shared by the normalized email and its aliases, stamped with the epoch it was last looked up in
+     */
+    private static final class Customer {
+        static final int EVICTED = -1;
+
+        final int id;
+        final AtomicInteger lastUsed;
+
+        Customer(int id, int epoch) {
+            this.id = id;
+            this.lastUsed = new AtomicInteger(epoch);
+        }
+
+        /**
+         * @return FALSE if the customer was evicted and must not be handed out anymore
+         */
+        boolean touch(int epoch) {
+            int used;
+            while ((used = lastUsed.get()) < epoch) {
+                if (used == EVICTED) {
+                    return false;
+                }
+                if (lastUsed.compareAndSet(used, epoch)) {
+                    return true;
+                }
+            }
+            return true;
+        }
+
+        boolean evict(int epoch, IntPredicate isReferenced) {
+            int used = lastUsed.get();
+            return used != EVICTED && used < epoch && !isReferenced.test(id) && lastUsed.compareAndSet(used, EVICTED);
+        }
+
+        boolean isEvicted() {
+            return lastUsed.get() == EVICTED;
+        }
+    }
+}
@@ -11,18 +11,30 @@ public class HoldTimeStampProvider {
     public static int DEFAULT_TTL_SECONDS = 30;
 
     private int holdTtl;
+    private final Clock clock;
 
     public HoldTimeStampProvider() throws Exception {
         this(DEFAULT_TTL_SECONDS);
     }
 
     public HoldTimeStampProvider(int holdTtl) throws Exception {
+        this(holdTtl, Clock.systemUTC());
+    }
+
+    /**
+     *
+     * @param holdTtl
+     * @param clock time source for the time stamps, e.g. a {@link VirtualClock} when replaying captured traffic
+     * @throws Exception
+     */
+    public HoldTimeStampProvider(int holdTtl, Clock clock) throws Exception {
 
         if (holdTtl <= 0) {
             throw new IllegalArgumentException("reservationTTL");
         }
 
         this.holdTtl = holdTtl;
+        this.clock = clock;
     }
 
     public int getHoldTtl() {
@@ -34,7 +46,7 @@ public class HoldTimeStampProvider {
     }
 
     public OffsetDateTime getTimeStamp() {
-        return OffsetDateTime.now(Clock.systemUTC());
+        return OffsetDateTime.now(clock);
     }
 
     public boolean isExpired(OffsetDateTime time) {
@@ -0,0 +1,169 @@
+package cmuoh.ticketService.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded cache of request results keyed by a client supplied idempotency key.
+ *
+ * The first request for a key claims it and publishes its result once done; duplicates that arrive while the
+ * original is still in flight wait for it instead of executing again. Entries are evicted in insertion order once they
+ * are older than the TTL or the cache is full, independently of whatever state the result refers to.
+ *
+ * @implNote This object is thread safe
+ */
+public final class IdempotencyCache<V> {
+    private final ConcurrentHashMap<String, Entry<V>> entries;
+    private final ConcurrentLinkedQueue<Entry<V>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedEntries = new AtomicInteger();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long awaitNanos;
+
+    /**
+     * Initialize the cache
+     *
+     * @param maxEntries maximum number of keys to remember
+     * @param ttl how long a key is remembered
+     * @param await how long a duplicate waits for the original request to finish
+     * @param unit unit for ttl and await
+     */
+    public IdempotencyCache(int maxEntries, long ttl, long await, TimeUnit unit) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries");
+        }
+
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.awaitNanos = unit.toNanos(await);
+        this.entries = new ConcurrentHashMap<>(Math.min(maxEntries, 1 << 16));
+    }
+
+    /**
+     *
+     * @return number of keys currently remembered
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Claim a key for execution or get the result of the request that claimed it first
+     *
+     * @param key the idempotency key
+     * @return a claim that either owns the key or carries the original result
+     * @throws InterruptedException
+     * @throws TimeoutException if the original request is still in flight after waiting for it
+     */
+    public Claim<V> claim(String key) throws InterruptedException, TimeoutException {
+        evictStaleEntries();
+
+        long deadline = System.nanoTime() + awaitNanos;
+        while (true) {
+            Entry<V> entry = new Entry<>(key);
+            Entry<V> existing = entries.putIfAbsent(key, entry);
+
+            if (existing == null) {
+                insertionOrder.offer(entry);
+                queuedEntries.incrementAndGet();
+                return new Claim<>(this, entry, true);
+            }
+
+            if (existing.isStale(ttlNanos)) {
+                entries.remove(key, existing);
+                continue;
+            }
+
+            try {
+                existing.result.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                return new Claim<>(this, existing, false);
+            } catch (ExecutionException | CancellationException e) {
+                // the original request did not produce a result, try to claim the key again
+                entries.remove(key, existing);
+            }
+        }
+    }
+
+    private void evictStaleEntries() {
+        Entry<V> head;
+        while ((head = insertionOrder.peek()) != null
+                && (queuedEntries.get() > maxEntries || head.isStale(ttlNanos))) {
+            if (insertionOrder.remove(head)) {
+                queuedEntries.decrementAndGet();
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    /**
+     * A claim on an idempotency key
+     */
+    public static final class Claim<V> {
+        private final IdempotencyCache<V> cache;
+        private final Entry<V> entry;
+        private final boolean owner;
+
+        Claim(IdempotencyCache<V> cache, Entry<V> entry, boolean owner) {
+            this.cache = cache;
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        /**
+         * Does the caller own the key and is therefore expected to execute the request
+         *
+         * @return
+         */
+        public boolean isOwner() {
+            return owner;
+        }
+
+        /**
+         *
+         * @return the result of the original request iff the caller does not own the key
+         */
+        public V getResult() {
+            return owner ? null : entry.result.getNow(null);
+        }
+
+        /**
+         * Publish the result for the key
+         *
+         * @param result
+         */
+        public void complete(V result) {
+            if (owner) {
+                entry.result.complete(result);
+            }
+        }
+
+        /**
+         * Gives up the key if no result was published so that a retry can execute again
+         */
+        public void release() {
+            if (owner && entry.result.cancel(false)) {
+                cache.entries.remove(entry.key, entry);
+            }
+        }
+    }
+
+    static final class Entry<V> {
+        final String key;
+        final long createdNanos = System.nanoTime();
+        final CompletableFuture<V> result = new CompletableFuture<>();
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        boolean isStale(long ttlNanos) {
+            return System.nanoTime() - createdNanos >= ttlNanos;
+        }
+    }
+}
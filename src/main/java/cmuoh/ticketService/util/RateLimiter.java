@@ -0,0 +1,300 @@
+package cmuoh.ticketService.util;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket rate limits for a large number of keys (customers, client addresses) with bounded memory.
+ *
+ * Buckets are kept in a striped open addressing table of primitive arrays and refilled lazily when they are used.
+ * Keys only get a bucket once a count-min sketch of their recent requests says they could have used up half a bucket,
+ * so the long tail of keys that make a handful of requests never takes a slot in the table; when a probe window is
+ * full the most idle bucket in it is evicted.
+ *
+ * @implNote This object is thread safe; checking a key does not allocate
+ */
+public final class RateLimiter {
+    public static final long CUSTOMER_KEYS = 1L << 56;
+    public static final long IPV4_KEYS = 2L << 56;
+    public static final long ADDRESS_KEYS = 3L << 56;
+
+    static final int PROBE_LENGTH = 8;
+    static final int SKETCH_DEPTH = 4;
+    static final long EMPTY = Long.MIN_VALUE;
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final int admissionThreshold;
+    private final Stripe[] stripes;
+    private final AtomicIntegerArray sketch;
+    private final int sketchMask;
+    private final long decayNanos;
+    private final AtomicLong nextDecay;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Initialize the rate limiter
+     *
+     * @param ratePerSecond number of requests each key is allowed per second
+     * @param burst number of requests a key can make at once after being idle
+     * @param maxTrackedKeys approximate number of buckets to keep
+     */
+    public RateLimiter(double ratePerSecond, int burst, int maxTrackedKeys) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond");
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst");
+        }
+
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.admissionThreshold = Math.max(1, burst / 2);
+
+        int stripeCount = powerOfTwo(Runtime.getRuntime().availableProcessors() * 4);
+        int entriesPerStripe = powerOfTwo(Math.max(PROBE_LENGTH, maxTrackedKeys / stripeCount));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; ++i) {
+            stripes[i] = new Stripe(entriesPerStripe);
+        }
+
+        int sketchWidth = powerOfTwo(Math.max(1024, maxTrackedKeys));
+        this.sketch = new AtomicIntegerArray(SKETCH_DEPTH * sketchWidth);
+        this.sketchMask = sketchWidth - 1;
+
+        // NOTE: the sketch is halved once per bucket refill time, its counts cover about the last two refills
+        this.decayNanos = Math.max(1, (long) (burst / tokensPerNano));
+        this.nextDecay = new AtomicLong(System.nanoTime() + decayNanos);
+    }
+
+    private static int powerOfTwo(int value) {
+        return Integer.highestOneBit(Math.max(1, value - 1)) << 1;
+    }
+
+    /**
+     *
+     * @return number of requests that were rejected
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Take a token from the bucket of a key
+     *
+     * @param key see {@link #customerKey(String)} and {@link #addressKey(String)}
+     * @return 0 if the request is allowed else the number of nanoseconds until the next token
+     */
+    public long tryAcquire(long key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(long key, long nowNanos) {
+        long hash = mix(key);
+        Stripe stripe = stripes[(int) (hash >>> 40) & (stripes.length - 1)];
+
+        synchronized (stripe) {
+            int entry = stripe.find(key, hash);
+            if (entry >= 0) {
+                return take(stripe, entry, nowNanos);
+            }
+        }
+
+        decayIfDue(nowNanos);
+        if (countRequest(hash) <= admissionThreshold) {
+            return 0;
+        }
+
+        synchronized (stripe) {
+            int entry = stripe.find(key, hash);
+            if (entry < 0) {
+                entry = stripe.insert(key, hash, nowNanos, burst - admissionThreshold, burst, tokensPerNano);
+            }
+            return take(stripe, entry, nowNanos);
+        }
+    }
+
+    private long take(Stripe stripe, int entry, long nowNanos) {
+        double tokens = stripe.refill(entry, nowNanos, burst, tokensPerNano);
+        if (tokens >= 1) {
+            stripe.tokens[entry] = tokens - 1;
+            return 0;
+        }
+
+        rejected.increment();
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    /**
+     * Counts a request in the sketch
+     *
+     * @return the estimated number of recent requests for the key
+     */
+    private int countRequest(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; ++row) {
+            int idx = row * (sketchMask + 1) + ((h1 + row * h2) & sketchMask);
+            estimate = Math.min(estimate, sketch.incrementAndGet(idx));
+        }
+        return estimate;
+    }
+
+    private void decayIfDue(long nowNanos) {
+        long due = nextDecay.get();
+        if (nowNanos - due < 0 || !nextDecay.compareAndSet(due, nowNanos + decayNanos)) {
+            return;
+        }
+
+        // NOTE: increments racing with the decay may be lost, the counts are estimates anyway
+        for (int i = 0; i < sketch.length(); ++i) {
+            int count = sketch.get(i);
+            if (count != 0) {
+                sketch.set(i, count >>> 1);
+            }
+        }
+    }
+
+    /**
+     * The key for a customer, a hash of the email normalized like {@link CustomerDictionary} does (trimmed, domain
+     * lower cased) so that nothing is interned for a request that is not admitted
+     *
+     * @param email the raw email as sent by the client
+     * @return
+     */
+    public static long customerKey(String email) {
+        int start = 0;
+        int end = email.length();
+        while (start < end && email.charAt(start) <= ' ') {
+            ++start;
+        }
+        while (end > start && email.charAt(end - 1) <= ' ') {
+            --end;
+        }
+
+        int at = end > 0 ? email.lastIndexOf('@', end - 1) : -1;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; ++i) {
+            char c = email.charAt(i);
+            hash = (hash ^ (at >= 0 && i > at ? Character.toLowerCase(c) : c)) * 0x100000001b3L;
+        }
+        return CUSTOMER_KEYS | (hash & (CUSTOMER_KEYS - 1));
+    }
+
+    /**
+     * The key for a client address, IPv4 addresses are parsed exactly and other addresses are hashed
+     *
+     * @param address the textual client address
+     * @return
+     */
+    public static long addressKey(String address) {
+        long ipv4 = 0;
+        int octet = -1;
+        int octets = 0;
+        for (int i = 0; i < address.length(); ++i) {
+            char c = address.charAt(i);
+            if (c >= '0' && c <= '9' && octet < 256) {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+            } else if (c == '.' && octet >= 0 && octet < 256) {
+                ipv4 = (ipv4 << 8) | octet;
+                octet = -1;
+                ++octets;
+            } else {
+                octets = -1;
+                break;
+            }
+        }
+
+        if (octets == 3 && octet >= 0 && octet < 256) {
+            return IPV4_KEYS | (ipv4 << 8) | octet;
+        }
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < address.length(); ++i) {
+            hash = (hash ^ address.charAt(i)) * 0x100000001b3L;
+        }
+        return ADDRESS_KEYS | (hash & (ADDRESS_KEYS - 1));
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * A slice of the bucket table, guarded by its own monitor
+     */
+    static final class Stripe {
+        final long[] keys;
+        final double[] tokens;
+        final long[] updatedAt;
+        final int mask;
+
+        Stripe(int entries) {
+            this.keys = new long[entries];
+            this.tokens = new double[entries];
+            this.updatedAt = new long[entries];
+            this.mask = entries - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int find(long key, long hash) {
+            for (int i = 0; i < PROBE_LENGTH; ++i) {
+                int entry = ((int) hash + i) & mask;
+                if (keys[entry] == key) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Takes an empty entry in the probe window of the key or else evicts the one with the most tokens
+         */
+        int insert(long key, long hash, long nowNanos, double initialTokens, double burst, double tokensPerNano) {
+            int victim = -1;
+            double victimTokens = -1;
+            for (int i = 0; i < PROBE_LENGTH; ++i) {
+                int entry = ((int) hash + i) & mask;
+                if (keys[entry] == EMPTY) {
+                    victim = entry;
+                    break;
+                }
+
+                double available = refill(entry, nowNanos, burst, tokensPerNano);
+                if (available > victimTokens) {
+                    victim = entry;
+                    victimTokens = available;
+                }
+            }
+
+            keys[victim] = key;
+            tokens[victim] = initialTokens;
+            updatedAt[victim] = nowNanos;
+            return victim;
+        }
+
+        double refill(int entry, long nowNanos, double burst, double tokensPerNano) {
+            // NOTE: a thread that read the clock earlier may get here last, time never goes back for a bucket
+            long elapsed = nowNanos - updatedAt[entry];
+            if (elapsed <= 0) {
+                return tokens[entry];
+            }
+
+            double available = Math.min(burst, tokens[entry] + elapsed * tokensPerNano);
+            tokens[entry] = available;
+            updatedAt[entry] = nowNanos;
+            return available;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package cmuoh.ticketService.util;
+
+import cmuoh.ticketService.entities.ConfirmationCode;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Generates and verifies reservation confirmation codes.
+ *
+ * A code embeds the reservation ID, level and seat count followed by a truncated HMAC-SHA256 tag over them, so it
+ * can be verified with the key alone without looking up the reservation. Codes are URL safe base64 without padding.
+ *
+ * @implNote This object is thread safe
+ */
+public final class ReservationCodeSigner {
+    public static final int KEY_LENGTH = 32;
+    public static final int MULTIPLE_LEVELS = 0xFFFF;
+
+    static final String ALGORITHM = "HmacSHA256";
+    static final byte FORMAT_VERSION = 1;
+    static final int PAYLOAD_LENGTH = 1 + 4 + 2 + 2;
+    static final int TAG_LENGTH = 10;
+    static final int CODE_LENGTH = PAYLOAD_LENGTH + TAG_LENGTH;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Initialize the signer
+     *
+     * @param key the signing key, at least {@link #KEY_LENGTH} bytes
+     */
+    public ReservationCodeSigner(byte[] key) {
+        if (key == null || key.length < KEY_LENGTH) {
+            throw new IllegalArgumentException("key");
+        }
+
+        this.key = new SecretKeySpec(key.clone(), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+
+        // fail on startup rather than on the first request if the algorithm is not available
+        newMac();
+    }
+
+    /**
+     *
+     * @return a new random signing key
+     */
+    public static byte[] generateKey() {
+        byte[] key = new byte[KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    /**
+     * Sign the confirmation code for a reservation
+     *
+     * @param reservationId
+     * @param level the level or {@link #MULTIPLE_LEVELS} for holds split across levels
+     * @param seatCount
+     * @return the confirmation code
+     */
+    public String sign(int reservationId, int level, int seatCount) {
+        if (level < 0 || level > 0xFFFF || seatCount < 0 || seatCount > 0xFFFF) {
+            throw new IllegalArgumentException("level or seatCount out of range");
+        }
+
+        byte[] code = new byte[CODE_LENGTH];
+        ByteBuffer.wrap(code)
+                .put(FORMAT_VERSION)
+                .putInt(reservationId)
+                .putShort((short) level)
+                .putShort((short) seatCount);
+
+        System.arraycopy(tag(code), 0, code, PAYLOAD_LENGTH, TAG_LENGTH);
+        return ENCODER.encodeToString(code);
+    }
+
+    /**
+     * Verify a confirmation code
+     *
+     * @param code
+     * @return the verification result, with the reservation details iff the code is valid
+     */
+    public ConfirmationCode verify(String code) {
+        byte[] decoded = decode(code);
+        if (decoded == null || decoded.length != CODE_LENGTH || decoded[0] != FORMAT_VERSION) {
+            return new ConfirmationCode(code, false, null, null, null);
+        }
+
+        byte[] expected = new byte[TAG_LENGTH];
+        System.arraycopy(tag(decoded), 0, expected, 0, TAG_LENGTH);
+
+        byte[] actual = new byte[TAG_LENGTH];
+        System.arraycopy(decoded, PAYLOAD_LENGTH, actual, 0, TAG_LENGTH);
+
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return new ConfirmationCode(code, false, null, null, null);
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(decoded, 1, PAYLOAD_LENGTH - 1);
+        int reservationId = payload.getInt();
+        int level = payload.getShort() & 0xFFFF;
+        int seatCount = payload.getShort() & 0xFFFF;
+
+        return new ConfirmationCode(code, true, reservationId, level != MULTIPLE_LEVELS ? level : null, seatCount);
+    }
+
+    private byte[] tag(byte[] code) {
+        Mac mac = macs.get();
+        mac.update(code, 0, PAYLOAD_LENGTH);
+        return mac.doFinal();
+    }
+
+    private static byte[] decode(String code) {
+        if (code == null) {
+            return null;
+        }
+
+        try {
+            return DECODER.decode(code.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("unable to initialize " + ALGORITHM, e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cmuoh.ticketService.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of the phases (e.g. warm-up) that have to finish before the service is ready for traffic.
+ *
+ * Phases are registered before the server starts and advanced by whoever runs them; the service is ready once every
+ * registered phase is complete.
+ *
+ * @implNote This object is thread safe
+ */
+public final class StartupProgress {
+    private final List<Phase> phases = new CopyOnWriteArrayList<>();
+
+    /**
+     * Register a phase that must complete before the service is ready
+     *
+     * @param name
+     * @param total amount of work in the phase, in whatever unit the phase advances by
+     * @return the phase
+     */
+    public Phase register(String name, long total) {
+        Phase phase = new Phase(name, total);
+        phases.add(phase);
+        return phase;
+    }
+
+    /**
+     *
+     * @return are all the registered phases complete
+     */
+    public boolean isComplete() {
+        for (Phase phase : phases) {
+            if (!phase.isComplete()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return the phases that are not complete yet, in the order they were registered
+     */
+    public String describePending() {
+        StringBuilder description = new StringBuilder();
+        for (Phase phase : phases) {
+            if (!phase.isComplete()) {
+                if (description.length() > 0) {
+                    description.append(", ");
+                }
+                description.append(phase);
+            }
+        }
+        return description.toString();
+    }
+
+    /**
+     * A unit of startup work
+     */
+    public static final class Phase {
+        private final String name;
+        private final long total;
+        private final AtomicLong done = new AtomicLong();
+        private volatile boolean complete;
+
+        Phase(String name, long total) {
+            this.name = name;
+            this.total = total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d/%d", name, done.get(), total);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getDone() {
+            return done.get();
+        }
+
+        public void advance(long amount) {
+            done.addAndGet(amount);
+        }
+
+        /**
+         * Mark the phase as complete, also when it stopped early
+         */
+        public void complete() {
+            complete = true;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package cmuoh.ticketService.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock that only moves when it is told to, e.g. by a replay of captured traffic so that holds expire at the same
+ * points of the workload as they did when it was captured.
+ *
+ * @implNote This object is thread safe
+ */
+public final class VirtualClock extends Clock {
+    private final ZoneId zone;
+    private volatile Instant instant;
+
+    public VirtualClock(Instant instant) {
+        this(instant, ZoneOffset.UTC);
+    }
+
+    private VirtualClock(Instant instant, ZoneId zone) {
+        this.instant = instant;
+        this.zone = zone;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * A view of this clock in another time zone, it moves along with this clock
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        VirtualClock parent = this;
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId otherZone) {
+                return parent.withZone(otherZone);
+            }
+
+            @Override
+            public Instant instant() {
+                return parent.instant();
+            }
+        };
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+
+    /**
+     * Moves the clock, it is never moved backwards
+     *
+     * @param instant
+     */
+    public synchronized void advanceTo(Instant instant) {
+        if (instant.isAfter(this.instant)) {
+            this.instant = instant;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package cmuoh.ticketService;
+
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.entities.SeatHold;
+import cmuoh.ticketService.entities.SeatLevel;
+import cmuoh.ticketService.entities.VenueSeatingConfiguration;
+import cmuoh.ticketService.resource.VenueTicketManager;
+import cmuoh.ticketService.util.HoldTimeStampProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation budgets of the hot paths.
+ *
+ * Each operation is first warmed up so that it runs JIT compiled, then the bytes the test thread allocated over a
+ * number of calls are divided by the number of calls and compared to the operation's budget in
+ * allocation-budgets.properties. A change that adds e.g. a stream or a String.format to a hot path goes over it.
+ */
+public class AllocationBudgetTest {
+    static final String BUDGETS = "/allocation-budgets.properties";
+    static final int WARM_UP_CALLS = 20000;
+    static final int MEASURED_CALLS = 20000;
+    static final String CUSTOMER_EMAIL = "budget@example.com";
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static Properties budgets;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue("allocation measurement is not supported", threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        budgets = new Properties();
+        try (InputStream in = AllocationBudgetTest.class.getResourceAsStream(BUDGETS)) {
+            assertNotNull(BUDGETS, in);
+            budgets.load(in);
+        }
+    }
+
+    @Test
+    public void requestHold() throws Exception {
+        ReservationManager warmUp = resource(2 * WARM_UP_CALLS);
+        ReservationManager measured = resource(2 * MEASURED_CALLS);
+
+        allocatedPerCall(WARM_UP_CALLS, i -> warmUp.requestHold(2, null));
+        assertWithinBudget("reservationManager.requestHold",
+                allocatedPerCall(MEASURED_CALLS, i -> measured.requestHold(2, null)));
+    }
+
+    @Test
+    public void confirmHold() throws Exception {
+        ReservationManager warmUp = resource(WARM_UP_CALLS);
+        ReservationManager measured = resource(MEASURED_CALLS);
+        int[] warmUpHolds = holds(warmUp, WARM_UP_CALLS);
+        int[] measuredHolds = holds(measured, MEASURED_CALLS);
+
+        allocatedPerCall(WARM_UP_CALLS, i -> warmUp.confirmHold(warmUpHolds[i]));
+        assertWithinBudget("reservationManager.confirmHold",
+                allocatedPerCall(MEASURED_CALLS, i -> measured.confirmHold(measuredHolds[i])));
+    }
+
+    @Test
+    public void countAvailableSlots() throws Exception {
+        ReservationManager resource = resource(1000);
+        holds(resource, 100);
+
+        allocatedPerCall(WARM_UP_CALLS, i -> resource.countAvailableSlots());
+        assertWithinBudget("reservationManager.countAvailableSlots",
+                allocatedPerCall(MEASURED_CALLS, i -> resource.countAvailableSlots()));
+    }
+
+    @Test
+    public void findAndHoldSeats() throws Exception {
+        VenueTicketManager warmUp = venue(2 * WARM_UP_CALLS);
+        VenueTicketManager measured = venue(2 * MEASURED_CALLS);
+
+        allocatedPerCall(WARM_UP_CALLS, i -> findAndHoldSeats(warmUp));
+        assertWithinBudget("venueTicketManager.findAndHoldSeats",
+                allocatedPerCall(MEASURED_CALLS, i -> findAndHoldSeats(measured)));
+    }
+
+    @Test
+    public void reserveSeats() throws Exception {
+        VenueTicketManager warmUp = venue(WARM_UP_CALLS);
+        VenueTicketManager measured = venue(MEASURED_CALLS);
+        int[] warmUpHolds = holds(warmUp, WARM_UP_CALLS);
+        int[] measuredHolds = holds(measured, MEASURED_CALLS);
+
+        allocatedPerCall(WARM_UP_CALLS, i -> warmUp.reserveSeats(warmUpHolds[i], null, CUSTOMER_EMAIL));
+        assertWithinBudget("venueTicketManager.reserveSeats",
+                allocatedPerCall(MEASURED_CALLS, i -> measured.reserveSeats(measuredHolds[i], null, CUSTOMER_EMAIL)));
+    }
+
+    @Test
+    public void numSeatsAvailable() throws Exception {
+        VenueTicketManager venue = venue(1000);
+        holds(venue, 100);
+
+        allocatedPerCall(WARM_UP_CALLS, i -> venue.numSeatsAvailable(null));
+        assertWithinBudget("venueTicketManager.numSeatsAvailable",
+                allocatedPerCall(MEASURED_CALLS, i -> venue.numSeatsAvailable(null)));
+    }
+
+    /**
+     * A call of the operation under measurement, its result is ignored
+     */
+    interface Call {
+        void call(int i) throws Exception;
+    }
+
+    /**
+     *
+     * @return average number of bytes the current thread allocated per call
+     */
+    private static long allocatedPerCall(int calls, Call call) throws Exception {
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < calls; ++i) {
+            call.call(i);
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / calls;
+    }
+
+    private static void assertWithinBudget(String operation, long allocatedPerCall) {
+        String budget = budgets.getProperty(operation);
+        assertNotNull("no allocation budget for " + operation, budget);
+        assertTrue(String.format("%s allocated %d bytes per call, its budget is %s", operation, allocatedPerCall,
+                budget), allocatedPerCall <= Long.parseLong(budget.trim()));
+    }
+
+    private static ReservationManager resource(int capacity) throws Exception {
+        return new ReservationManager(0, capacity, new HoldTimeStampProvider() {
+            @Override
+            public boolean isExpired(OffsetDateTime time) {
+                return false;
+            }
+        }, "budget");
+    }
+
+    private static int[] holds(ReservationManager resource, int count) {
+        int[] holdIds = new int[count];
+        for (int i = 0; i < count; ++i) {
+            holdIds[i] = resource.requestHold(1, null).getReservationId();
+        }
+        return holdIds;
+    }
+
+    private static VenueTicketManager venue(int seats) throws Exception {
+        SeatLevel level = new SeatLevel();
+        level.setName("budget");
+        level.setRows(seats / 100);
+        level.setSeatsInRow(100);
+
+        VenueSeatingConfiguration configuration = new VenueSeatingConfiguration();
+        configuration.setSeatLevels(Collections.singletonList(level));
+        return new VenueTicketManager(configuration);
+    }
+
+    private static SeatHold findAndHoldSeats(VenueTicketManager venue) throws Exception {
+        return venue.findAndHoldSeats(2, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL);
+    }
+
+    private static int[] holds(VenueTicketManager venue, int count) throws Exception {
+        int[] holdIds = new int[count];
+        for (int i = 0; i < count; ++i) {
+            holdIds[i] = venue.findAndHoldSeats(1, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL)
+                    .getReservationId();
+        }
+        return holdIds;
+    }
+}
@@ -0,0 +1,114 @@
+package cmuoh.ticketService.capture;
+
+import cmuoh.ticketService.entities.ReservationResult;
+import cmuoh.ticketService.entities.SeatHold;
+import cmuoh.ticketService.entities.SeatLevel;
+import cmuoh.ticketService.entities.VenueSeatingConfiguration;
+import cmuoh.ticketService.resource.VenueTicketManager;
+import cmuoh.ticketService.util.VirtualClock;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class TrafficCaptureTest {
+    @Test
+    public void callsRoundTripThroughTheLog() throws Exception {
+        CapturedCall hold = new CapturedCall(CaptureLog.HOLD, 1500);
+        hold.numSeats = 3;
+        hold.maxLevel = 2;
+        hold.allowSplit = true;
+        hold.attributes = Arrays.asList("aisle", "aisle");
+        hold.customerEmail = "a@example.com";
+        hold.seatHoldId = 1000000329;
+
+        CapturedCall batch = new CapturedCall(CaptureLog.RESERVE_BATCH, 700);
+        batch.outcome = CaptureLog.OK;
+        batch.batchHoldIds = new Integer[] { 1000000329, null };
+        batch.batchEmails = new String[] { "a@example.com", null };
+        batch.batchStatuses = new ReservationResult.Status[] {
+                ReservationResult.Status.CONFIRMED, ReservationResult.Status.INVALID };
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CaptureLog.Writer writer = new CaptureLog.Writer(new DataOutputStream(bytes), 1449489600000L);
+        writer.write(hold);
+        writer.write(batch);
+        writer.flush();
+
+        CaptureLog.Reader reader = new CaptureLog.Reader(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(1449489600000L, reader.getStartEpochMillis());
+
+        CapturedCall readHold = reader.read();
+        assertEquals(1500, readHold.arrivalNanos);
+        assertEquals(3, readHold.numSeats);
+        assertNull(readHold.minLevel);
+        assertEquals(Integer.valueOf(2), readHold.maxLevel);
+        assertEquals(Boolean.TRUE, readHold.allowSplit);
+        assertEquals(hold.attributes, readHold.attributes);
+        assertEquals("a@example.com", readHold.customerEmail);
+        assertEquals(Integer.valueOf(1000000329), readHold.seatHoldId);
+
+        CapturedCall readBatch = reader.read();
+        assertEquals(700, readBatch.arrivalNanos);
+        assertEquals(Arrays.asList(batch.batchHoldIds), Arrays.asList(readBatch.batchHoldIds));
+        assertEquals(Arrays.asList(batch.batchEmails), Arrays.asList(readBatch.batchEmails));
+        assertEquals(Arrays.asList(batch.batchStatuses), Arrays.asList(readBatch.batchStatuses));
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void replayReproducesTheCapturedOutcomes() throws Exception {
+        Path file = Files.createTempFile("ticket-service", ".capture");
+        try {
+            VenueTicketManager venue = new VenueTicketManager(venueConfiguration());
+            TrafficCapture capture = new TrafficCapture(file, 1024);
+            capture.start();
+            venue.setTrafficCapture(capture);
+
+            SeatHold first = venue.findAndHoldSeats(4, null, null, null, null, null, null, null, null,
+                    "a@example.com");
+            venue.findAndHoldSeats(4, null, null, null, null, null, null, null, null, "b@example.com");
+            venue.reserveSeats(first.getReservationId(), null, "a@example.com");
+            try {
+                venue.findAndHoldSeats(20, null, null, null, null, null, null, null, null, "c@example.com");
+                fail("the venue only has 10 seats");
+            } catch (Exception expected) {
+            }
+            capture.stop();
+
+            VirtualClock clock = new VirtualClock(Instant.EPOCH);
+            TrafficReplayer replayer = new TrafficReplayer(new VenueTicketManager(venueConfiguration(), clock), clock,
+                    false, 0, TimeUnit.MILLISECONDS);
+            TrafficReplayer.Result result = replayer.replay(file);
+
+            assertEquals(4, result.getCalls());
+            assertEquals(0, result.getMismatches());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static VenueSeatingConfiguration venueConfiguration() {
+        SeatLevel level = new SeatLevel();
+        level.setName("orchestra");
+        level.setRows(1);
+        level.setSeatsInRow(10);
+
+        VenueSeatingConfiguration configuration = new VenueSeatingConfiguration();
+        configuration.setSeatLevels(Collections.singletonList(level));
+        return configuration;
+    }
+}
@@ -0,0 +1,119 @@
+package cmuoh.ticketService.dataAccess;
+
+import cmuoh.ticketService.util.HoldTimeStampProvider;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for ReservationEvents.
+ */
+public class ReservationEventsTest {
+    static final String HOLD_CONFIRMED = "cmuoh.ticketService.HoldConfirmed";
+    static final int OWNER_ID = 7;
+
+    ReservationManager resource;
+
+    @Before
+    public void setup() throws Exception {
+        resource = new ReservationManager(3, 10, new HoldTimeStampProvider() {
+            @Override
+            public boolean isExpired(OffsetDateTime time) {
+                return false;
+            }
+        }, "level-3");
+    }
+
+    @After
+    public void teardown() {
+        ReservationEvents.setEnabled(false);
+    }
+
+    @Test
+    public void disabledEventsAreNotCreated() throws Exception {
+        ReservationEvents.setEnabled(false);
+        assertNull(ReservationEvents.beginHold());
+        assertNull(ReservationEvents.beginConfirm());
+        assertNull(ReservationEvents.beginSweep());
+        assertNull(ReservationEvents.beginLockWait());
+
+        // committing the NULL events is a no-op
+        ReservationEvents.commitHold(null, resource, 1, null, null);
+        ReservationEvents.commitConfirm(null, resource, 1, true);
+        ReservationEvents.commitSweep(null, resource, 1, 1, 0);
+        ReservationEvents.commitLockWait(null, resource, "hold");
+
+        List<RecordedEvent> events = record(() -> resource.confirmHold(hold().getReservationId()));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void singleAndBatchConfirmsAreRecorded() throws Exception {
+        ReservationEvents.setEnabled(true);
+        ReservationHold single = hold();
+        ReservationHold batched = hold();
+        ReservationHold otherOwner = hold();
+
+        List<RecordedEvent> events = record(() -> {
+            assertTrue(resource.confirmHold(single.getReservationId()));
+            ReservationHold[] holds = resource.confirmHolds(
+                    new int[] { batched.getReservationId(), otherOwner.getReservationId() },
+                    new int[] { OWNER_ID, OWNER_ID + 1 });
+            assertNotNull(holds[0]);
+            assertFalse(holds[1].isConfirmed());
+        });
+
+        assertEquals(3, events.size());
+        assertConfirmEvent(events.get(0), single.getReservationId(), true);
+        assertConfirmEvent(events.get(1), batched.getReservationId(), true);
+        assertConfirmEvent(events.get(2), otherOwner.getReservationId(), false);
+    }
+
+    private ReservationHold hold() {
+        ReservationHold hold = resource.requestHold(1, OWNER_ID, null);
+        assertNotNull(hold);
+        return hold;
+    }
+
+    private static void assertConfirmEvent(RecordedEvent event, int holdId, boolean confirmed) {
+        assertEquals(3, event.getInt("level"));
+        assertEquals(holdId, event.getInt("holdId"));
+        assertEquals(confirmed, event.getBoolean("confirmed"));
+    }
+
+    /**
+     * Records the confirm events created while the action runs
+     */
+    private static List<RecordedEvent> record(Runnable action) throws Exception {
+        Path file = Files.createTempFile("reservation-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(HOLD_CONFIRMED);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> HOLD_CONFIRMED.equals(e.getEventType().getName()))
+                    .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cmuoh.ticketService.dataAccess;
+
+import cmuoh.ticketService.util.HoldTimeStampProvider;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput of hold/confirm/cancel cycles on a single resource, with and without request combining.
+ *
+ * Usage: ReservationManagerBenchmark [seconds per run] [capacity]
+ */
+public class ReservationManagerBenchmark {
+    static final int[] THREAD_COUNTS = new int[] { 8, 32, 128 };
+    static final int SLOTS_PER_HOLD = 2;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 16;
+
+        System.out.printf("%-10s %8s %15s%n", "mode", "threads", "cycles/sec");
+        for (int threads : THREAD_COUNTS) {
+            for (boolean combining : new boolean[] { false, true }) {
+                // warm up before every measured run
+                run(threads, combining, capacity, 1);
+
+                double throughput = run(threads, combining, capacity, seconds);
+                System.out.printf("%-10s %8d %15.0f%n", combining ? "combining" : "direct", threads, throughput);
+            }
+        }
+    }
+
+    static double run(int threads, boolean combining, int capacity, int seconds) throws Exception {
+        ReservationManager resource = new ReservationManager(0, capacity, new HoldTimeStampProvider() {
+            @Override
+            public boolean isExpired(OffsetDateTime time) {
+                return false;
+            }
+        }, "benchmark");
+        resource.setCombining(combining);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder cycles = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; ++i) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    while (running.get()) {
+                        ReservationHold hold = resource.requestHold(SLOTS_PER_HOLD, null);
+                        if (hold == null) {
+                            throw new IllegalStateException("resource ran out of slots");
+                        }
+
+                        resource.confirmHold(hold.getReservationId());
+                        resource.cancelHold(hold.getReservationId());
+                        cycles.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            }, "benchmark-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        finished.await();
+
+        double elapsed = (System.nanoTime() - startedAt) / (double) TimeUnit.SECONDS.toNanos(1);
+        return cycles.sum() / elapsed;
+    }
+}
@@ -7,7 +7,16 @@ import org.junit.Test;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -246,6 +255,606 @@ public class ReservationManagerTest {
         }
     }
 
+    @Test
+    public void reclaimedSlotsAreHandedToWaiters() throws Exception {
+        final int capacity = 3;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        ReservationHold hold = addHold(resource, capacity);
+        assertNotNull(hold);
+        assertNull(addHold(resource, 2));
+
+        HoldWaiter waiter = new HoldWaiter(1, 2, "waiter", 1, TimeUnit.MINUTES, null);
+        resource.addWaiter(waiter);
+        assertTrue(waiter.isWaiting());
+        assertEquals(1, resource.countWaiters());
+
+        resource.holdTimeStampProvider = expiredHoldTimeStampProvider;
+        resource.collectExpiredHolds();
+        resource.holdTimeStampProvider = nonExpiringHoldTimeStampProvider;
+
+        // the waiter got its slots straight from the expired hold, the remainder is available
+        ReservationHold handedOff = waiter.getHold();
+        assertNotNull(handedOff);
+        assertEquals(2, handedOff.getSlots().size());
+        assertEquals("waiter", handedOff.getData());
+        assertNotNull(resource.getReservation(handedOff.getReservationId()));
+        assertEquals(0, resource.countWaiters());
+        assertEquals(capacity - 2, resource.availableSlots.size());
+
+        for (Integer slot : handedOff.getSlots()) {
+            assertTrue(hold.getSlots().contains(slot));
+            assertFalse(resource.availableSlots.contains(slot));
+        }
+    }
+
+    @Test
+    public void waitersAreFulfilledFromAvailableSlots() throws Exception {
+        ReservationManager resource = createResource(2, nonExpiringHoldTimeStampProvider);
+
+        HoldWaiter waiter = new HoldWaiter(1, 2, null, 1, TimeUnit.MINUTES, null);
+        resource.addWaiter(waiter);
+
+        assertTrue(waiter.await(0, TimeUnit.SECONDS));
+        assertNotNull(waiter.getHold());
+        assertEquals(0, resource.countWaiters());
+        assertEquals(0, resource.availableSlots.size());
+    }
+
+    @Test
+    public void newRequestsDoNotBargeAheadOfAServableWaiter() throws Exception {
+        ReservationManager resource = createResource(4, nonExpiringHoldTimeStampProvider);
+
+        // a waiter that got in line while the slots it needs were being released
+        HoldWaiter waiter = new HoldWaiter(1, 3, null, 1, TimeUnit.MINUTES, null);
+        resource.waiters.offer(waiter);
+
+        assertNull(resource.requestHold(2, null));
+        assertNotNull(waiter.getHold());
+        assertNotNull(resource.requestHold(1, null));
+    }
+
+    @Test
+    public void oversizedWaiterDoesNotBlockSmallHolds() throws Exception {
+        ReservationManager resource = createResource(4, nonExpiringHoldTimeStampProvider);
+        ReservationHold hold = addHold(resource, 2);
+        assertNotNull(hold);
+
+        HoldWaiter waiter = new HoldWaiter(1, 3, null, 1, TimeUnit.MINUTES, null);
+        assertTrue(resource.addWaiter(waiter));
+        assertTrue(waiter.isWaiting());
+
+        // the head of the line needs more slots than are free, smaller requests are still served
+        assertNotNull(addHold(resource, 1));
+        assertTrue(waiter.isWaiting());
+
+        // waiters for more slots than can ever be freed are not queued
+        assertFalse(resource.addWaiter(new HoldWaiter(2, 5, null, 1, TimeUnit.MINUTES, null)));
+        assertTrue(resource.confirmHold(hold.getReservationId()));
+        assertFalse(resource.addWaiter(new HoldWaiter(3, 3, null, 1, TimeUnit.MINUTES, null)));
+        assertEquals(1, resource.countWaiters());
+    }
+
+    @Test
+    public void waitersFulfilledElsewhereAreNotCounted() throws Exception {
+        ReservationManager full = createResource(2, nonExpiringHoldTimeStampProvider);
+        ReservationManager empty = createResource(2, nonExpiringHoldTimeStampProvider);
+        assertNotNull(addHold(full, 2));
+
+        HoldWaiter waiter = new HoldWaiter(1, 2, null, 1, TimeUnit.MINUTES, null);
+        full.addWaiter(waiter);
+        empty.addWaiter(waiter);
+
+        // the waiter was fulfilled right away by the second resource, the first one still has it queued
+        assertNotNull(empty.getReservation(waiter.getHold().getReservationId()));
+        assertEquals(1, full.waiters.size());
+        assertEquals(0, full.countWaiters());
+        assertEquals(0, empty.countWaiters());
+    }
+
+    @Test
+    public void snapshotsTrackChanges() throws Exception {
+        final int capacity = 5;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        AvailabilitySnapshot initial = resource.getSnapshot();
+        assertEquals(capacity, initial.getAvailableSlots());
+
+        ReservationHold hold = addHold(resource, 2);
+        assertNotNull(hold);
+
+        // snapshots are only published on demand by default
+        assertSame(initial, resource.getSnapshot());
+        assertTrue(resource.getVersion() > initial.getVersion());
+
+        AvailabilitySnapshot refreshed = resource.refreshSnapshot();
+        assertEquals(resource.getVersion(), refreshed.getVersion());
+        assertEquals(capacity - 2, refreshed.getAvailableSlots());
+        assertEquals(1, refreshed.getHolds());
+
+        resource.setPublishOnChange(true);
+        assertTrue(resource.confirmHold(hold.getReservationId()));
+        assertEquals(resource.getVersion(), resource.getSnapshot().getVersion());
+        assertEquals(1, resource.getSnapshot().getConfirmedHolds());
+    }
+
+    @Test
+    public void failedHoldsDoNotChangeTheVersion() throws Exception {
+        final int capacity = 3;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        ReservationHold hold = addHold(resource, 2);
+        assertNotNull(hold);
+
+        // the failed request drains the last slot and hands it back, availability did not change
+        long version = resource.getVersion();
+        assertNull(addHold(resource, 2));
+        assertEquals(version, resource.getVersion());
+        assertEquals(1, resource.countAvailableSlots());
+
+        // a failed request that collected an expired hold did change it
+        resource.holdTimeStampProvider = expiredHoldTimeStampProvider;
+        assertNull(resource.requestHold(capacity + 1, null));
+        assertTrue(resource.getVersion() > version);
+        assertEquals(capacity, resource.countAvailableSlots());
+    }
+
+    @Test
+    public void cancelledHoldSlotsAreAvailable() throws Exception {
+        final int capacity = 5;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        ReservationHold hold = addHold(resource, 2);
+        ReservationHold confirmedHold = addHold(resource, 3);
+        assertNotNull(hold);
+        assertNotNull(confirmedHold);
+        assertTrue(resource.confirmHold(confirmedHold.getReservationId()));
+
+        assertTrue(resource.cancelHold(hold.getReservationId()));
+        assertTrue(resource.cancelHold(confirmedHold.getReservationId()));
+        assertFalse(resource.cancelHold(hold.getReservationId()));
+
+        assertEquals(0, resource.countConfirmedHolds());
+        assertEquals(capacity, resource.countAvailableSlots());
+        verifyExpiredHolds(resource, new ArrayList<>(Arrays.asList(hold, confirmedHold)), true);
+    }
+
+    @Test
+    public void combinedRequestsDoNotOversell() throws Exception {
+        final int capacity = 100;
+        final int threads = 8;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        resource.setCombining(true);
+
+        ConcurrentLinkedQueue<ReservationHold> holds = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; ++i) {
+            executor.execute(() -> {
+                ReservationHold hold;
+                while ((hold = resource.requestHold(3, null)) != null) {
+                    assertTrue(resource.confirmHold(hold.getReservationId()));
+                    holds.add(hold);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Set<Integer> slots = new HashSet<>();
+        for (ReservationHold hold : holds) {
+            slots.addAll(hold.getSlots());
+        }
+
+        assertEquals(capacity / 3, holds.size());
+        assertEquals(holds.size() * 3, slots.size());
+        assertEquals(holds.size(), resource.countConfirmedHolds());
+        assertEquals(capacity % 3, resource.countAvailableSlots());
+    }
+
+    @Test
+    public void partitionsKeepTheirSlots() throws Exception {
+        final int capacity = 10;
+
+        ReservationManager resource = new ReservationManager(++resourceCounter, capacity, Arrays.asList(
+                new SlotPartition("boxOffice", 6, 2, false),
+                new SlotPartition("partners", 8, 2, true)),
+                nonExpiringHoldTimeStampProvider, "partitioned");
+
+        // the shared slots run out without touching the partitions
+        ReservationHold shared = resource.requestHold(6, null);
+        assertNotNull(shared);
+        assertNull(resource.requestHold(1, null));
+        assertEquals(4, resource.countAvailableSlots());
+
+        // partitions without overflow are limited to their quota
+        assertNull(resource.requestHold(3, "boxOffice", ReservationHold.NO_OWNER, null));
+        ReservationHold boxOffice = resource.requestHold(2, "boxOffice", ReservationHold.NO_OWNER, null);
+        assertNotNull(boxOffice);
+        assertEquals(new HashSet<>(Arrays.asList(6, 7)), new HashSet<>(boxOffice.getSlots()));
+
+        // reclaimed shared slots can be borrowed by partitions with overflow but never by the others
+        resource.holdTimeStampProvider = expiredHoldTimeStampProvider;
+        resource.collectExpiredHolds();
+        resource.holdTimeStampProvider = nonExpiringHoldTimeStampProvider;
+
+        assertEquals(2, resource.countAvailableSlots("boxOffice"));
+        assertEquals(8, resource.countAvailableSlots("partners"));
+        assertNull(resource.requestHold(3, "boxOffice", ReservationHold.NO_OWNER, null));
+        assertNotNull(resource.requestHold(5, "partners", ReservationHold.NO_OWNER, null));
+        assertEquals(2, resource.countAvailableSlots("boxOffice"));
+    }
+
+    @Test
+    public void sectionsServeHoldsFromASingleSection() throws Exception {
+        ReservationManager resource = new ReservationManager(++resourceCounter, 4, 10, Arrays.asList(
+                SlotPartition.section("front", 0, 20),
+                SlotPartition.section("back", 20, 20)),
+                nonExpiringHoldTimeStampProvider, "sections");
+        AvailabilityIndex index = resource.getAvailabilityIndex();
+
+        // a hold that fits in a section is not spread over both of them
+        ReservationHold hold = resource.requestHold(15, null);
+        assertNotNull(hold);
+        int section = hold.getSlots().iterator().next() < 20 ? 0 : 1;
+        for (Integer slot : hold.getSlots()) {
+            assertEquals(section, slot / 20);
+        }
+        assertEquals(5, index.countSectionFree(section));
+        assertEquals(20, index.countSectionFree(1 - section));
+        assertEquals(1 - section, index.findSection(6));
+
+        // named requests stay in their section, unnamed ones span sections once no single one fits
+        assertNull(resource.requestHold(6, section == 0 ? "front" : "back", ReservationHold.NO_OWNER, null));
+        ReservationHold spanning = resource.requestHold(25, null);
+        assertNotNull(spanning);
+        assertEquals(0, resource.countAvailableSlots());
+        assertEquals(-1, index.findSection(1));
+
+        assertTrue(resource.cancelHold(hold.getReservationId()));
+        assertEquals(15, index.countSectionFree(section));
+        assertEquals(15, resource.countAvailableSlots());
+    }
+
+    @Test
+    public void contiguousBlocksFollowHoldsAndCancels() throws Exception {
+        ReservationManager resource = new ReservationManager(++resourceCounter, 2, 10, Collections.emptyList(),
+                nonExpiringHoldTimeStampProvider, "rows");
+
+        assertEquals(6, resource.countContiguousBlocks(3));
+        assertEquals(10, resource.largestContiguousBlock());
+
+        ReservationHold front = resource.requestHold(4, null);
+        assertNotNull(front);
+        assertEquals(5, resource.countContiguousBlocks(3));
+        assertEquals(10, resource.largestContiguousBlock());
+
+        assertNotNull(resource.requestHold(10, null));
+        assertEquals(1, resource.countContiguousBlocks(6));
+        assertEquals(0, resource.countContiguousBlocks(7));
+        assertEquals(6, resource.largestContiguousBlock());
+
+        // blocks never span rows
+        assertTrue(resource.cancelHold(front.getReservationId()));
+        assertEquals(2, resource.countContiguousBlocks(4));
+        assertEquals(0, resource.countContiguousBlocks(10));
+    }
+
+    @Test
+    public void contiguousBlocksSettleAfterConcurrentHoldsAndCancels() throws Exception {
+        final int threads = 8;
+        ReservationManager resource = new ReservationManager(++resourceCounter, 4, 16, Collections.emptyList(),
+                nonExpiringHoldTimeStampProvider, "rows");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; ++i) {
+            final int slotCount = 1 + i % 3;
+            executor.execute(() -> {
+                for (int k = 0; k < 2000; ++k) {
+                    ReservationHold hold = resource.requestHold(slotCount, null);
+                    if (hold != null) {
+                        assertTrue(resource.cancelHold(hold.getReservationId()));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // every row is free again, the histogram of free runs must not have drifted
+        assertEquals(4, resource.countContiguousBlocks(16));
+        assertEquals(16, resource.largestContiguousBlock());
+        assertEquals(4 * 16, resource.countContiguousBlocks(1));
+    }
+
+    @Test
+    public void batchConfirmOnlyConfirmsOwnedHolds() throws Exception {
+        assertBatchConfirmOnlyConfirmsOwnedHolds(false);
+    }
+
+    @Test
+    public void combinedBatchConfirmOnlyConfirmsOwnedHolds() throws Exception {
+        assertBatchConfirmOnlyConfirmsOwnedHolds(true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchConfirmRequiresAnOwnerForEachHold() throws Exception {
+        createResource(10, nonExpiringHoldTimeStampProvider).confirmHolds(new int[] { 1 }, null);
+    }
+
+    @Test
+    public void combinedBatchConfirmsDoNotOversell() throws Exception {
+        final int capacity = 100;
+        final int threads = 8;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        resource.setCombining(true);
+
+        ConcurrentLinkedQueue<ReservationHold> holds = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; ++i) {
+            final int ownerId = i;
+            executor.execute(() -> {
+                ReservationHold first;
+                ReservationHold second;
+                while ((first = resource.requestHold(2, ownerId, null)) != null
+                        && (second = resource.requestHold(2, ownerId, null)) != null) {
+                    ReservationHold[] confirmed = resource.confirmHolds(
+                            new int[] { first.getReservationId(), second.getReservationId() },
+                            new int[] { ownerId, ownerId });
+                    assertTrue(confirmed[0].isConfirmed());
+                    assertTrue(confirmed[1].isConfirmed());
+                    holds.add(first);
+                    holds.add(second);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(holds.size(), resource.countConfirmedHolds());
+        assertEquals(0, resource.countPendingRequests());
+    }
+
+    private void assertBatchConfirmOnlyConfirmsOwnedHolds(boolean combining) throws Exception {
+        ReservationManager resource = new ReservationManager(++resourceCounter, 10, nonExpiringHoldTimeStampProvider,
+                "batch");
+        resource.setCombining(combining);
+
+        ReservationHold owned = resource.requestHold(2, 1, null);
+        ReservationHold other = resource.requestHold(2, 2, null);
+        long version = resource.getVersion();
+
+        ReservationHold[] holds = resource.confirmHolds(
+                new int[] { owned.getReservationId(), other.getReservationId(), -1 }, new int[] { 1, 1, 1 });
+
+        assertSame(owned, holds[0]);
+        assertTrue(owned.isConfirmed());
+        assertSame(other, holds[1]);
+        assertFalse(other.isConfirmed());
+        assertNull(holds[2]);
+        assertEquals(1, resource.countConfirmedHolds());
+        assertEquals(version + 1, resource.getVersion());
+    }
+
+    @Test
+    public void attributeFilteredHoldsOnlyClaimTaggedSlots() throws Exception {
+        final int capacity = 200;
+
+        BitSet aisle = new BitSet();
+        BitSet accessible = new BitSet();
+        for (int row = 0; row < 10; ++row) {
+            aisle.set(row * 20);
+            aisle.set(row * 20 + 19);
+        }
+        accessible.set(100, 110);
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        Map<String, BitSet> attributes = new HashMap<>();
+        attributes.put("aisle", aisle);
+        attributes.put("accessible", accessible);
+        resource.setSlotAttributes(attributes);
+
+        assertEquals(20, resource.countAvailableSlots(null, Collections.singleton("aisle")));
+        assertEquals(1, resource.countAvailableSlots(null, Arrays.asList("aisle", "accessible")));
+        assertEquals(0, resource.countAvailableSlots(null, Collections.singleton("obstructed")));
+
+        ReservationHold hold = resource.requestHold(1, null, Arrays.asList("aisle", "accessible"),
+                ReservationHold.NO_OWNER, null);
+        assertNotNull(hold);
+        assertEquals(Collections.singletonList(100), new ArrayList<>(hold.getSlots()));
+        assertNull(resource.requestHold(1, null, Arrays.asList("aisle", "accessible"),
+                ReservationHold.NO_OWNER, null));
+
+        hold = resource.requestHold(19, null, Collections.singleton("aisle"), ReservationHold.NO_OWNER, null);
+        assertNotNull(hold);
+        for (Integer slot : hold.getSlots()) {
+            assertTrue(aisle.get(slot));
+        }
+        assertNull(resource.requestHold(1, null, Collections.singleton("aisle"), ReservationHold.NO_OWNER, null));
+        assertEquals(capacity - 20, resource.countAvailableSlots());
+    }
+
+    @Test
+    public void slotStatesTrackHolds() throws Exception {
+        final int capacity = 130;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        assertArrayEquals(new byte[] { (byte) 0x88, 0x04 }, resource.getSlotStates().encodeRuns());
+
+        ReservationHold confirmedHold = addHold(resource, 70);
+        ReservationHold hold = addHold(resource, 3);
+        assertNotNull(confirmedHold);
+        assertNotNull(hold);
+        assertTrue(resource.confirmHold(confirmedHold.getReservationId()));
+
+        for (Integer slot : confirmedHold.getSlots()) {
+            assertEquals(SlotStateMap.CONFIRMED, resource.getSlotStates().stateOf(slot));
+        }
+        for (Integer slot : hold.getSlots()) {
+            assertEquals(SlotStateMap.HELD, resource.getSlotStates().stateOf(slot));
+        }
+
+        // slots are handed out in order: 70 confirmed, 3 held, 57 free
+        assertArrayEquals(new byte[] { (byte) 0x9A, 0x02, 0x0D, (byte) 0xE4, 0x01 },
+                resource.getSlotStates().encodeRuns());
+
+        resource.holdTimeStampProvider = expiredHoldTimeStampProvider;
+        resource.collectExpiredHolds();
+
+        for (Integer slot : hold.getSlots()) {
+            assertEquals(SlotStateMap.FREE, resource.getSlotStates().stateOf(slot));
+        }
+    }
+
+    @Test
+    public void oldestHoldExpiresFirst() throws Exception {
+        final OffsetDateTime start = OffsetDateTime.parse("2015-12-07T12:00:00Z");
+        final OffsetDateTime[] now = { start };
+        HoldTimeStampProvider clock = new HoldTimeStampProvider(30) {
+            @Override
+            public OffsetDateTime getTimeStamp() {
+                return now[0];
+            }
+        };
+
+        ReservationManager resource = createResource(10, clock);
+        ReservationHold oldHold = addHold(resource, 2);
+        now[0] = start.plusSeconds(20);
+        ReservationHold newHold = addHold(resource, 3);
+        assertEquals(0, resource.getExpiryLag(TimeUnit.MILLISECONDS));
+
+        now[0] = start.plusSeconds(35);
+        assertEquals(5000, resource.getExpiryLag(TimeUnit.MILLISECONDS));
+
+        resource.collectExpiredHolds();
+        assertNull(resource.getReservation(oldHold.getReservationId()));
+        assertNotNull(resource.getReservation(newHold.getReservationId()));
+        assertEquals(0, resource.getExpiryLag(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void expiredHoldIsReclaimedBeforeNewerHoldExpires() throws Exception {
+        final OffsetDateTime start = OffsetDateTime.parse("2015-12-07T12:00:00Z");
+        final OffsetDateTime[] now = { start };
+        HoldTimeStampProvider clock = new HoldTimeStampProvider(30) {
+            @Override
+            public OffsetDateTime getTimeStamp() {
+                return now[0];
+            }
+        };
+
+        // NOTE: regression, the expiration queue kept the newest hold at its head so a sweep stopped at it and the
+        // older expired holds were only reclaimed once every hold had expired
+        ReservationManager resource = createResource(5, clock);
+        ReservationHold first = addHold(resource, 2);
+        now[0] = start.plusSeconds(10);
+        ReservationHold second = addHold(resource, 3);
+        assertNull(addHold(resource, 1));
+
+        // only the first hold is past its expiry
+        now[0] = start.plusSeconds(31);
+        resource.collectExpiredHolds();
+
+        assertEquals(2, resource.countAvailableSlots());
+        for (Integer slot : first.getSlots()) {
+            assertTrue(resource.availableSlots.contains(slot));
+        }
+        for (Integer slot : second.getSlots()) {
+            assertFalse(resource.availableSlots.contains(slot));
+        }
+        assertFalse(resource.expirationQueue.contains(first));
+        assertTrue(resource.expirationQueue.contains(second));
+        assertNotNull(addHold(resource, 2));
+    }
+
+    @Test
+    public void confirmedHoldsDoNotCountAsExpiryLag() throws Exception {
+        final OffsetDateTime start = OffsetDateTime.parse("2015-12-07T12:00:00Z");
+        final OffsetDateTime[] now = { start };
+        HoldTimeStampProvider clock = new HoldTimeStampProvider(30) {
+            @Override
+            public OffsetDateTime getTimeStamp() {
+                return now[0];
+            }
+        };
+
+        ReservationManager resource = createResource(10, clock);
+        ReservationHold confirmedHold = addHold(resource, 2);
+        assertTrue(resource.confirmHold(confirmedHold.getReservationId()));
+        now[0] = start.plusSeconds(20);
+        ReservationHold hold = addHold(resource, 3);
+
+        // the confirmed hold is past its expiry but is never collected, only the unconfirmed hold can lag
+        now[0] = start.plusSeconds(40);
+        assertEquals(0, resource.getExpiryLag(TimeUnit.MILLISECONDS));
+        assertFalse(resource.expirationQueue.contains(confirmedHold));
+
+        now[0] = start.plusSeconds(55);
+        assertEquals(5000, resource.getExpiryLag(TimeUnit.MILLISECONDS));
+        assertNotNull(resource.getReservation(confirmedHold.getReservationId()));
+        assertNull(resource.getReservation(hold.getReservationId()));
+        assertEquals(0, resource.getExpiryLag(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void closedSlotsAreTakenOffSale() throws Exception {
+        final int capacity = 10;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        ReservationHold hold = addHold(resource, 2);
+        assertNotNull(hold);
+
+        // slots 0-1 are held, only the free slots 2-3 are taken off sale now
+        assertEquals(2, resource.closeSlots(0, 4));
+        assertEquals(4, resource.countClosedSlots());
+        assertEquals(capacity - 4, resource.countAvailableSlots());
+        assertNull(addHold(resource, capacity - 3));
+
+        // the held slots follow once the hold is released
+        assertTrue(resource.cancelHold(hold.getReservationId()));
+        assertEquals(capacity - 4, resource.countAvailableSlots());
+        for (int slot = 0; slot < 4; ++slot) {
+            assertTrue(resource.isSlotClosed(slot));
+            assertFalse(resource.availableSlots.contains(slot));
+            assertEquals(SlotStateMap.HELD, resource.getSlotStates().stateOf(slot));
+        }
+
+        ReservationHold rest = addHold(resource, capacity - 4);
+        assertNotNull(rest);
+        for (Integer slot : rest.getSlots()) {
+            assertTrue(slot >= 4);
+        }
+    }
+
+    @Test
+    public void openedSlotsAreHandedToWaiters() throws Exception {
+        final int capacity = 4;
+
+        ReservationManager resource = createResource(capacity, nonExpiringHoldTimeStampProvider);
+        assertEquals(capacity, resource.closeSlots(0, capacity));
+        assertEquals(0, resource.countAvailableSlots());
+
+        HoldWaiter waiter = new HoldWaiter(1, 3, "waiter", 1, TimeUnit.MINUTES, null);
+        resource.addWaiter(waiter);
+        assertTrue(waiter.isWaiting());
+
+        assertEquals(capacity, resource.openSlots(0, capacity));
+        assertEquals(0, resource.countClosedSlots());
+        assertEquals(0, resource.countWaiters());
+
+        ReservationHold handedOff = waiter.getHold();
+        assertNotNull(handedOff);
+        assertEquals(3, handedOff.getSlots().size());
+        assertEquals(capacity - 3, resource.countAvailableSlots());
+        for (Integer slot : handedOff.getSlots()) {
+            assertEquals(SlotStateMap.HELD, resource.getSlotStates().stateOf(slot));
+        }
+
+        // opening slots that are not closed is a no-op
+        assertEquals(0, resource.openSlots(0, capacity));
+    }
+
     /**
      * Creates a resource where the holds are never collected
      *
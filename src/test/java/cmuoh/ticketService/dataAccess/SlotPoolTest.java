@@ -0,0 +1,82 @@
+package cmuoh.ticketService.dataAccess;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for SlotPool.
+ */
+public class SlotPoolTest {
+
+    @Test
+    public void slotsAreStolenFromOtherStripes() {
+        final int capacity = 4 * SlotPool.MIN_STRIPE_WORDS * 64 + 5;
+
+        SlotPool pool = new SlotPool(capacity, 4);
+        assertEquals(4, pool.countStripes());
+        assertEquals(capacity, pool.size());
+
+        List<Integer> claimed = new ArrayList<>();
+        assertEquals(capacity, pool.drainTo(claimed, capacity + 1));
+        assertEquals(capacity, new HashSet<>(claimed).size());
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.drainTo(claimed, 1));
+
+        List<Integer> released = claimed.subList(0, 10);
+        pool.addAll(released);
+        assertEquals(10, pool.size());
+        for (Integer slot : released) {
+            assertTrue(pool.contains(slot));
+        }
+
+        List<Integer> reclaimed = new ArrayList<>();
+        assertEquals(10, pool.drainTo(reclaimed, 20));
+        Collections.sort(reclaimed);
+        Collections.sort(released);
+        assertEquals(released, reclaimed);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void freeSlotsCannotBeAddedTwice() {
+        SlotPool pool = new SlotPool(10, 1);
+        pool.addAll(Collections.singletonList(3));
+    }
+
+    @Test
+    public void concurrentClaimsNeverOverlap() throws Exception {
+        final int capacity = 8 * SlotPool.MIN_STRIPE_WORDS * 64;
+        final int threads = 8;
+
+        SlotPool pool = new SlotPool(capacity, threads);
+        ConcurrentLinkedQueue<Integer> claimed = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; ++i) {
+            executor.execute(() -> {
+                List<Integer> slots = new ArrayList<>();
+                while (pool.drainTo(slots, 3) > 0) {
+                    claimed.addAll(slots);
+                    slots.clear();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Set<Integer> unique = new HashSet<>(claimed);
+        assertEquals(capacity, claimed.size());
+        assertEquals(capacity, unique.size());
+        assertEquals(0, pool.size());
+    }
+}
@@ -0,0 +1,106 @@
+package cmuoh.ticketService.loadTest;
+
+import cmuoh.ticketService.dataAccess.ReservationHold;
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.util.HoldTimeStampProvider;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoadGeneratorTest {
+    @Test
+    public void holdSizesFollowTheirWeights() {
+        LoadGenerator.HoldSizeDistribution holdSizes = LoadGenerator.HoldSizeDistribution.parse("2:1, 4:3");
+        Random random = new Random(7);
+
+        int pairs = 0;
+        for (int i = 0; i < 4000; ++i) {
+            int seats = holdSizes.sample(random);
+            assertTrue(seats == 2 || seats == 4);
+            pairs += seats == 2 ? 1 : 0;
+        }
+        assertTrue(pairs > 800 && pairs < 1200);
+    }
+
+    @Test
+    public void onSaleNeverOversells() throws Exception {
+        ResourceTarget target = new ResourceTarget(200, false);
+        LoadGenerator generator = new LoadGenerator(target, 2000, true, 1, TimeUnit.SECONDS, 4,
+                LoadGenerator.HoldSizeDistribution.parse("1,2,4"), 0.5, 100);
+
+        LoadGenerator.Result result = generator.run();
+        assertTrue(result.getProblems().toString(), result.getProblems().isEmpty());
+        assertTrue(result.getReservedSeats() > 0 && result.getReservedSeats() <= 200);
+        assertEquals(result.getReservedSeats(), target.confirmedSeats());
+    }
+
+    @Test
+    public void overReportedReservesAreFlagged() throws Exception {
+        ResourceTarget target = new ResourceTarget(20, true);
+        LoadGenerator generator = new LoadGenerator(target, 1000, false, 1, TimeUnit.SECONDS, 2,
+                LoadGenerator.HoldSizeDistribution.parse("2"), 1.0, 10);
+
+        assertFalse(generator.run().getProblems().isEmpty());
+    }
+
+    /**
+     * Drives a single resource that never expires its holds
+     */
+    static final class ResourceTarget implements LoadTarget {
+        final ReservationManager resource;
+        final boolean reportUnconfirmed;
+
+        ResourceTarget(int capacity, boolean reportUnconfirmed) throws Exception {
+            this.resource = new ReservationManager(0, capacity, new HoldTimeStampProvider() {
+                @Override
+                public boolean isExpired(OffsetDateTime time) {
+                    return false;
+                }
+            }, "load");
+            this.reportUnconfirmed = reportUnconfirmed;
+        }
+
+        long confirmedSeats() {
+            return resource.getAllReservations().stream()
+                    .filter(ReservationHold::isConfirmed)
+                    .mapToLong(hold -> hold.getSlots().size())
+                    .sum();
+        }
+
+        @Override
+        public int capacity() {
+            return resource.maxCapacity();
+        }
+
+        @Override
+        public int hold(int seats, String customerEmail) {
+            ReservationHold hold = resource.requestHold(seats, null);
+            return hold != null ? hold.getReservationId() : SOLD_OUT;
+        }
+
+        @Override
+        public boolean reserve(int seatHoldId, String customerEmail) {
+            // NOTE: a broken service that reports reservations it did not make
+            return reportUnconfirmed || resource.confirmHold(seatHoldId);
+        }
+
+        @Override
+        public List<String> verify(long reservedSeats) {
+            List<String> problems = new ArrayList<>();
+            long confirmedSeats = InProcessLoadTarget.verifyLevel(resource, problems);
+            if (confirmedSeats != reservedSeats) {
+                problems.add(String.format("%d seats are confirmed but %d seats were reserved", confirmedSeats,
+                        reservedSeats));
+            }
+            return problems;
+        }
+    }
+}
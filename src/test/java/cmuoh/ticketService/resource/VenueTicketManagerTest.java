@@ -0,0 +1,329 @@
+package cmuoh.ticketService.resource;
+
+import cmuoh.ticketService.capture.TrafficCapture;
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.entities.ReservationRequest;
+import cmuoh.ticketService.entities.ReservationResult;
+import cmuoh.ticketService.entities.SeatHold;
+import cmuoh.ticketService.entities.SeatLevel;
+import cmuoh.ticketService.entities.VenueSeatingConfiguration;
+import cmuoh.ticketService.exception.InvalidSeatHoldRequestException;
+import cmuoh.ticketService.exception.NoSeatsAvailableException;
+import cmuoh.ticketService.exception.ReservationNotFoundException;
+import cmuoh.ticketService.exception.SeatHoldQueuedException;
+import cmuoh.ticketService.util.VirtualClock;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test for VenueTicketManager.
+ */
+public class VenueTicketManagerTest {
+    static final String CUSTOMER_EMAIL = "customer@example.com";
+    static final int HOLD_TTL_SECONDS = 30;
+    static final Instant START = Instant.parse("2015-12-07T12:00:00Z");
+
+    VirtualClock clock;
+    VenueTicketManager venue;
+
+    @Before
+    public void setup() throws Exception {
+        clock = new VirtualClock(START);
+        venue = venue(clock, 4, 4);
+    }
+
+    @Test
+    public void confirmedSplitHoldIsForgotten() throws Exception {
+        SeatHold seatHold = splitHold(6);
+        assertNotNull(venue.reserveSeats(seatHold.getReservationId(), null, CUSTOMER_EMAIL));
+
+        for (SeatHold part : seatHold.getParts()) {
+            ReservationManager level = venue.getSeatLevelResources().get(part.getLevel());
+            assertTrue(level.getReservation(part.getReservationId()).isConfirmed());
+            assertNull(venue.holdId2SeatLevel.get(part.getReservationId()));
+        }
+        assertTrue(venue.splitHoldParts.isEmpty());
+    }
+
+    @Test
+    public void failedSplitHoldKeepsPartsConfirmedEarlier() throws Exception {
+        SeatHold seatHold = splitHold(6);
+        SeatHold confirmedPart = seatHold.getParts().get(0);
+        SeatHold cancelledPart = seatHold.getParts().get(1);
+        ReservationManager confirmedLevel = venue.getSeatLevelResources().get(confirmedPart.getLevel());
+        ReservationManager cancelledLevel = venue.getSeatLevelResources().get(cancelledPart.getLevel());
+
+        // one part was already paid for, another one is gone
+        assertTrue(confirmedLevel.confirmHold(confirmedPart.getReservationId()));
+        assertTrue(cancelledLevel.cancelHold(cancelledPart.getReservationId()));
+
+        try {
+            venue.reserveSeats(seatHold.getReservationId(), null, CUSTOMER_EMAIL);
+            fail("the split hold has a cancelled part");
+        } catch (ReservationNotFoundException e) {
+            // expected
+        }
+
+        assertTrue(confirmedLevel.getReservation(confirmedPart.getReservationId()).isConfirmed());
+        assertEquals(1, confirmedLevel.countConfirmedHolds());
+        assertTrue(venue.splitHoldParts.isEmpty());
+        assertNull(venue.holdId2SeatLevel.get(confirmedPart.getReservationId()));
+    }
+
+    @Test
+    public void expiredSplitHoldsArePruned() throws Exception {
+        SeatHold seatHold = splitHold(6);
+
+        clock.advanceTo(START.plusSeconds(HOLD_TTL_SECONDS + 1));
+        venue.pruneSplitHolds();
+
+        assertTrue(venue.splitHoldParts.isEmpty());
+        assertTrue(venue.splitHoldOrder.isEmpty());
+        for (SeatHold part : seatHold.getParts()) {
+            assertNull(venue.holdId2SeatLevel.get(part.getReservationId()));
+        }
+        assertEquals(8, venue.numSeatsAvailable(null));
+    }
+
+    @Test
+    public void splitHoldForgottenByAnotherCallIsSkipped() throws Exception {
+        // a concurrent confirm has already forgotten one part
+        SeatHold seatHold = splitHold(6);
+        venue.holdId2SeatLevel.remove(seatHold.getParts().get(0).getReservationId());
+
+        venue.pruneSplitHolds();
+        assertTrue(venue.splitHoldParts.isEmpty());
+        assertTrue(venue.splitHoldOrder.isEmpty());
+        SeatHold cancelledPart = seatHold.getParts().get(1);
+        assertNull(venue.getSeatLevelResources().get(cancelledPart.getLevel())
+                .getReservation(cancelledPart.getReservationId()));
+
+        SeatHold forgottenPart = seatHold.getParts().get(0);
+        venue.getSeatLevelResources().get(forgottenPart.getLevel()).cancelHold(forgottenPart.getReservationId());
+
+        seatHold = splitHold(6);
+        venue.holdId2SeatLevel.remove(seatHold.getParts().get(0).getReservationId());
+        try {
+            venue.reserveSeats(seatHold.getReservationId(), null, CUSTOMER_EMAIL);
+            fail("the split hold has a part that is gone");
+        } catch (ReservationNotFoundException e) {
+            // expected
+        }
+        assertTrue(venue.splitHoldParts.isEmpty());
+    }
+
+    @Test
+    public void customersWithHoldsAreNotEvicted() throws Exception {
+        SeatHold seatHold = venue.findAndHoldSeats(2, null, null, false, null, null, null, null, null,
+                CUSTOMER_EMAIL);
+        venue.findAndHoldSeats(1, null, null, false, null, null, null, null, null, "idle@example.com");
+        assertNotNull(venue.reserveSeats(seatHold.getReservationId(), null, CUSTOMER_EMAIL));
+        clock.advanceTo(START.plusSeconds(HOLD_TTL_SECONDS + 1));
+
+        assertEquals(0, venue.evictCustomers());
+        assertEquals(1, venue.evictCustomers());
+        assertEquals(1, venue.customers.size());
+        ReservationManager level = venue.getSeatLevelResources().get(seatHold.getLevel());
+        assertEquals(CUSTOMER_EMAIL,
+                venue.customers.emailOf(level.getReservation(seatHold.getReservationId()).getOwnerId()));
+    }
+
+    @Test
+    public void matchingEntityTagIsNotModified() throws Exception {
+        Response response = venue.numSeatsAvailable(null, null, request(null));
+        assertEquals(200, response.getStatus());
+        assertEquals(8, response.getEntity());
+        EntityTag entityTag = response.getEntityTag();
+        assertNotNull(entityTag);
+
+        Response notModified = venue.numSeatsAvailable(null, null, request(entityTag));
+        assertEquals(304, notModified.getStatus());
+        assertEquals(entityTag, notModified.getEntityTag());
+
+        // a hold changes the tag once the snapshot it is served from is refreshed
+        venue.findAndHoldSeats(2, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL);
+        for (ReservationManager level : venue.getSeatLevelResources()) {
+            level.refreshSnapshot();
+        }
+
+        Response modified = venue.numSeatsAvailable(null, null, request(entityTag));
+        assertEquals(200, modified.getStatus());
+        assertEquals(6, modified.getEntity());
+        assertNotEquals(entityTag, modified.getEntityTag());
+    }
+
+    @Test
+    public void addedLevelChangesTheEntityTag() throws Exception {
+        EntityTag entityTag = venue.numSeatsAvailable(null, null, request(null)).getEntityTag();
+        EntityTag detailsTag = venue.venueHoldDetails(null, request(null)).getEntityTag();
+
+        SeatLevel level = new SeatLevel();
+        level.setName("level 2");
+        level.setRows(1);
+        level.setSeatsInRow(4);
+        venue.addSeatLevel(level);
+        venue.getSeatLevelResources().get(2).refreshSnapshot();
+
+        Response modified = venue.numSeatsAvailable(null, null, request(entityTag));
+        assertEquals(200, modified.getStatus());
+        assertEquals(12, modified.getEntity());
+        assertEquals(200, venue.venueHoldDetails(null, request(detailsTag)).getStatus());
+    }
+
+    @Test
+    public void capturedCallIsRecordedOnce() throws Exception {
+        AtomicInteger records = new AtomicInteger();
+        VenueTicketManager.CapturedCall<String> call = new VenueTicketManager.CapturedCall<>(
+                new TrafficCapture(Paths.get("unused.capture"), 1), 0, (capture, arrivalNanos, result, failure) -> {
+                    records.incrementAndGet();
+                    throw new IllegalStateException("capture is broken");
+                });
+
+        assertEquals("code", call.succeeded("code"));
+        call.failed(new IllegalStateException());
+        assertEquals(1, records.get());
+    }
+
+    @Test
+    public void batchWithAnEmptyEntryIsInvalid() throws Exception {
+        SeatHold seatHold = venue.findAndHoldSeats(2, null, null, null, null, null, null, null, null,
+                CUSTOMER_EMAIL);
+
+        try {
+            venue.reserveSeatsBatch(Arrays.asList(
+                    new ReservationRequest(seatHold.getReservationId(), CUSTOMER_EMAIL), null));
+            fail("the batch has an empty entry");
+        } catch (InvalidSeatHoldRequestException e) {
+            // expected
+        }
+
+        // nothing in the batch was confirmed
+        ReservationManager level = venue.getSeatLevelResources().get(seatHold.getLevel());
+        assertFalse(level.getReservation(seatHold.getReservationId()).isConfirmed());
+
+        List<ReservationResult> results = venue.reserveSeatsBatch(Collections.singletonList(
+                new ReservationRequest(seatHold.getReservationId(), CUSTOMER_EMAIL)));
+        assertEquals(ReservationResult.Status.CONFIRMED, results.get(0).getStatus());
+    }
+
+    @Test
+    public void requestsForAChannelQuotaAreNotQueued() throws Exception {
+        SeatLevel level = new SeatLevel();
+        level.setName("level 0");
+        level.setRows(1);
+        level.setSeatsInRow(4);
+        level.setChannelQuotas(new LinkedHashMap<>(Collections.singletonMap("boxOffice", 2)));
+        level.setChannelOverflow(false);
+
+        VenueSeatingConfiguration configuration = new VenueSeatingConfiguration();
+        configuration.setHoldsExpireAfter(HOLD_TTL_SECONDS);
+        configuration.setSeatLevels(Collections.singletonList(level));
+        configuration.getWaitlist().setEnabled(true);
+        venue = new VenueTicketManager(configuration, clock);
+
+        assertNotNull(venue.findAndHoldSeats(2, null, null, null, "boxOffice", null, null, null, null,
+                CUSTOMER_EMAIL));
+        assertNotNull(venue.findAndHoldSeats(2, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL));
+
+        // a waiter would be handed shared seats, the quota can't overflow into them
+        try {
+            venue.findAndHoldSeats(1, null, null, null, "boxOffice", null, null, null, null, CUSTOMER_EMAIL);
+            fail("the quota is used up");
+        } catch (NoSeatsAvailableException e) {
+            // expected
+        }
+
+        try {
+            venue.findAndHoldSeats(1, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL);
+            fail("the shared seats are held");
+        } catch (SeatHoldQueuedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void oversizedRequestsDoNotBlockTheWaitlist() throws Exception {
+        VenueSeatingConfiguration configuration = configuration(4);
+        configuration.getWaitlist().setEnabled(true);
+        venue = new VenueTicketManager(configuration, clock);
+        assertNotNull(venue.findAndHoldSeats(2, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL));
+
+        try {
+            venue.findAndHoldSeats(3, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL);
+            fail("only 2 seats are free");
+        } catch (SeatHoldQueuedException e) {
+            // expected
+        }
+
+        // the level only has 4 seats, the request can never be served
+        try {
+            venue.findAndHoldSeats(5, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL);
+            fail("the level only has 4 seats");
+        } catch (NoSeatsAvailableException e) {
+            // expected
+        }
+
+        // the queued request needs more seats than are free, it does not hold back a smaller one
+        assertNotNull(venue.findAndHoldSeats(1, null, null, null, null, null, null, null, null, CUSTOMER_EMAIL));
+        assertEquals(1, venue.getSeatLevelResources().get(0).countWaiters());
+    }
+
+    private static Request request(EntityTag ifNoneMatch) {
+        ContainerRequest request = new ContainerRequest(URI.create("http://localhost/"),
+                URI.create("http://localhost/numSeatsAvailable"), "GET", null, new MapPropertiesDelegate());
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, '"' + ifNoneMatch.getValue() + '"');
+        }
+        return request;
+    }
+
+    private SeatHold splitHold(int numSeats) throws Exception {
+        SeatHold seatHold = venue.findAndHoldSeats(numSeats, null, null, true, null, null, null, null, null,
+                CUSTOMER_EMAIL);
+        assertEquals(2, seatHold.getParts().size());
+        assertEquals(1, venue.splitHoldParts.size());
+        return seatHold;
+    }
+
+    static VenueTicketManager venue(VirtualClock clock, int... seatsPerLevel) throws Exception {
+        return new VenueTicketManager(configuration(seatsPerLevel), clock);
+    }
+
+    static VenueSeatingConfiguration configuration(int... seatsPerLevel) {
+        SeatLevel[] levels = new SeatLevel[seatsPerLevel.length];
+        for (int i = 0; i < levels.length; ++i) {
+            levels[i] = new SeatLevel();
+            levels[i].setName("level " + i);
+            levels[i].setRows(1);
+            levels[i].setSeatsInRow(seatsPerLevel[i]);
+        }
+
+        VenueSeatingConfiguration configuration = new VenueSeatingConfiguration();
+        configuration.setHoldsExpireAfter(HOLD_TTL_SECONDS);
+        configuration.setSeatLevels(Arrays.asList(levels));
+        return configuration;
+    }
+}
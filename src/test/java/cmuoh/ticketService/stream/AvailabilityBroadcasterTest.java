@@ -0,0 +1,122 @@
+package cmuoh.ticketService.stream;
+
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.entities.AvailabilityDelta;
+import cmuoh.ticketService.entities.AvailabilityStreamConfiguration;
+import cmuoh.ticketService.util.HoldTimeStampProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class AvailabilityBroadcasterTest {
+    static final int BUFFER_SIZE = 2;
+
+    final List<AvailabilityDelta> frames = new ArrayList<>();
+    final ObjectMapper objectMapper = new ObjectMapper() {
+        @Override
+        public String writeValueAsString(Object value) {
+            // NOTE: frames are recorded as they are serialized, the frame text is its index
+            frames.add((AvailabilityDelta) value);
+            return Integer.toString(frames.size() - 1);
+        }
+    };
+    final CountDownLatch writersBlocked = new CountDownLatch(1);
+    ExecutorService writers;
+    ReservationManager[] levels;
+    AvailabilityBroadcaster broadcaster;
+
+    @Before
+    public void setup() throws Exception {
+        HoldTimeStampProvider nonExpiring = new HoldTimeStampProvider() {
+            @Override
+            public boolean isExpired(OffsetDateTime time) {
+                return false;
+            }
+        };
+        levels = new ReservationManager[] {
+                new ReservationManager(0, 10, nonExpiring, "level-0"),
+                new ReservationManager(1, 10, nonExpiring, "level-1")
+        };
+
+        AvailabilityStreamConfiguration configuration = new AvailabilityStreamConfiguration();
+        configuration.setSubscriberBufferSize(BUFFER_SIZE);
+
+        // NOTE: the single writer is kept busy so that the frames stay queued like for a slow subscriber
+        writers = Executors.newSingleThreadExecutor();
+        writers.execute(() -> {
+            try {
+                writersBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        broadcaster = new AvailabilityBroadcaster(Arrays.asList(levels), configuration, objectMapper, writers);
+    }
+
+    @After
+    public void teardown() {
+        writers.shutdownNow();
+    }
+
+    @Test
+    public void changesWithinAWindowAreCoalesced() throws Exception {
+        AvailabilityBroadcaster.Subscriber subscriber = subscribe();
+
+        assertNotNull(levels[0].requestHold(2, null));
+        assertNotNull(levels[0].requestHold(3, null));
+        assertNotNull(levels[1].requestHold(1, null));
+        broadcaster.flush();
+
+        assertEquals(1, subscriber.pending.size());
+        AvailabilityDelta frame = frames.get(Integer.parseInt(subscriber.pending.peek()));
+        assertEquals(1, (long) frame.getSequence());
+        assertFalse(frame.getFullState());
+        assertEquals(2, frame.getLevels().size());
+        assertEquals(5, (int) frame.getLevels().get(0).getAvailableSeats());
+        assertEquals(9, (int) frame.getLevels().get(1).getAvailableSeats());
+
+        // nothing changed since
+        broadcaster.flush();
+        assertEquals(1, subscriber.pending.size());
+    }
+
+    @Test
+    public void slowSubscriberSkipsToTheLatestState() throws Exception {
+        AvailabilityBroadcaster.Subscriber subscriber = subscribe();
+
+        for (int i = 0; i < BUFFER_SIZE; ++i) {
+            assertNotNull(levels[0].requestHold(1, null));
+            broadcaster.flush();
+        }
+        assertEquals(BUFFER_SIZE, subscriber.pending.size());
+        assertFalse(subscriber.needsFullState);
+
+        // the frame that does not fit drops the buffered frames, the subscriber is sent the full state instead
+        assertNotNull(levels[0].requestHold(1, null));
+        broadcaster.flush();
+        assertTrue(subscriber.needsFullState);
+        assertEquals(0, subscriber.pending.size());
+        assertEquals(1, broadcaster.countSubscribers());
+    }
+
+    private AvailabilityBroadcaster.Subscriber subscribe() {
+        AvailabilityBroadcaster.Subscriber subscriber = broadcaster.new Subscriber(new EventOutput(), BUFFER_SIZE);
+        broadcaster.subscribers.add(subscriber);
+        return subscriber;
+    }
+}
@@ -0,0 +1,108 @@
+package cmuoh.ticketService.task;
+
+import cmuoh.ticketService.dataAccess.ReservationEvents;
+import cmuoh.ticketService.dataAccess.ReservationHold;
+import cmuoh.ticketService.dataAccess.ReservationManager;
+import cmuoh.ticketService.util.HoldTimeStampProvider;
+import com.google.common.collect.ImmutableMultimap;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for FlightRecordingTask.
+ */
+public class FlightRecordingTaskTest {
+    FlightRecordingTask task;
+    Path file;
+
+    @Before
+    public void setup() throws Exception {
+        task = new FlightRecordingTask();
+        file = Files.createTempFile("ticket-service", ".jfr");
+    }
+
+    @After
+    public void teardown() throws Exception {
+        // NOTE: closes a recording left running by a failed test
+        execute("action", "stop");
+        ReservationEvents.setEnabled(false);
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void recordsTheTicketServiceEvents() throws Exception {
+        ReservationEvents.setEnabled(true);
+        ReservationManager resource = new ReservationManager(0, 10, new HoldTimeStampProvider() {
+            @Override
+            public boolean isExpired(OffsetDateTime time) {
+                return false;
+            }
+        }, "level-0");
+
+        assertEquals("recording started", execute("action", "start"));
+        assertEquals("recording is already running", execute("action", "start"));
+
+        ReservationHold hold = resource.requestHold(2, null);
+        assertNotNull(hold);
+        assertTrue(resource.confirmHold(hold.getReservationId()));
+
+        assertEquals("recording dumped to " + file + "\nrecording stopped",
+                execute("action", "stop", "file", file.toString()));
+
+        List<String> names = RecordingFile.readAllEvents(file).stream()
+                .map(e -> e.getEventType().getName())
+                .filter(FlightRecordingTask.EVENT_NAMES::contains)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(2, names.size());
+        assertEquals("cmuoh.ticketService.HoldConfirmed", names.get(0));
+        assertEquals("cmuoh.ticketService.HoldRequested", names.get(1));
+    }
+
+    @Test
+    public void warnsWhenTheEventsAreDisabled() throws Exception {
+        ReservationEvents.setEnabled(false);
+
+        String output = execute("action", "start");
+        assertTrue(output.startsWith("recording started\n"));
+        assertTrue(output.contains("ticket service events are disabled"));
+    }
+
+    @Test
+    public void requiresARecording() throws Exception {
+        assertEquals("no recording", execute("action", "dump", "file", file.toString()));
+        assertEquals("no recording", execute("action", "stop"));
+        assertEquals("action must be one of start, dump or stop", execute("action", "pause"));
+
+        execute("action", "start");
+        assertEquals("file is required", execute("action", "dump"));
+        assertFalse(Files.size(file) > 0);
+    }
+
+    private String execute(String... parameters) throws Exception {
+        ImmutableMultimap.Builder<String, String> builder = ImmutableMultimap.builder();
+        for (int i = 0; i < parameters.length; i += 2) {
+            builder.put(parameters[i], parameters[i + 1]);
+        }
+
+        StringWriter output = new StringWriter();
+        task.execute(builder.build(), new PrintWriter(output, true));
+        return output.toString().trim().replace(System.lineSeparator(), "\n");
+    }
+}
@@ -0,0 +1,59 @@
+package cmuoh.ticketService.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyLimiterTest {
+    @Test
+    public void lowPriorityRequestsAreShedFirst() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 0.2, 2.0);
+
+        for (int i = 0; i < 8; ++i) {
+            assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.LOW) >= 0);
+        }
+        assertEquals(-1, limiter.tryAcquire(ConcurrencyLimiter.Priority.LOW));
+
+        long admittedAt = limiter.tryAcquire(ConcurrencyLimiter.Priority.HIGH);
+        assertTrue(admittedAt >= 0);
+        assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.HIGH) >= 0);
+        assertEquals(-1, limiter.tryAcquire(ConcurrencyLimiter.Priority.HIGH));
+
+        assertEquals(1, limiter.getRejected(ConcurrencyLimiter.Priority.LOW));
+        assertEquals(1, limiter.getRejected(ConcurrencyLimiter.Priority.HIGH));
+
+        limiter.release(admittedAt);
+        assertEquals(9, limiter.getInFlight());
+    }
+
+    @Test
+    public void limitFollowsLatency() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 1000, 0.2, 2.0);
+
+        // steady latency at the limit grows it
+        runWindows(limiter, 20, TimeUnit.MILLISECONDS.toNanos(1));
+        int grown = limiter.getLimit();
+        assertTrue(grown > 10);
+
+        // requests getting much slower than usual shrink it
+        runWindows(limiter, 20, TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(limiter.getLimit() < grown);
+    }
+
+    private static void runWindows(ConcurrencyLimiter limiter, int windows, long latencyNanos) {
+        for (int window = 0; window < windows; ++window) {
+            int admitted = 0;
+            while (admitted < ConcurrencyLimiter.SAMPLE_WINDOW
+                    && limiter.tryAcquire(ConcurrencyLimiter.Priority.HIGH) >= 0) {
+                ++admitted;
+            }
+
+            for (int i = 0; i < admitted; ++i) {
+                limiter.release(System.nanoTime() - latencyNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package cmuoh.ticketService.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CustomerDictionaryTest {
+    @Test
+    public void emailsAreNormalizedAndAliased() {
+        CustomerDictionary dictionary = new CustomerDictionary();
+
+        int customerId = dictionary.resolve("Jane.Doe@Example.COM");
+        assertNotEquals(CustomerDictionary.UNKNOWN_CUSTOMER, customerId);
+        assertEquals("Jane.Doe@example.com", dictionary.emailOf(customerId));
+
+        // the normalized form and the raw form are both mapped to the same customer, the local part is case sensitive
+        assertEquals(customerId, dictionary.resolve("Jane.Doe@example.com"));
+        assertEquals(customerId, dictionary.resolve("Jane.Doe@EXAMPLE.com"));
+        assertEquals(customerId, dictionary.resolve("Jane.Doe@Example.COM"));
+        assertNotEquals(customerId, dictionary.resolve("jane.doe@example.com"));
+        assertEquals(2, dictionary.size());
+
+        assertEquals(CustomerDictionary.UNKNOWN_CUSTOMER, dictionary.resolve(null));
+        assertEquals(CustomerDictionary.UNKNOWN_CUSTOMER, dictionary.resolve(""));
+        assertEquals(CustomerDictionary.UNKNOWN_CUSTOMER, dictionary.resolve("not an email"));
+        assertNull(dictionary.emailOf(CustomerDictionary.UNKNOWN_CUSTOMER));
+        assertNull(dictionary.emailOf(2));
+        assertEquals("Jane.Doe@example.com", CustomerDictionary.normalize(" Jane.Doe@EXAMPLE.com "));
+    }
+
+    @Test
+    public void idleUnreferencedCustomersAreEvicted() {
+        CustomerDictionary dictionary = new CustomerDictionary();
+        int idle = dictionary.resolve("idle@Example.com");
+        int owner = dictionary.resolve("owner@example.com");
+
+        // customers looked up since the previous eviction are kept
+        assertEquals(0, dictionary.evictUnused(customerId -> false));
+        int active = dictionary.resolve("active@example.com");
+        assertEquals(active, dictionary.resolve("active@example.com"));
+
+        assertEquals(1, dictionary.evictUnused(customerId -> customerId == owner));
+        assertNull(dictionary.emailOf(idle));
+        assertEquals("owner@example.com", dictionary.emailOf(owner));
+        assertEquals(2, dictionary.size());
+
+        // the ID of the evicted customer is reused, its aliases are gone as well
+        int other = dictionary.resolve("other@example.com");
+        assertEquals(idle, other);
+        assertEquals("other@example.com", dictionary.emailOf(other));
+        assertNotEquals(other, dictionary.resolve("idle@Example.com"));
+        assertEquals(4, dictionary.size());
+    }
+
+    @Test
+    public void concurrentCustomersGetDistinctIds() throws Exception {
+        final int threads = 8;
+        final int emailsPerThread = 2000;
+
+        CustomerDictionary dictionary = new CustomerDictionary();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final int thread = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int[] ids = new int[emailsPerThread];
+                    for (int i = 0; i < emailsPerThread; ++i) {
+                        ids[i] = dictionary.resolve(String.format("customer-%d-%d@example.com", thread, i));
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<Integer> seen = new HashSet<>();
+            for (int t = 0; t < threads; ++t) {
+                int[] ids = results.get(t).get(1, TimeUnit.MINUTES);
+                for (int i = 0; i < emailsPerThread; ++i) {
+                    assertTrue(seen.add(ids[i]));
+                    assertEquals(String.format("customer-%d-%d@example.com", t, i), dictionary.emailOf(ids[i]));
+                }
+            }
+            assertEquals(threads * emailsPerThread, dictionary.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cmuoh.ticketService.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IdempotencyCacheTest {
+    @Test
+    public void duplicateGetsTheOriginalResult() throws Exception {
+        IdempotencyCache<String> cache = new IdempotencyCache<>(16, 1, 1, TimeUnit.MINUTES);
+
+        IdempotencyCache.Claim<String> original = cache.claim("key");
+        assertTrue(original.isOwner());
+        assertNull(original.getResult());
+        original.complete("result");
+
+        IdempotencyCache.Claim<String> duplicate = cache.claim("key");
+        assertFalse(duplicate.isOwner());
+        assertEquals("result", duplicate.getResult());
+
+        // only the owner publishes the result
+        duplicate.complete("other");
+        assertEquals("result", cache.claim("key").getResult());
+        assertTrue(cache.claim("other key").isOwner());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void duplicateWaitsForTheOriginal() throws Exception {
+        IdempotencyCache<String> cache = new IdempotencyCache<>(16, 1, 1, TimeUnit.MINUTES);
+        IdempotencyCache.Claim<String> original = cache.claim("key");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotencyCache.Claim<String>> duplicate = executor.submit(() -> cache.claim("key"));
+            Thread.sleep(50);
+            assertFalse(duplicate.isDone());
+
+            original.complete("result");
+            IdempotencyCache.Claim<String> claim = duplicate.get(10, TimeUnit.SECONDS);
+            assertFalse(claim.isOwner());
+            assertEquals("result", claim.getResult());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void releasedKeyCanBeClaimedAgain() throws Exception {
+        IdempotencyCache<String> cache = new IdempotencyCache<>(16, 1, 1, TimeUnit.MINUTES);
+
+        IdempotencyCache.Claim<String> original = cache.claim("key");
+        original.release();
+        assertEquals(0, cache.size());
+
+        IdempotencyCache.Claim<String> retry = cache.claim("key");
+        assertTrue(retry.isOwner());
+        retry.complete("result");
+
+        // a completed claim is not given up
+        retry.release();
+        assertEquals("result", cache.claim("key").getResult());
+    }
+
+    @Test
+    public void staleAndSurplusEntriesAreEvicted() throws Exception {
+        IdempotencyCache<String> ttlCache = new IdempotencyCache<>(16, 20, 20, TimeUnit.MILLISECONDS);
+        ttlCache.claim("key").complete("result");
+        Thread.sleep(40);
+
+        assertTrue(ttlCache.claim("key").isOwner());
+        assertEquals(1, ttlCache.size());
+
+        IdempotencyCache<String> boundedCache = new IdempotencyCache<>(2, 1, 1, TimeUnit.MINUTES);
+        for (int i = 0; i < 4; ++i) {
+            boundedCache.claim("key-" + i).complete("result-" + i);
+        }
+
+        // evicted in insertion order once the cache is full
+        assertEquals(3, boundedCache.size());
+        assertTrue(boundedCache.claim("key-0").isOwner());
+        assertEquals("result-3", boundedCache.claim("key-3").getResult());
+    }
+
+    @Test
+    public void duplicateTimesOutWhileTheOriginalIsInFlight() throws Exception {
+        IdempotencyCache<String> cache = new IdempotencyCache<>(16, 1000, 20, TimeUnit.MILLISECONDS);
+        cache.claim("key");
+
+        try {
+            cache.claim("key");
+            fail("the original request is still in flight");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+}
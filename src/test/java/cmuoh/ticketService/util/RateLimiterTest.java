@@ -0,0 +1,55 @@
+package cmuoh.ticketService.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+    @Test
+    public void burstIsAllowedThenRateLimited() {
+        RateLimiter limiter = new RateLimiter(1.0, 4, 1024);
+        long key = RateLimiter.customerKey("a@example.com");
+        long now = System.nanoTime();
+
+        // the first requests are only counted in the sketch, the bucket makes up for them once it is created
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(0, limiter.tryAcquire(key, now));
+        }
+
+        long waitNanos = limiter.tryAcquire(key, now);
+        assertTrue(waitNanos > 0 && waitNanos <= TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, limiter.getRejected());
+
+        // other keys have their own bucket and the bucket refills over time
+        assertEquals(0, limiter.tryAcquire(RateLimiter.customerKey("b@example.com"), now));
+        assertEquals(0, limiter.tryAcquire(key, now + TimeUnit.SECONDS.toNanos(1)));
+        assertTrue(limiter.tryAcquire(key, now + TimeUnit.SECONDS.toNanos(1)) > 0);
+    }
+
+    @Test
+    public void customerKeys() {
+        long key = RateLimiter.customerKey("Customer@Example.com");
+        assertEquals(RateLimiter.CUSTOMER_KEYS, key & RateLimiter.ADDRESS_KEYS);
+
+        // keyed on the normalized email, the local part is case sensitive
+        assertEquals(key, RateLimiter.customerKey(" Customer@EXAMPLE.com "));
+        assertEquals("Customer@example.com", CustomerDictionary.normalize(" Customer@EXAMPLE.com "));
+        assertNotEquals(key, RateLimiter.customerKey("customer@example.com"));
+        assertNotEquals(RateLimiter.customerKey("@"), RateLimiter.customerKey(""));
+    }
+
+    @Test
+    public void addressKeys() {
+        assertEquals(RateLimiter.IPV4_KEYS | 0x0A000001L, RateLimiter.addressKey("10.0.0.1"));
+        assertEquals(RateLimiter.IPV4_KEYS | 0xFFFFFFFFL, RateLimiter.addressKey("255.255.255.255"));
+
+        long ipv6 = RateLimiter.addressKey("0:0:0:0:0:0:0:1");
+        assertEquals(RateLimiter.ADDRESS_KEYS, ipv6 & RateLimiter.ADDRESS_KEYS);
+        assertNotEquals(ipv6, RateLimiter.addressKey("0:0:0:0:0:0:0:2"));
+        assertNotEquals(RateLimiter.IPV4_KEYS, RateLimiter.addressKey("256.0.0.1") & RateLimiter.ADDRESS_KEYS);
+    }
+}
@@ -0,0 +1,40 @@
+package cmuoh.ticketService.util;
+
+import cmuoh.ticketService.entities.ConfirmationCode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReservationCodeSignerTest {
+    final ReservationCodeSigner signer = new ReservationCodeSigner(ReservationCodeSigner.generateKey());
+
+    @Test
+    public void signedCodesVerify() {
+        String code = signer.sign(1000000330, 3, 12);
+        ConfirmationCode verified = signer.verify(code);
+
+        assertTrue(verified.getValid());
+        assertEquals(1000000330, (int) verified.getReservationId());
+        assertEquals(3, (int) verified.getLevel());
+        assertEquals(12, (int) verified.getSeatCount());
+
+        // codes are deterministic so that retried confirmations get the same code
+        assertEquals(code, signer.sign(1000000330, 3, 12));
+        assertNotEquals(code, signer.sign(1000000331, 3, 12));
+    }
+
+    @Test
+    public void tamperedCodesDoNotVerify() {
+        String code = signer.sign(1000000330, 3, 12);
+        char[] tampered = code.toCharArray();
+        tampered[3] = tampered[3] == 'A' ? 'B' : 'A';
+
+        assertFalse(signer.verify(new String(tampered)).getValid());
+        assertFalse(signer.verify("not a code").getValid());
+        assertFalse(signer.verify(null).getValid());
+        assertFalse(new ReservationCodeSigner(ReservationCodeSigner.generateKey()).verify(code).getValid());
+    }
+}